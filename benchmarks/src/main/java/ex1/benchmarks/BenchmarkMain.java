@@ -0,0 +1,30 @@
+package ex1.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar - runs JMH with the gc profiler (allocation rate per operation) and writes the
+ * results as JSON to jmh-result.json, so the results of two versions can be compared.
+ * All the JMH command line options are accepted, and override these defaults
+ * (e.g. "-p nodes=1000,10000 WGraph_Algo" or "-rff other.json").
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(cmd.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cmd.getResult().orElse("jmh-result.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
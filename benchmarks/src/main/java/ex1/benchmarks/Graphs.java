@@ -0,0 +1,57 @@
+package ex1.benchmarks;
+
+import ex1.src.WGraph_DS;
+
+import java.util.Random;
+
+/**
+ * Generated graphs of the benchmarks - random graphs with a fixed seed, so every run measures the same graphs.
+ */
+final class Graphs {
+
+    /**
+     * Average number of edges per node of the generated graphs.
+     */
+    static final int EDGES_PER_NODE = 5;
+
+    private Graphs() {
+    }
+
+    /**
+     * Random graph of the given number of nodes (keys 0..nodes-1) and EDGES_PER_NODE * nodes edges
+     * (less if the same pair is drawn twice), weights in [1, 100).
+     */
+    static WGraph_DS random(int nodes, long seed) {
+        WGraph_DS g = new WGraph_DS(nodes);
+        Random r = new Random(seed);
+        for (int i = 0; i < nodes; i++) {
+            g.addNode(i);
+        }
+        //A path through all the nodes, so the graph is connected
+        for (int i = 1; i < nodes; i++) {
+            g.connect(i - 1, i, 1 + r.nextInt(99));
+        }
+        for (long e = nodes; e < (long) EDGES_PER_NODE * nodes; e++) {
+            g.connect(r.nextInt(nodes), r.nextInt(nodes), 1 + r.nextInt(99));
+        }
+        return g;
+    }
+
+    /**
+     * The same graph as random(nodes, seed), built by WGraph_DS.Builder.
+     */
+    static WGraph_DS built(int nodes, long seed) {
+        WGraph_DS.Builder b = new WGraph_DS.Builder(nodes, EDGES_PER_NODE * nodes);
+        Random r = new Random(seed);
+        for (int i = 0; i < nodes; i++) {
+            b.addNode(i);
+        }
+        for (int i = 1; i < nodes; i++) {
+            b.connect(i - 1, i, 1 + r.nextInt(99));
+        }
+        for (long e = nodes; e < (long) EDGES_PER_NODE * nodes; e++) {
+            b.connect(r.nextInt(nodes), r.nextInt(nodes), 1 + r.nextInt(99));
+        }
+        return b.build();
+    }
+}
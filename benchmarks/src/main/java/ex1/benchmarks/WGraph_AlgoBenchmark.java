@@ -0,0 +1,70 @@
+package ex1.benchmarks;
+
+import ex1.src.WGraph_Algo;
+import ex1.src.WGraph_DS;
+import ex1.src.weighted_graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot paths of WGraph_Algo - connectivity, copy and files
+ * (the shortest path queries, by every strategy, are in WGraph_AlgoQueryBenchmark).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WGraph_AlgoBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    private WGraph_DS graph;
+    private WGraph_Algo algo;
+    private String file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.graph = Graphs.random(this.nodes, 1);
+        this.algo = new WGraph_Algo(this.graph);
+        File f = File.createTempFile("graph", ".bin");
+        f.deleteOnExit();
+        this.file = f.getPath();
+        this.algo.save(this.file);
+    }
+
+    /**
+     * isConnected of a new WGraph_Algo, so the components are labeled again by every call.
+     */
+    @Benchmark
+    public boolean isConnected() {
+        return new WGraph_Algo(this.graph).isConnected();
+    }
+
+    @Benchmark
+    public weighted_graph copy() {
+        return this.algo.copy();
+    }
+
+    @Benchmark
+    public weighted_graph lazyCopy() {
+        return this.graph.lazyCopy();
+    }
+
+    @Benchmark
+    public boolean save() {
+        return this.algo.save(this.file);
+    }
+
+    @Benchmark
+    public weighted_graph load() {
+        WGraph_Algo loaded = new WGraph_Algo();
+        loaded.load(this.file);
+        return loaded.getGraph();
+    }
+}
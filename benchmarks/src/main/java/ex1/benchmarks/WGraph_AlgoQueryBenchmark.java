@@ -0,0 +1,50 @@
+package ex1.benchmarks;
+
+import ex1.src.WGraph_Algo;
+import ex1.src.WGraph_DS;
+import ex1.src.node_info;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the shortest path queries of WGraph_Algo, by every strategy
+ * (the benchmarks which do not depend on the strategy are in WGraph_AlgoBenchmark).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WGraph_AlgoQueryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"DIJKSTRA", "BIDIRECTIONAL"})
+    public WGraph_Algo.Strategy strategy;
+
+    private WGraph_Algo algo;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        WGraph_DS graph = Graphs.random(this.nodes, 1);
+        this.algo = new WGraph_Algo(graph);
+        this.algo.setStrategy(this.strategy);
+        this.random = new Random(2);
+    }
+
+    @Benchmark
+    public double shortestPathDist() {
+        return this.algo.shortestPathDist(this.random.nextInt(this.nodes), this.random.nextInt(this.nodes));
+    }
+
+    @Benchmark
+    public List<node_info> shortestPath() {
+        return this.algo.shortestPath(this.random.nextInt(this.nodes), this.random.nextInt(this.nodes));
+    }
+}
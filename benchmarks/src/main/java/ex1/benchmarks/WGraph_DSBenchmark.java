@@ -0,0 +1,91 @@
+package ex1.benchmarks;
+
+import ex1.src.WGraph_DS;
+import ex1.src.node_info;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot paths of WGraph_DS - building, changing and reading the graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WGraph_DSBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    private WGraph_DS graph;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.graph = Graphs.random(this.nodes, 1);
+        this.random = new Random(2);
+    }
+
+    /**
+     * addNode and connect of a whole graph (nodes + 5 * nodes edges).
+     */
+    @Benchmark
+    public WGraph_DS build() {
+        return Graphs.random(this.nodes, 3);
+    }
+
+    /**
+     * The same graph by WGraph_DS.Builder.
+     */
+    @Benchmark
+    public WGraph_DS builder() {
+        return Graphs.built(this.nodes, 3);
+    }
+
+    /**
+     * removeNode of a random node, and addNode / connect of the node and its edges back.
+     */
+    @Benchmark
+    public void removeNode() {
+        int key = this.random.nextInt(this.nodes);
+        int degree = this.graph.getV(key).size();
+        int[] neighbors = new int[degree];
+        double[] weights = new double[degree];
+        int i = 0;
+        for (node_info n : this.graph.getV(key)) {
+            neighbors[i] = n.getKey();
+            weights[i++] = this.graph.getEdge(key, n.getKey());
+        }
+        this.graph.removeNode(key);
+        this.graph.addNode(key);
+        for (i = 0; i < degree; i++) {
+            this.graph.connect(key, neighbors[i], weights[i]);
+        }
+    }
+
+    /**
+     * Iteration of the neighbors (getV(key)) of a random node.
+     */
+    @Benchmark
+    public void neighbors(Blackhole bh) {
+        int key = this.random.nextInt(this.nodes);
+        for (node_info n : this.graph.getV(key)) {
+            bh.consume(this.graph.getEdge(key, n.getKey()));
+        }
+    }
+
+    /**
+     * Iteration of all the nodes (getV()).
+     */
+    @Benchmark
+    public void nodes(Blackhole bh) {
+        for (node_info n : this.graph.getV()) {
+            bh.consume(n.getKey());
+        }
+    }
+}
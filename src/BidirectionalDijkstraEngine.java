@@ -0,0 +1,188 @@
+package ex1.src;
+
+import java.util.*;
+
+/**
+ * Bidirectional Dijkstra for point-to-point queries over any weighted_graph.
+ * A forward scan from the source and a backward scan from the destination run alternately
+ * (the side with the smaller queue head goes next), both read the same adjacency since the
+ * graph is undirected. The best meeting distance mu is updated whenever an edge reaches a vertex
+ * which was already reached by the other side, and the scan stops as soon as
+ * topForward + topBackward >= mu (the standard stopping criterion).
+ *
+ * An engine is a reusable workspace (the arrays are kept between runs), it is not thread safe.
+ */
+final class BidirectionalDijkstraEngine {
+
+    private static final int ARITY = 4;
+
+    /**
+     * State of one direction of the scan (same layout as DijkstraEngine).
+     */
+    private static final class Side {
+        final IntIntMap ids = new IntIntMap(-1);
+        final IndexedDHeap heap = new IndexedDHeap(ARITY, 16);
+        int[] keys = new int[16];
+        double[] dist = new double[16];
+        int[] parent = new int[16];
+        int count;
+
+        void reset() {
+            this.ids.clear();
+            this.heap.clear();
+            this.count = 0;
+        }
+
+        int idOf(int key) {
+            int id = this.ids.get(key);
+            if (id >= 0) return id;
+            id = this.count++;
+            if (id == this.keys.length) {
+                int capacity = id * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.dist = Arrays.copyOf(this.dist, capacity);
+                this.parent = Arrays.copyOf(this.parent, capacity);
+            }
+            this.ids.put(key, id);
+            this.keys[id] = key;
+            this.dist[id] = Double.POSITIVE_INFINITY;
+            this.parent[id] = -1;
+            return id;
+        }
+
+        /**
+         * Tentative distance of the key, infinity if it was not reached.
+         */
+        double distOf(int key) {
+            int id = this.ids.get(key);
+            return id < 0 ? Double.POSITIVE_INFINITY : this.dist[id];
+        }
+    }
+
+    private final Side forward = new Side();
+    private final Side backward = new Side();
+    private double mu;
+    private int meet;
+    /**
+     * Counters of the runs (both sides) since the last clearCounters, as in DijkstraEngine.
+     */
+    long settled, relaxed, pushes, pops;
+    /**
+     * Side and vertex being settled, for relax (a single callback object for all the runs).
+     */
+    private Side side, other;
+    private int u;
+    private double du;
+    private final neighbor_consumer relax = this::relax;
+
+    /**
+     * Run the bidirectional scan between src and dest.
+     * @return true iff there is a path between src and dest
+     */
+    boolean run(weighted_graph g, int src, int dest) {
+        this.forward.reset();
+        this.backward.reset();
+        this.mu = Double.POSITIVE_INFINITY;
+        if (g.getNode(src) == null || g.getNode(dest) == null) return false;
+
+        int s = this.forward.idOf(src);
+        this.forward.dist[s] = 0;
+        this.forward.heap.push(s, 0, src);
+        int t = this.backward.idOf(dest);
+        this.backward.dist[t] = 0;
+        this.backward.heap.push(t, 0, dest);
+        this.pushes += 2;
+        if (src == dest) {
+            this.mu = 0;
+            this.meet = src;
+            return true;
+        }
+
+        while (!this.forward.heap.isEmpty() && !this.backward.heap.isEmpty()) {
+            double topF = this.forward.heap.peekPriority(), topB = this.backward.heap.peekPriority();
+            if (topF + topB >= this.mu) break;
+            if (topF <= topB) step(g, this.forward, this.backward);
+            else step(g, this.backward, this.forward);
+        }
+        return this.mu != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Settle the head of one side and relax its edges.
+     */
+    private void step(weighted_graph g, Side side, Side other) {
+        int u = side.heap.pop();
+        this.pops++;
+        this.settled++;
+        int uKey = side.keys[u];
+        this.side = side;
+        this.other = other;
+        this.u = u;
+        this.du = side.dist[u];
+        g.forEachNeighbor(uKey, this.relax);
+    }
+
+    /**
+     * Relax the edge from the vertex being settled to vKey.
+     */
+    private void relax(int vKey, double w) {
+        Side side = this.side;
+        int v = side.idOf(vKey);
+        double t = this.du + w;
+        this.relaxed++;
+        if (t < side.dist[v]) {
+            if (side.dist[v] == Double.POSITIVE_INFINITY) this.pushes++;
+            side.dist[v] = t;
+            side.parent[v] = this.u;
+            side.heap.pushOrDecrease(v, t, vKey);
+            double through = t + this.other.distOf(vKey);
+            if (through < this.mu) {
+                this.mu = through;
+                this.meet = vKey;
+            }
+        }
+    }
+
+    void clearCounters() {
+        this.settled = 0;
+        this.relaxed = 0;
+        this.pushes = 0;
+        this.pops = 0;
+    }
+
+    /**
+     * Length of the shortest path of the last run, -1 if there is none.
+     */
+    double dist() {
+        return this.mu == Double.POSITIVE_INFINITY ? -1 : this.mu;
+    }
+
+    /**
+     * Keys of the shortest path of the last run, in order src -> dest, null if there is none.
+     */
+    int[] pathKeys() {
+        if (this.mu == Double.POSITIVE_INFINITY) return null;
+        int len = 0;
+        for (int v = this.forward.ids.get(this.meet); v >= 0; v = this.forward.parent[v]) len++;
+        int back = 0;
+        for (int v = this.backward.ids.get(this.meet); v >= 0; v = this.backward.parent[v]) back++;
+
+        int[] path = new int[len + back - 1];
+        int i = len;
+        for (int v = this.forward.ids.get(this.meet); v >= 0; v = this.forward.parent[v]) {
+            path[--i] = this.forward.keys[v];
+        }
+        i = len - 1;
+        for (int v = this.backward.ids.get(this.meet); v >= 0; v = this.backward.parent[v]) {
+            path[i++] = this.backward.keys[v];
+        }
+        return path;
+    }
+
+    /**
+     * Number of vertices settled by both sides in the last run.
+     */
+    int settledCount() {
+        return this.forward.count - this.forward.heap.size() + this.backward.count - this.backward.heap.size();
+    }
+}
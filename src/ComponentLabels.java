@@ -0,0 +1,111 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * Labels of the connected components of a weighted_graph, computed by breadth first scans in O(V+E).
+ * Every vertex gets a dense local id (primitive key -> id map) and the label of its component is kept
+ * in a primitive array indexed by these ids, so nothing is boxed and the tag / info of the nodes are
+ * not touched. The neighbors are scanned through forEachNeighbor, so no list is allocated per vertex
+ * by any graph.
+ * The labels keep the Mode Count of the graph they were computed on, they are valid only as long as
+ * the graph was not changed.
+ */
+final class ComponentLabels {
+
+    private final weighted_graph g;
+    private final int mc;
+    private final IntIntMap ids;
+    /**
+     * id -> component (0..count-1)
+     */
+    private final int[] label;
+    private final int count;
+    /**
+     * Number of neighbor entries scanned by the labeling.
+     */
+    private long scanned;
+    /**
+     * Queue of the scan and its tail, and the component being labeled, for mark.
+     */
+    private int[] queue;
+    private int tail;
+    private int component;
+    private final neighbor_consumer visit = (key, w) -> mark(key);
+
+    ComponentLabels(weighted_graph g) {
+        this.g = g;
+        this.mc = g.getMC();
+        int n = g.nodeSize();
+        this.ids = new IntIntMap(n, -1);
+        int[] keys = new int[n];
+        int size = 0;
+        for (node_info node : g.getV()) {
+            this.ids.put(node.getKey(), size);
+            keys[size++] = node.getKey();
+        }
+        this.label = new int[size];
+        Arrays.fill(this.label, -1);
+
+        this.queue = new int[size];
+        for (int root = 0; root < size; root++) {
+            if (this.label[root] >= 0) continue;
+            int head = 0;
+            this.tail = 0;
+            this.label[root] = this.component;
+            this.queue[this.tail++] = root;
+            //Label the unlabeled neighbors of the head and append them to the queue
+            while (head < this.tail) {
+                g.forEachNeighbor(keys[this.queue[head++]], this.visit);
+            }
+            this.component++;
+        }
+        this.count = this.component;
+        this.queue = null;
+    }
+
+    private void mark(int key) {
+        this.scanned++;
+        int v = this.ids.get(key);
+        if (this.label[v] < 0) {
+            this.label[v] = this.component;
+            this.queue[this.tail++] = v;
+        }
+    }
+
+    /**
+     * true iff the labels were computed on g and g was not changed since.
+     */
+    boolean isValid(weighted_graph g) {
+        return this.g == g && this.mc == g.getMC();
+    }
+
+    /**
+     * Number of connected components.
+     */
+    int count() {
+        return this.count;
+    }
+
+    /**
+     * Number of vertices labeled.
+     */
+    int size() {
+        return this.label.length;
+    }
+
+    /**
+     * Number of neighbor entries scanned by the labeling.
+     */
+    long scanned() {
+        return this.scanned;
+    }
+
+    /**
+     * Component of the key, -1 if there is no such vertex.
+     */
+    int componentOf(int key) {
+        int id = this.ids.get(key);
+        return id < 0 ? -1 : this.label[id];
+    }
+}
@@ -0,0 +1,285 @@
+package ex1.src;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Fully dynamic connectivity of a WGraph_DS, updated by the graph on every change of its structure.
+ * The index keeps a spanning forest of the graph (tree edges) and the component of every vertex, by slot:
+ * - addNode - a new component of one vertex.
+ * - connect - an edge inside a component is a non-tree edge; an edge between two components becomes a
+ *   tree edge and the smaller component is relabeled (a vertex is relabeled O(log n) times over any
+ *   sequence of insertions, like union by size).
+ * - removeEdge - removing a non-tree edge changes nothing; removing a tree edge splits its tree, the two
+ *   sides are scanned alternately (over tree edges) until the smaller side is known, and the edges of the
+ *   smaller side are searched for a replacement edge to the other side. Without a replacement the
+ *   smaller side becomes a new component.
+ * - removeNode - the graph removes the edges of the vertex first, then its (single vertex) component.
+ * Queries (componentCount, same component) are O(1).
+ *
+ * @see WGraph_DS#enableConnectivityIndex()
+ */
+final class ConnectivityIndex implements Serializable {
+
+    private final WGraph_DS g;
+    /**
+     * Component of every slot, -1 for a free slot.
+     */
+    private int[] comp;
+    /**
+     * Tree neighbors of every slot (neighbor slot -> 0).
+     */
+    private IntIntMap[] tree;
+    /**
+     * Number of vertices of every component, and the component ids which are not used.
+     */
+    private int[] compSize;
+    private int[] freeComps;
+    private int freeCount;
+    private int compLimit;
+    private int count;
+
+    /**
+     * Scratch of the scans of removeEdge - mark[slot] is the stamp of the side that reached the slot.
+     */
+    private transient int[] mark;
+    private transient int stamp;
+    private transient int[] queueA, queueB;
+
+    /**
+     * Build the index of the current state of the graph.
+     */
+    ConnectivityIndex(WGraph_DS g) {
+        this.g = g;
+        int slots = Math.max(g.slotLimit(), 1);
+        this.comp = new int[slots];
+        Arrays.fill(this.comp, -1);
+        this.tree = new IntIntMap[slots];
+        this.compSize = new int[16];
+        this.freeComps = new int[0];
+
+        for (int s = 0; s < g.slotLimit(); s++) {
+            if (g.nodeAt(s) != null) this.tree[s] = new IntIntMap(-1);
+        }
+        //Breadth first scans over the edges of the graph - the edges of the scans are the spanning forest
+        int[] queue = new int[slots];
+        for (int root = 0; root < g.slotLimit(); root++) {
+            if (g.nodeAt(root) == null || this.comp[root] >= 0) continue;
+            int c = newComponent();
+            int head = 0, tail = 0;
+            this.comp[root] = c;
+            queue[tail++] = root;
+            while (head < tail) {
+                int u = queue[head++];
+                IntDoubleMap nei = g.neighborsAt(u);
+                for (int i = 0, n = nei.slots(); i < n; i++) {
+                    if (!nei.usedAt(i)) continue;
+                    int v = g.slotOf(nei.keyAt(i));
+                    if (this.comp[v] >= 0) continue;
+                    this.comp[v] = c;
+                    addTreeEdge(u, v);
+                    queue[tail++] = v;
+                }
+            }
+            this.compSize[c] = tail;
+        }
+    }
+
+    /**
+     * Number of connected components.
+     */
+    int count() {
+        return this.count;
+    }
+
+    /**
+     * true iff the vertices of the two slots are in the same component.
+     */
+    boolean connected(int slot1, int slot2) {
+        return this.comp[slot1] == this.comp[slot2];
+    }
+
+    private int newComponent() {
+        int c;
+        if (this.freeCount > 0) {
+            c = this.freeComps[--this.freeCount];
+        } else {
+            c = this.compLimit++;
+            if (c == this.compSize.length) this.compSize = Arrays.copyOf(this.compSize, c * 2);
+        }
+        this.compSize[c] = 0;
+        this.count++;
+        return c;
+    }
+
+    private void releaseComponent(int c) {
+        if (this.freeCount == this.freeComps.length) {
+            this.freeComps = Arrays.copyOf(this.freeComps, Math.max(8, this.freeCount * 2));
+        }
+        this.freeComps[this.freeCount++] = c;
+        this.count--;
+    }
+
+    private void addTreeEdge(int s1, int s2) {
+        this.tree[s1].put(s2, 0);
+        this.tree[s2].put(s1, 0);
+    }
+
+    /**
+     * A new vertex was added to the graph at the given slot.
+     */
+    void nodeAdded(int slot) {
+        if (slot >= this.comp.length) {
+            int capacity = Math.max(slot + 1, this.comp.length * 2);
+            int old = this.comp.length;
+            this.comp = Arrays.copyOf(this.comp, capacity);
+            Arrays.fill(this.comp, old, capacity, -1);
+            this.tree = Arrays.copyOf(this.tree, capacity);
+        }
+        int c = newComponent();
+        this.comp[slot] = c;
+        this.compSize[c] = 1;
+        this.tree[slot] = new IntIntMap(-1);
+    }
+
+    /**
+     * The vertex of the given slot (which has no edges left) is about to be removed from the graph.
+     */
+    void nodeRemoved(int slot) {
+        releaseComponent(this.comp[slot]);
+        this.comp[slot] = -1;
+        this.tree[slot] = null;
+    }
+
+    /**
+     * A new edge was added to the graph between the two slots.
+     */
+    void edgeAdded(int s1, int s2) {
+        int c1 = this.comp[s1], c2 = this.comp[s2];
+        if (c1 == c2) return;
+        //Relabel the smaller component
+        if (this.compSize[c1] > this.compSize[c2]) {
+            relabel(s2, c1);
+        } else {
+            relabel(s1, c2);
+        }
+        addTreeEdge(s1, s2);
+    }
+
+    /**
+     * Move the tree of the given slot to the component c.
+     */
+    private void relabel(int root, int c) {
+        int old = this.comp[root];
+        int[] queue = queue(this.compSize[old], true);
+        int head = 0, tail = 0;
+        this.comp[root] = c;
+        queue[tail++] = root;
+        while (head < tail) {
+            IntIntMap t = this.tree[queue[head++]];
+            for (int i = 0, n = t.slots(); i < n; i++) {
+                if (!t.usedAt(i)) continue;
+                int v = t.keyAt(i);
+                if (this.comp[v] == c) continue;
+                this.comp[v] = c;
+                queue[tail++] = v;
+            }
+        }
+        this.compSize[c] += this.compSize[old];
+        releaseComponent(old);
+    }
+
+    /**
+     * The edge between the two slots was removed from the graph.
+     */
+    void edgeRemoved(int s1, int s2) {
+        if (this.tree[s1].remove(s2) < 0) return;
+        this.tree[s2].remove(s1);
+
+        //Scan both sides of the cut tree alternately, until one of them is done
+        int size = this.compSize[this.comp[s1]];
+        int[] a = queue(size, true), b = queue(size, false);
+        int[] mark = marks();
+        if (this.stamp >= Integer.MAX_VALUE - 2) {
+            Arrays.fill(mark, 0);
+            this.stamp = 0;
+        }
+        int stampA = ++this.stamp, stampB = ++this.stamp;
+        int headA = 0, tailA = 0, headB = 0, tailB = 0;
+        mark[s1] = stampA;
+        a[tailA++] = s1;
+        mark[s2] = stampB;
+        b[tailB++] = s2;
+        while (headA < tailA && headB < tailB) {
+            tailA = expand(a[headA++], a, tailA, mark, stampA);
+            tailB = expand(b[headB++], b, tailB, mark, stampB);
+        }
+        //The side whose scan ended first is the smaller one (it was fully scanned)
+        int[] side;
+        int sideSize, sideStamp;
+        if (headA == tailA) {
+            side = a;
+            sideSize = tailA;
+            sideStamp = stampA;
+        } else {
+            side = b;
+            sideSize = tailB;
+            sideStamp = stampB;
+        }
+
+        //Search for a replacement edge from the smaller side to the other one
+        for (int i = 0; i < sideSize; i++) {
+            int u = side[i];
+            IntDoubleMap nei = this.g.neighborsAt(u);
+            for (int j = 0, n = nei.slots(); j < n; j++) {
+                if (!nei.usedAt(j)) continue;
+                int v = this.g.slotOf(nei.keyAt(j));
+                if (mark[v] != sideStamp) {
+                    addTreeEdge(u, v);
+                    return;
+                }
+            }
+        }
+
+        //No replacement - the smaller side becomes a new component
+        int old = this.comp[s1];
+        int c = newComponent();
+        for (int i = 0; i < sideSize; i++) this.comp[side[i]] = c;
+        this.compSize[c] = sideSize;
+        this.compSize[old] -= sideSize;
+    }
+
+    /**
+     * Append the unmarked tree neighbors of the slot to the queue.
+     * @return the new tail of the queue
+     */
+    private int expand(int u, int[] queue, int tail, int[] mark, int stamp) {
+        IntIntMap t = this.tree[u];
+        for (int i = 0, n = t.slots(); i < n; i++) {
+            if (!t.usedAt(i)) continue;
+            int v = t.keyAt(i);
+            if (mark[v] == stamp) continue;
+            mark[v] = stamp;
+            queue[tail++] = v;
+        }
+        return tail;
+    }
+
+    private int[] queue(int size, boolean first) {
+        int[] q = first ? this.queueA : this.queueB;
+        if (q == null || q.length < size) {
+            q = new int[Math.max(size, 16)];
+            if (first) this.queueA = q;
+            else this.queueB = q;
+        }
+        return q;
+    }
+
+    private int[] marks() {
+        if (this.mark == null || this.mark.length < this.comp.length) {
+            this.mark = new int[this.comp.length];
+            this.stamp = 0;
+        }
+        return this.mark;
+    }
+}
@@ -0,0 +1,193 @@
+package ex1.src;
+
+import java.util.*;
+
+/**
+ * Point-to-point / single-source Dijkstra over any weighted_graph.
+ * The engine gives a dense local id to every vertex it reaches (primitive key -> id map),
+ * and keeps the distances and the parents in primitive arrays indexed by these ids.
+ * The queue is an indexed 4-ary heap with real decrease-key, so every vertex is in the
+ * queue at most once, and the scan stops as soon as the destination is settled.
+ * The cost of a query is proportional to the part of the graph that was scanned, and not to
+ * the size of the whole graph. Equal distances are settled by ascending key.
+ *
+ * An engine is a reusable workspace (the arrays are kept between runs), it is not thread safe.
+ */
+final class DijkstraEngine {
+
+    private static final int ARITY = 4;
+
+    private final IntIntMap ids = new IntIntMap(-1);
+    private final IndexedDHeap heap = new IndexedDHeap(ARITY, 16);
+    private int[] keys = new int[16];
+    private double[] dist = new double[16];
+    private int[] parent = new int[16];
+    private int count;
+    /**
+     * Counters of the runs since the last clearCounters (settled = nodes taken as settled, relaxed = edges scanned,
+     * pushes = new heap entries, the other improvements are decrease-keys, pops = entries taken from the heap).
+     */
+    long settled, relaxed, pushes, pops;
+    /**
+     * Vertex being settled and its distance, for relax (a single callback object for all the runs).
+     */
+    private int u;
+    private double du;
+    private final neighbor_consumer relax = this::relax;
+
+    /**
+     * Scan the graph from src until dest is settled (or everything reachable was settled).
+     * @param g graph to scan
+     * @param src source vertex
+     * @param dest target vertex
+     * @return true iff dest was reached
+     */
+    boolean run(weighted_graph g, int src, int dest) {
+        reset();
+        if (g.getNode(src) == null || g.getNode(dest) == null) return false;
+        return scan(g, src, true, dest, null, 0);
+    }
+
+    /**
+     * Scan the whole component of src.
+     * @param g graph to scan
+     * @param src source vertex
+     * @return true iff src exists
+     */
+    boolean runAll(weighted_graph g, int src) {
+        reset();
+        if (g.getNode(src) == null) return false;
+        scan(g, src, false, 0, null, 0);
+        return true;
+    }
+
+    /**
+     * Scan the graph from src until all the given targets are settled (or everything reachable was settled).
+     * @param g graph to scan
+     * @param src source vertex
+     * @param targets set of target keys (keys mapped to any non negative value)
+     * @return true iff src exists
+     */
+    boolean run(weighted_graph g, int src, IntIntMap targets) {
+        reset();
+        if (g.getNode(src) == null) return false;
+        scan(g, src, false, 0, targets, targets.size());
+        return true;
+    }
+
+    /**
+     * The Dijkstra loop - stops when dest is settled (if toDest), or when the last of the targets is settled.
+     * @return true iff stopped by dest
+     */
+    private boolean scan(weighted_graph g, int src, boolean toDest, int dest, IntIntMap targets, int remaining) {
+        int s = idOf(src);
+        this.dist[s] = 0;
+        this.heap.push(s, 0, src);
+        this.pushes++;
+        while (!this.heap.isEmpty()) {
+            int u = this.heap.pop();
+            this.pops++;
+            this.settled++;
+            int uKey = this.keys[u];
+            if (toDest && uKey == dest) return true;
+            if (targets != null && targets.containsKey(uKey) && --remaining == 0) return false;
+            this.u = u;
+            this.du = this.dist[u];
+            g.forEachNeighbor(uKey, this.relax);
+        }
+        return false;
+    }
+
+    /**
+     * Relax the edge from the vertex being settled to vKey.
+     */
+    private void relax(int vKey, double w) {
+        int v = idOf(vKey);
+        double t = this.du + w;
+        this.relaxed++;
+        if (t < this.dist[v]) {
+            if (this.dist[v] == Double.POSITIVE_INFINITY) this.pushes++;
+            this.dist[v] = t;
+            this.parent[v] = this.u;
+            this.heap.pushOrDecrease(v, t, vKey);
+        }
+    }
+
+    void clearCounters() {
+        this.settled = 0;
+        this.relaxed = 0;
+        this.pushes = 0;
+        this.pops = 0;
+    }
+
+    private void reset() {
+        this.ids.clear();
+        this.heap.clear();
+        this.count = 0;
+    }
+
+    /**
+     * Local id of the key, a new id (at infinite distance) is given to unseen keys.
+     */
+    private int idOf(int key) {
+        int id = this.ids.get(key);
+        if (id >= 0) return id;
+        id = this.count++;
+        if (id == this.keys.length) {
+            int capacity = id * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.dist = Arrays.copyOf(this.dist, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+        }
+        this.ids.put(key, id);
+        this.keys[id] = key;
+        this.dist[id] = Double.POSITIVE_INFINITY;
+        this.parent[id] = -1;
+        return id;
+    }
+
+    /**
+     * true iff the final distance of the key is known after the last run.
+     */
+    boolean isSettled(int key) {
+        int id = this.ids.get(key);
+        return id >= 0 && this.dist[id] != Double.POSITIVE_INFINITY && !this.heap.contains(id);
+    }
+
+    /**
+     * Distance of a settled key from the source of the last run, -1 if it is not settled.
+     */
+    double dist(int key) {
+        return isSettled(key) ? this.dist[this.ids.get(key)] : -1;
+    }
+
+    /**
+     * Number of vertices settled by the last run.
+     */
+    int settledCount() {
+        return this.count - this.heap.size();
+    }
+
+    /**
+     * Keys of the shortest path src -> dest of the last run, in order, null if dest is not settled.
+     */
+    int[] pathKeys(int dest) {
+        if (!isSettled(dest)) return null;
+        int len = 0;
+        for (int v = this.ids.get(dest); v >= 0; v = this.parent[v]) len++;
+        int[] path = new int[len];
+        for (int v = this.ids.get(dest); v >= 0; v = this.parent[v]) path[--len] = this.keys[v];
+        return path;
+    }
+
+    /**
+     * Copy the result of the last run (which must be a full run from src) into an immutable tree.
+     * @param src source of the last run
+     * @param mc mode count of the graph of the last run
+     */
+    ShortestPathTree exportTree(int src, int mc) {
+        IntIntMap ids = new IntIntMap(this.ids);
+        return new ShortestPathTree(src, mc, ids, Arrays.copyOf(this.keys, this.count),
+                Arrays.copyOf(this.dist, this.count), Arrays.copyOf(this.parent, this.count));
+    }
+}
@@ -0,0 +1,181 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap of dense int ids with real decrease-key.
+ * Every id holds a double priority and an int tie-breaker (compared when the
+ * priorities are equal), and the heap keeps the position of every id so
+ * decrease-key runs in O(log_d n) without duplicate entries.
+ * Ids are expected to be small non negative ints (dense indexes), the arrays grow on demand.
+ */
+final class IndexedDHeap {
+
+    private final int arity;
+    /**
+     * heap position -> id, and the priority / tie-breaker of the id at that position
+     * (kept next to the heap order so the comparisons read contiguous memory).
+     */
+    private int[] heap;
+    private double[] prio;
+    private int[] tie;
+    /**
+     * id -> heap position, -1 if the id is not in the heap
+     */
+    private int[] pos;
+    private int size;
+
+    IndexedDHeap(int arity, int capacity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be at least 2: " + arity);
+        this.arity = arity;
+        capacity = Math.max(capacity, 1);
+        this.heap = new int[capacity];
+        this.prio = new double[capacity];
+        this.tie = new int[capacity];
+        this.pos = new int[capacity];
+        Arrays.fill(this.pos, -1);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    boolean contains(int id) {
+        return id < this.pos.length && this.pos[id] >= 0;
+    }
+
+    /**
+     * Remove every id from the heap, in O(size).
+     */
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.pos[this.heap[i]] = -1;
+        }
+        this.size = 0;
+    }
+
+    private void ensureId(int id) {
+        if (id < this.pos.length) return;
+        int capacity = Math.max(id + 1, this.pos.length * 2);
+        int old = this.pos.length;
+        this.pos = Arrays.copyOf(this.pos, capacity);
+        Arrays.fill(this.pos, old, capacity, -1);
+    }
+
+    /**
+     * Insert an id which is not in the heap.
+     */
+    void push(int id, double priority, int tieBreak) {
+        ensureId(id);
+        if (this.size == this.heap.length) {
+            int capacity = this.size * 2;
+            this.heap = Arrays.copyOf(this.heap, capacity);
+            this.prio = Arrays.copyOf(this.prio, capacity);
+            this.tie = Arrays.copyOf(this.tie, capacity);
+        }
+        siftUp(this.size++, id, priority, tieBreak);
+    }
+
+    /**
+     * Lower the priority of an id which is in the heap.
+     */
+    void decrease(int id, double priority) {
+        int i = this.pos[id];
+        siftUp(i, id, priority, this.tie[i]);
+    }
+
+    /**
+     * Change the priority of an id which is in the heap, up or down.
+     */
+    void update(int id, double priority) {
+        int i = this.pos[id];
+        if (priority < this.prio[i]) siftUp(i, id, priority, this.tie[i]);
+        else siftDown(i, id, priority, this.tie[i]);
+    }
+
+    /**
+     * Insert the id, or lower its priority if it is already in the heap.
+     */
+    void pushOrDecrease(int id, double priority, int tieBreak) {
+        if (contains(id)) decrease(id, priority);
+        else push(id, priority, tieBreak);
+    }
+
+    /**
+     * @return the id with the lowest priority, without removing it.
+     */
+    int peek() {
+        return this.heap[0];
+    }
+
+    double peekPriority() {
+        return this.prio[0];
+    }
+
+    /**
+     * Priority of an id which is in the heap.
+     */
+    double priority(int id) {
+        return this.prio[this.pos[id]];
+    }
+
+    /**
+     * Remove and return the id with the lowest priority.
+     */
+    int pop() {
+        int top = this.heap[0];
+        this.pos[top] = -1;
+        int last = --this.size;
+        if (last > 0) siftDown(0, this.heap[last], this.prio[last], this.tie[last]);
+        return top;
+    }
+
+    private void set(int i, int id, double p, int t) {
+        this.heap[i] = id;
+        this.prio[i] = p;
+        this.tie[i] = t;
+        this.pos[id] = i;
+    }
+
+    /**
+     * Move the entry (id, p, t) up from the hole at position i.
+     */
+    private void siftUp(int i, int id, double p, int t) {
+        while (i > 0) {
+            int parent = (i - 1) / this.arity;
+            double pp = this.prio[parent];
+            if (pp < p || (pp == p && this.tie[parent] <= t)) break;
+            set(i, this.heap[parent], pp, this.tie[parent]);
+            i = parent;
+        }
+        set(i, id, p, t);
+    }
+
+    /**
+     * Move the entry (id, p, t) down from the hole at position i.
+     */
+    private void siftDown(int i, int id, double p, int t) {
+        while (true) {
+            int first = i * this.arity + 1;
+            if (first >= this.size) break;
+            int last = Math.min(first + this.arity, this.size);
+            int best = first;
+            double bp = this.prio[first];
+            for (int c = first + 1; c < last; c++) {
+                double cp = this.prio[c];
+                if (cp < bp || (cp == bp && this.tie[c] < this.tie[best])) {
+                    best = c;
+                    bp = cp;
+                }
+            }
+            if (p < bp || (p == bp && t <= this.tie[best])) break;
+            set(i, this.heap[best], bp, this.tie[best]);
+            i = best;
+        }
+        set(i, id, p, t);
+    }
+}
@@ -0,0 +1,219 @@
+package ex1.src;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int to int (linear probing, backward-shift deletion).
+ * Keys and values are kept in two flat primitive arrays, so there is no boxing and no
+ * entry object per mapping. The key 0 is used as the "free" marker of the table and is
+ * stored in an extra slot at the end of the arrays.
+ */
+final class IntIntMap implements Serializable {
+
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    /**
+     * keys/values have length capacity + 1, the last slot belongs to the key 0.
+     */
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasFree;
+    /**
+     * Value returned by get/put/remove when the key is absent.
+     */
+    private final int missing;
+
+    IntIntMap(int expected, int missing) {
+        this.missing = missing;
+        allocate(capacityFor(expected));
+    }
+
+    IntIntMap(int missing) {
+        this(MIN_CAPACITY, missing);
+    }
+
+    /**
+     * Copy constructor - clones the tables with a single array copy.
+     */
+    IntIntMap(IntIntMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeAt = other.resizeAt;
+        this.hasFree = other.hasFree;
+        this.missing = other.missing;
+    }
+
+    static int capacityFor(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * 3L / 4 < expected) cap <<= 1;
+        return cap;
+    }
+
+    static int slotOf(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity + 1];
+        this.values = new int[capacity + 1];
+        this.mask = capacity - 1;
+        this.resizeAt = capacity * 3 / 4;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int missingValue() {
+        return this.missing;
+    }
+
+    boolean containsKey(int key) {
+        if (key == FREE) return this.hasFree;
+        int slot = slotOf(key, this.mask);
+        for (int k = this.keys[slot]; k != FREE; k = this.keys[slot]) {
+            if (k == key) return true;
+            slot = (slot + 1) & this.mask;
+        }
+        return false;
+    }
+
+    int get(int key) {
+        if (key == FREE) return this.hasFree ? this.values[this.mask + 1] : this.missing;
+        int slot = slotOf(key, this.mask);
+        for (int k = this.keys[slot]; k != FREE; k = this.keys[slot]) {
+            if (k == key) return this.values[slot];
+            slot = (slot + 1) & this.mask;
+        }
+        return this.missing;
+    }
+
+    /**
+     * @return the previous value of the key, or the missing value if it was absent.
+     */
+    int put(int key, int value) {
+        if (key == FREE) {
+            int prev = this.hasFree ? this.values[this.mask + 1] : this.missing;
+            if (!this.hasFree) {
+                this.hasFree = true;
+                this.size++;
+            }
+            this.values[this.mask + 1] = value;
+            return prev;
+        }
+        int slot = slotOf(key, this.mask);
+        for (int k = this.keys[slot]; k != FREE; k = this.keys[slot]) {
+            if (k == key) {
+                int prev = this.values[slot];
+                this.values[slot] = value;
+                return prev;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.resizeAt) rehash((this.mask + 1) << 1);
+        return this.missing;
+    }
+
+    /**
+     * @return the removed value, or the missing value if the key was absent.
+     */
+    int remove(int key) {
+        if (key == FREE) {
+            if (!this.hasFree) return this.missing;
+            this.hasFree = false;
+            this.size--;
+            return this.values[this.mask + 1];
+        }
+        int slot = slotOf(key, this.mask);
+        for (int k = this.keys[slot]; k != FREE; k = this.keys[slot]) {
+            if (k == key) {
+                int prev = this.values[slot];
+                shiftKeys(slot);
+                this.size--;
+                return prev;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return this.missing;
+    }
+
+    void clear() {
+        if (this.size == 0) return;
+        Arrays.fill(this.keys, FREE);
+        this.hasFree = false;
+        this.size = 0;
+    }
+
+    /**
+     * Upper bound (exclusive) of the slot indexes, for iteration with usedAt/keyAt/valueAt.
+     */
+    int slots() {
+        return this.keys.length;
+    }
+
+    boolean usedAt(int slot) {
+        return slot == this.mask + 1 ? this.hasFree : this.keys[slot] != FREE;
+    }
+
+    int keyAt(int slot) {
+        return this.keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return this.values[slot];
+    }
+
+    /**
+     * Backward-shift deletion - moves following entries of the probe chain into the hole,
+     * so the table never needs tombstones.
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            int k = this.keys[slot];
+            if (k == FREE) {
+                this.keys[last] = FREE;
+                return;
+            }
+            int ideal = slotOf(k, this.mask);
+            boolean stays = last <= slot ? (last < ideal && ideal <= slot) : (last < ideal || ideal <= slot);
+            if (!stays) {
+                this.keys[last] = k;
+                this.values[last] = this.values[slot];
+                last = slot;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        int oldFree = oldKeys.length - 1;
+        allocate(capacity);
+        this.keys[this.mask + 1] = FREE;
+        this.values[this.mask + 1] = oldValues[oldFree];
+        for (int i = 0; i < oldFree; i++) {
+            int k = oldKeys[i];
+            if (k == FREE) continue;
+            int slot = slotOf(k, this.mask);
+            while (this.keys[slot] != FREE) slot = (slot + 1) & this.mask;
+            this.keys[slot] = k;
+            this.values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ex1.src;
+
+/**
+ * Counters of the searches of one thread since the last clear, as in DijkstraEngine (settled = nodes taken as
+ * settled, relaxed = edges scanned, pushes = new queue entries, pops = entries taken from the queue).
+ * Kept by the preprocessed strategies (WGraph_ALT, WGraph_CH, WGraph_DeltaStepping) for WGraph_Metrics.
+ */
+final class SearchCounters {
+
+    long settled, relaxed, pushes, pops;
+
+    void clear() {
+        this.settled = 0;
+        this.relaxed = 0;
+        this.pushes = 0;
+        this.pops = 0;
+    }
+}
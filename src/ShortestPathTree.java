@@ -0,0 +1,62 @@
+package ex1.src;
+
+/**
+ * Immutable shortest path tree of a full Dijkstra scan from one source.
+ * The reached vertices have dense local ids (primitive key -> id map), the distances and the
+ * parents are primitive arrays indexed by these ids. The tree keeps the Mode Count of the
+ * graph it was computed on, it is valid only as long as the graph was not changed.
+ */
+final class ShortestPathTree {
+
+    private final int src;
+    private final int mc;
+    private final IntIntMap ids;
+    private final int[] keys;
+    private final double[] dist;
+    private final int[] parent;
+
+    ShortestPathTree(int src, int mc, IntIntMap ids, int[] keys, double[] dist, int[] parent) {
+        this.src = src;
+        this.mc = mc;
+        this.ids = ids;
+        this.keys = keys;
+        this.dist = dist;
+        this.parent = parent;
+    }
+
+    int source() {
+        return this.src;
+    }
+
+    int mc() {
+        return this.mc;
+    }
+
+    /**
+     * Number of vertices reachable from the source.
+     */
+    int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * Distance of the key from the source, -1 if it is not reachable.
+     */
+    double dist(int key) {
+        int id = this.ids.get(key);
+        return id < 0 ? -1 : this.dist[id];
+    }
+
+    /**
+     * Keys of the shortest path source -> dest, in order, null if dest is not reachable.
+     */
+    int[] pathKeys(int dest) {
+        int id = this.ids.get(dest);
+        if (id < 0) return null;
+        int len = 0;
+        for (int v = id; v >= 0; v = this.parent[v]) len++;
+        int[] path = new int[len];
+        for (int v = id; v >= 0; v = this.parent[v]) path[--len] = this.keys[v];
+        return path;
+    }
+}
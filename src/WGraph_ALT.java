@@ -0,0 +1,326 @@
+package ex1.src;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The WGraph_ALT class answers shortest path queries with A*, Landmarks and the Triangle inequality (ALT):
+ * - Preprocessing freezes the graph into a WGraph_CSR snapshot, picks k landmarks and computes the
+ *   distances of all the vertices from every landmark (one Dijkstra per landmark, in parallel).
+ * - A query runs A* on the snapshot with the heuristic h(v) = max over landmarks L of |d(L,dest) - d(L,v)|,
+ *   a lower bound of d(v,dest) by the triangle inequality, so far fewer vertices are settled than by Dijkstra.
+ * - The index keeps the getMC() of the graph it was built from, and is rebuilt on the next query once
+ *   the graph was changed.
+ *
+ * Landmarks are picked by the "farthest" rule on hop distances: every new landmark is the vertex farthest
+ * (in number of edges) from the landmarks already chosen, vertices of other components first.
+ * Queries may run concurrently from many threads, every thread has its own workspace.
+ *
+ * @see weighted_graph
+ */
+
+public class WGraph_ALT {
+
+    private static final int ARITY = 4;
+
+    /**
+     * Immutable result of the preprocessing.
+     */
+    private static final class Index {
+        final WGraph_CSR csr;
+        final int[] landmarks;
+        /**
+         * dist[l][v] - distance of the vertex of dense index v from landmark l, infinity if unreachable.
+         */
+        final double[][] dist;
+        final int mc;
+
+        Index(WGraph_CSR csr, int[] landmarks, double[][] dist, int mc) {
+            this.csr = csr;
+            this.landmarks = landmarks;
+            this.dist = dist;
+            this.mc = mc;
+        }
+    }
+
+    /**
+     * Per-thread state of the A* queries - entries are valid only if their stamp is the current query.
+     */
+    private static final class Workspace {
+        IndexedDHeap heap = new IndexedDHeap(ARITY, 16);
+        int[] stamp = new int[0];
+        double[] dist = new double[0];
+        double[] h = new double[0];
+        int[] parent = new int[0];
+        int query;
+        final SearchCounters counters = new SearchCounters();
+
+        void ensure(int n) {
+            if (this.stamp.length >= n) return;
+            this.stamp = new int[n];
+            this.dist = new double[n];
+            this.h = new double[n];
+            this.parent = new int[n];
+            this.heap = new IndexedDHeap(ARITY, n);
+            this.query = 0;
+        }
+    }
+
+    private final weighted_graph g;
+    private final int landmarkCount;
+    private volatile Index index;
+    private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Constructor - the preprocessing runs on the first query (or on rebuild()).
+     * @param g graph of the queries
+     * @param landmarks number of landmarks (k)
+     */
+    public WGraph_ALT(weighted_graph g, int landmarks) {
+        if (landmarks < 1) throw new IllegalArgumentException("landmarks must be positive: " + landmarks);
+        this.g = g;
+        this.landmarkCount = landmarks;
+    }
+
+    /**
+     * Return the graph of the queries.
+     * @return weighted_graph
+     */
+    public weighted_graph getGraph() {
+        return this.g;
+    }
+
+    /**
+     * true iff the index was built and the graph was not changed since.
+     * @return boolean
+     */
+    public boolean isValid() {
+        Index i = this.index;
+        return i != null && i.mc == this.g.getMC();
+    }
+
+    /**
+     * Keys of the landmarks of the current index (builds the index if needed).
+     * @return int[] of keys
+     */
+    public int[] landmarks() {
+        Index i = current();
+        int[] keys = new int[i.landmarks.length];
+        for (int l = 0; l < keys.length; l++) {
+            keys[l] = i.csr.keyAt(i.landmarks[l]);
+        }
+        return keys;
+    }
+
+    /**
+     * Build the index again from the current state of the graph.
+     */
+    public synchronized void rebuild() {
+        WGraph_CSR csr = new WGraph_CSR(this.g);
+        int[] landmarks = selectLandmarks(csr, Math.min(this.landmarkCount, csr.nodeSize()));
+        double[][] dist = new double[landmarks.length][];
+        IntStream.range(0, landmarks.length).parallel().forEach(l -> dist[l] = distances(csr, landmarks[l]));
+        this.index = new Index(csr, landmarks, dist, csr.getMC());
+    }
+
+    /**
+     * Counters of the queries of the current thread since the last clear (the preprocessing is not counted).
+     */
+    SearchCounters counters() {
+        return this.workspace.get().counters;
+    }
+
+    /**
+     * The valid index, rebuilt if the graph was changed.
+     */
+    private Index current() {
+        Index i = this.index;
+        if (i != null && i.mc == this.g.getMC()) return i;
+        synchronized (this) {
+            i = this.index;
+            if (i == null || i.mc != this.g.getMC()) {
+                rebuild();
+                i = this.index;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Farthest selection on hop distances, by breadth first scans of the snapshot.
+     */
+    private static int[] selectLandmarks(WGraph_CSR csr, int k) {
+        int n = csr.nodeSize();
+        int[] landmarks = new int[k];
+        if (k == 0) return landmarks;
+        int[] minHops = new int[n];
+        Arrays.fill(minHops, Integer.MAX_VALUE);
+        int[] hops = new int[n];
+        int[] queue = new int[n];
+
+        //The first landmark is the vertex farthest from an arbitrary vertex
+        int next = farthest(csr, 0, hops, queue, null);
+        for (int l = 0; l < k; l++) {
+            landmarks[l] = next;
+            next = farthest(csr, next, hops, queue, minHops);
+        }
+        return landmarks;
+    }
+
+    /**
+     * BFS from src, if minHops is not null it is lowered by the hops of the scan.
+     * @return the vertex with the largest (minimal) hop distance, unreachable vertices first.
+     */
+    private static int farthest(WGraph_CSR csr, int src, int[] hops, int[] queue, int[] minHops) {
+        Arrays.fill(hops, -1);
+        int head = 0, tail = 0;
+        hops[src] = 0;
+        queue[tail++] = src;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = csr.begin(u), end = csr.end(u); e < end; e++) {
+                int v = csr.target(e);
+                if (hops[v] < 0) {
+                    hops[v] = hops[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        int best = src;
+        int bestHops = -1;
+        for (int v = 0; v < hops.length; v++) {
+            int h = hops[v] < 0 ? Integer.MAX_VALUE : hops[v];
+            if (minHops != null) {
+                minHops[v] = Math.min(minHops[v], h);
+                h = minHops[v];
+            }
+            if (h > bestHops) {
+                bestHops = h;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra over the whole snapshot from the vertex of dense index src.
+     */
+    private static double[] distances(WGraph_CSR csr, int src) {
+        int n = csr.nodeSize();
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedDHeap heap = new IndexedDHeap(ARITY, n);
+        dist[src] = 0;
+        heap.push(src, 0, src);
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            double du = dist[u];
+            for (int e = csr.begin(u), end = csr.end(u); e < end; e++) {
+                int v = csr.target(e);
+                double t = du + csr.weight(e);
+                if (t < dist[v]) {
+                    dist[v] = t;
+                    heap.pushOrDecrease(v, t, v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Lower bound of the distance between the vertices of dense index v and t.
+     */
+    private static double heuristic(Index index, int v, int t) {
+        double best = 0;
+        for (double[] d : index.dist) {
+            double dv = d[v], dt = d[t];
+            if (dv == Double.POSITIVE_INFINITY || dt == Double.POSITIVE_INFINITY) continue;
+            double bound = Math.abs(dt - dv);
+            if (bound > best) best = bound;
+        }
+        return best;
+    }
+
+    /**
+     * A* from s to t on the snapshot of the index.
+     * @return the workspace holding the result, or null if there is no path.
+     */
+    private Workspace search(Index index, int s, int t) {
+        Workspace w = this.workspace.get();
+        WGraph_CSR csr = index.csr;
+        w.ensure(csr.nodeSize());
+        if (++w.query == 0) {
+            Arrays.fill(w.stamp, 0);
+            w.query = 1;
+        }
+        int q = w.query;
+        w.heap.clear();
+
+        w.stamp[s] = q;
+        w.dist[s] = 0;
+        w.parent[s] = -1;
+        w.h[s] = heuristic(index, s, t);
+        w.heap.push(s, w.h[s], s);
+        SearchCounters c = w.counters;
+        c.pushes++;
+        while (!w.heap.isEmpty()) {
+            int u = w.heap.pop();
+            c.pops++;
+            c.settled++;
+            if (u == t) return w;
+            double du = w.dist[u];
+            for (int e = csr.begin(u), end = csr.end(u); e < end; e++) {
+                int v = csr.target(e);
+                double tv = du + csr.weight(e);
+                c.relaxed++;
+                if (w.stamp[v] != q) {
+                    w.stamp[v] = q;
+                    w.dist[v] = Double.POSITIVE_INFINITY;
+                    w.h[v] = heuristic(index, v, t);
+                }
+                if (tv < w.dist[v]) {
+                    if (w.dist[v] == Double.POSITIVE_INFINITY) c.pushes++;
+                    w.dist[v] = tv;
+                    w.parent[v] = u;
+                    w.heap.pushOrDecrease(v, tv + w.h[v], v);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return Sum of all weights between vertices, -1 if there is no such path.
+     */
+    public double shortestPathDist(int src, int dest) {
+        Index index = current();
+        int s = index.csr.indexOf(src), t = index.csr.indexOf(dest);
+        if (s < 0 || t < 0) return -1;
+        Workspace w = search(index, s, t);
+        return w == null ? -1 : w.dist[t];
+    }
+
+    /**
+     * returns the the shortest path between src to dest - as an ordered List of nodes of the graph.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return List of vertices, null if there is no such path.
+     */
+    public List<node_info> shortestPath(int src, int dest) {
+        Index index = current();
+        int s = index.csr.indexOf(src), t = index.csr.indexOf(dest);
+        if (s < 0 || t < 0) return null;
+        Workspace w = search(index, s, t);
+        if (w == null) return null;
+
+        List<node_info> path = new ArrayList<>();
+        for (int v = t; v >= 0; v = w.parent[v]) {
+            path.add(this.g.getNode(index.csr.keyAt(v)));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -2,12 +2,25 @@ package ex1.src;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The WGraph_Algo class is designed to perform operations using the WGraph_DS class, which contains:
  * - Deep copy of the graph.
- * - Calculation of the shortest path between 2 vertices using the Dijkstra algorithm.
- * - Save and load graph from file.
+ * - Calculation of the shortest path between 2 vertices using the Dijkstra algorithm
+ *   (indexed heap with decrease-key, stops when the destination is settled - see DijkstraEngine).
+ * - Bidirectional Dijkstra, ALT (A* with landmarks), Contraction Hierarchies and parallel Delta-stepping
+ *   strategies (see Strategy),
+ *   selected per instance or per query.
+ * - Connected components labeling in O(V+E) (isConnected, componentCount, componentOf), queries
+ *   between known different components return at once.
+ * - Table of distances between many sources and many targets, the sources scanned in parallel.
+ * - Optional LRU cache of shortest path trees of recent sources (see enableTreeCache).
+ * - Optional metrics of the runs - listener and cumulative counters, also as a JMX MBean (see setMetrics).
+ * The algorithms do not change the tag / info of the nodes, and the queries may run concurrently
+ * from many threads on the same graph (as long as the graph itself is not changed meanwhile).
+ * - Save and load graph from file (binary format, or text edge lists - see WGraph_IO).
  *
  *  @author Lior Atiya
  *  @see weighted_graph_algorithms
@@ -20,6 +33,132 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
      */
     private weighted_graph g;
 
+    /**
+     * Reusable workspace of the queries, one per thread - the per-query state (distances, parents, queue)
+     * is kept there and not in the tag / info of the nodes, so many threads can query the same graph.
+     */
+    private static final ThreadLocal<DijkstraEngine> WORKSPACE = ThreadLocal.withInitial(DijkstraEngine::new);
+    private static final ThreadLocal<BidirectionalDijkstraEngine> BIDIRECTIONAL_WORKSPACE =
+            ThreadLocal.withInitial(BidirectionalDijkstraEngine::new);
+
+    /**
+     * Search strategy of the shortest path queries.
+     */
+    public enum Strategy {
+        /**
+         * Dijkstra scan of the whole component of the source (the fallback).
+         */
+        FULL_SCAN,
+        /**
+         * Dijkstra scan from the source, stops as soon as the destination is settled (the default).
+         */
+        DIJKSTRA,
+        /**
+         * Two Dijkstra scans, forward from the source and backward from the destination,
+         * which stop when they meet - settles far fewer vertices on large sparse graphs.
+         */
+        BIDIRECTIONAL,
+        /**
+         * A* with landmarks (see WGraph_ALT) - preprocessing on the first query,
+         * repeated after the graph was changed. For many queries on a graph that rarely changes.
+         */
+        ALT,
+        /**
+         * Contraction Hierarchies (see WGraph_CH) - preprocessing on the first query, repeated after the
+         * graph was changed. The fastest queries, the index is saved and loaded next to the graph.
+         */
+        CH,
+        /**
+         * Parallel Delta-stepping (see WGraph_DeltaStepping) - the distances of all the vertices from the source
+         * are computed by all the cores, on a snapshot which is taken again after the graph was changed.
+         */
+        DELTA_STEPPING
+    }
+
+    /**
+     * Number of landmarks of the ALT strategy.
+     */
+    private static final int ALT_LANDMARKS = 16;
+    /**
+     * Suffix of the file of the Contraction Hierarchies index, next to the file of the graph.
+     */
+    private static final String CH_SUFFIX = ".ch";
+
+    /**
+     * Strategy of shortestPathDist(src, dest) and shortestPath(src, dest).
+     */
+    private Strategy strategy = Strategy.DIJKSTRA;
+
+    /**
+     * Landmarks index of the ALT strategy, created on demand.
+     */
+    private transient volatile WGraph_ALT alt;
+    /**
+     * Contraction Hierarchies index of the CH strategy, created on demand or loaded next to the graph.
+     */
+    private transient volatile WGraph_CH ch;
+    /**
+     * Delta-stepping engine of the DELTA_STEPPING strategy, created on demand.
+     */
+    private transient volatile WGraph_DeltaStepping deltaStepping;
+    /**
+     * Cache of shortest path trees by source, null while the cache is disabled.
+     */
+    private transient volatile TreeCache treeCache;
+    /**
+     * Connected components of the graph, computed by isConnected / componentCount / componentOf.
+     */
+    private transient volatile ComponentLabels components;
+    /**
+     * Metrics of the runs, null while they are disabled.
+     */
+    private transient volatile WGraph_Metrics metrics;
+
+    /**
+     * LRU cache of shortest path trees, bounded by the number of trees.
+     * A tree is used only if the Mode Count of the graph did not change since it was computed.
+     */
+    private static final class TreeCache {
+        private final int capacity;
+        private final LinkedHashMap<Integer, ShortestPathTree> trees;
+        private long hits, misses, evictions;
+
+        TreeCache(int capacity) {
+            this.capacity = capacity;
+            this.trees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                    if (size() <= TreeCache.this.capacity) return false;
+                    TreeCache.this.evictions++;
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * The valid tree of src, null (a miss) if there is none.
+         */
+        synchronized ShortestPathTree get(int src, int mc) {
+            ShortestPathTree tree = this.trees.get(src);
+            if (tree != null && tree.mc() == mc) {
+                this.hits++;
+                return tree;
+            }
+            //Computed before the last change of the graph
+            if (tree != null) this.trees.remove(src);
+            this.misses++;
+            return null;
+        }
+
+        synchronized void put(ShortestPathTree tree) {
+            this.trees.put(tree.source(), tree);
+        }
+
+        synchronized void clear() {
+            this.trees.clear();
+        }
+    }
+
     /**
      * Constructor - Shallow copy
      * @param g graph
@@ -42,6 +181,8 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
     @Override
     public void init(weighted_graph g) {
         this.g = g;
+        TreeCache cache = this.treeCache;
+        if (cache != null) cache.clear();
     }
 
     /**
@@ -59,7 +200,18 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
      */
     @Override
     public weighted_graph copy() {
+        WGraph_Metrics m = this.metrics;
+        if (m == null || this.g == null) return deepCopy();
+        long nanos = System.nanoTime(), bytes = WGraph_Metrics.allocatedBytes();
+        weighted_graph copy = deepCopy();
+        m.record(WGraph_Metrics.Operation.COPY, copy.nodeSize(), copy.edgeSize(), 0, 0, nanos, bytes);
+        return copy;
+    }
+
+    private weighted_graph deepCopy() {
         if (this.g == null) return null;
+        //Bulk clone of the structures
+        if (this.g instanceof WGraph_DS) return ((WGraph_DS) this.g).copy();
         weighted_graph copy = new WGraph_DS();
 
         //Go over the collection of all nodes and copy the attributes of the node
@@ -69,9 +221,8 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
             copy.getNode(i.getKey()).setInfo(i.getInfo());
 
             //Copy of the neighbors
-            for (node_info v : this.g.getV(i.getKey())) {
-                copy.connect(i.getKey(), v.getKey(), this.g.getEdge(i.getKey(), v.getKey()));
-            }
+            int key = i.getKey();
+            this.g.forEachNeighbor(key, (v, w) -> copy.connect(key, v, w));
         }
 
         return copy;
@@ -84,84 +235,448 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
      */
     @Override
     public boolean isConnected() {
-        if (this.g.getV().isEmpty()) return true;
-        node_info first = this.g.getV().iterator().next();
+        WGraph_Metrics m = this.metrics;
+        if (m == null) return connected();
+        long nanos = System.nanoTime(), bytes = WGraph_Metrics.allocatedBytes();
+        ComponentLabels before = this.components;
+        boolean connected = connected();
+        ComponentLabels labels = this.components;
+        //Only a new labeling scanned the graph
+        boolean scanned = labels != null && labels != before;
+        m.record(WGraph_Metrics.Operation.IS_CONNECTED, scanned ? labels.size() : 0, scanned ? labels.scanned() : 0,
+                0, 0, nanos, bytes);
+        return connected;
+    }
+
+    private boolean connected() {
+        if (this.g instanceof WGraph_DS && ((WGraph_DS) this.g).hasConnectivityIndex()) {
+            return ((WGraph_DS) this.g).isConnected();
+        }
+        return components().count() <= 1;
+    }
+
+    /**
+     * Shortest path tree of src which is kept up to date with the changes of the graph - every change repairs
+     * only the affected part of the tree (see WGraph_DynamicSSSP). Close it when it is no longer needed.
+     * @param src - start node
+     * @return the dynamic shortest paths of src
+     * @throws IllegalStateException if the graph is not a WGraph_DS (which reports its changes)
+     */
+    public WGraph_DynamicSSSP dynamicShortestPaths(int src) {
+        if (!(this.g instanceof WGraph_DS)) throw new IllegalStateException("dynamic shortest paths need a WGraph_DS");
+        return new WGraph_DynamicSSSP((WGraph_DS) this.g, src);
+    }
+
+    /**
+     * Returns the number of connected components of the graph (0 for the empty graph).
+     * @return int
+     */
+    public int componentCount() {
+        return components().count();
+    }
+
+    /**
+     * Returns the connected component of the given node, as a number between 0 and componentCount()-1
+     * (two nodes are connected iff they have the same component).
+     * @param key - node
+     * @return the component, -1 if there is no such node
+     */
+    public int componentOf(int key) {
+        return components().componentOf(key);
+    }
 
-        Dijkstra(g, g.getNode(first.getKey()));
-        for (node_info x : g.getV()) {
-            if (x.getTag() == Double.MAX_VALUE) return false;
+    /**
+     * The component labels of the graph, computed again (in O(V+E)) if the graph was changed.
+     */
+    private ComponentLabels components() {
+        ComponentLabels labels = this.components;
+        if (labels == null || !labels.isValid(this.g)) {
+            labels = new ComponentLabels(this.g);
+            this.components = labels;
+        }
+        return labels;
+    }
+
+    /**
+     * true iff src, dest are nodes of different components - by the connectivity index of the graph if it
+     * has one, otherwise only if the component labels are up to date.
+     * The labels are not computed here, so a query after a change of the graph is not slowed down.
+     */
+    private boolean separated(int src, int dest) {
+        if (this.g instanceof WGraph_DS && ((WGraph_DS) this.g).hasConnectivityIndex()) {
+            WGraph_DS ds = (WGraph_DS) this.g;
+            return ds.getNode(src) != null && ds.getNode(dest) != null && !ds.sameComponent(src, dest);
         }
-        return true;
+        ComponentLabels labels = this.components;
+        if (labels == null || !labels.isValid(this.g)) return false;
+        int a = labels.componentOf(src), b = labels.componentOf(dest);
+        return a >= 0 && b >= 0 && a != b;
     }
 
     /**
-     * returns the length of the shortest path between src to dest by using the Dijkstra algorithm.
+     * Set the search strategy of shortestPathDist(src, dest) and shortestPath(src, dest).
+     * @param strategy the new strategy
+     */
+    public void setStrategy(Strategy strategy) {
+        if (strategy == null) throw new IllegalArgumentException("strategy is null");
+        this.strategy = strategy;
+    }
+
+    /**
+     * Return the search strategy of shortestPathDist(src, dest) and shortestPath(src, dest).
+     * @return Strategy
+     */
+    public Strategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest by using the Dijkstra algorithm,
+     * with the strategy of this instance (see setStrategy).
      * @param src - start node
      * @param dest - end (target) node
      * @return Sum of all weights between vertices.
      */
     @Override
     public double shortestPathDist(int src, int dest) {
-        //If it does not exist src or dest.
-        if (g.getNode(dest) == null || g.getNode(src) == null) return -1;
-        Dijkstra(this.g, g.getNode(src));
-        //If there is no path to the dest.
-        if (g.getNode(dest).getTag() == Double.MAX_VALUE) return -1;
+        return shortestPathDist(src, dest, this.strategy);
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest with the given strategy.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @param strategy - search strategy of this query
+     * @return Sum of all weights between vertices, -1 if there is no such path.
+     */
+    public double shortestPathDist(int src, int dest, Strategy strategy) {
+        WGraph_Metrics m = this.metrics;
+        if (m == null) return dist(src, dest, strategy);
+        long nanos = System.nanoTime(), bytes = WGraph_Metrics.allocatedBytes();
+        clearCounters(strategy);
+        double d = dist(src, dest, strategy);
+        record(m, WGraph_Metrics.Operation.SHORTEST_PATH_DIST, strategy, nanos, bytes);
+        return d;
+    }
 
-        ////*In the attribute of the node - "Tag", save the distance between the src and the dest.
-        return g.getNode(dest).getTag();
+    private double dist(int src, int dest, Strategy strategy) {
+        if (separated(src, dest)) return -1;
+        TreeCache cache = this.treeCache;
+        if (cache != null) {
+            ShortestPathTree tree = tree(cache, src);
+            return tree == null ? -1 : tree.dist(dest);
+        }
+        switch (strategy) {
+            case ALT:
+                return altIndex().shortestPathDist(src, dest);
+            case CH:
+                return chIndex().shortestPathDist(src, dest);
+            case DELTA_STEPPING: {
+                WGraph_DeltaStepping.Result result = deltaStepping().run(src);
+                return result == null ? -1 : result.dist(dest);
+            }
+            case BIDIRECTIONAL: {
+                BidirectionalDijkstraEngine engine = BIDIRECTIONAL_WORKSPACE.get();
+                engine.run(this.g, src, dest);
+                return engine.dist();
+            }
+            case FULL_SCAN: {
+                DijkstraEngine engine = engine();
+                if (this.g.getNode(dest) == null || !engine.runAll(this.g, src)) return -1;
+                return engine.dist(dest);
+            }
+            default: {
+                DijkstraEngine engine = engine();
+                //If it does not exist src or dest, or there is no path to the dest.
+                if (!engine.run(this.g, src, dest)) return -1;
+                return engine.dist(dest);
+            }
+        }
     }
 
     /**
      * returns the the shortest path between src to dest - as an ordered List of nodes:
-     * src--> n1-->n2-->...dest. By using the "shortestPathDist" function.
+     * src--> n1-->n2-->...dest. With the strategy of this instance (see setStrategy).
      * @param src - start node
      * @param dest - end (target) node
      * @return List of vertices.
      */
     @Override
     public List<node_info> shortestPath(int src, int dest) {
-        //Scan the entire graph and return the number of edges of the shortest path
-        double sizePath = shortestPathDist(src, dest);
-        if (sizePath == -1) return null;
+        return shortestPath(src, dest, this.strategy);
+    }
+
+    /**
+     * returns the the shortest path between src to dest with the given strategy.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @param strategy - search strategy of this query
+     * @return List of vertices, null if there is no such path.
+     */
+    public List<node_info> shortestPath(int src, int dest, Strategy strategy) {
+        WGraph_Metrics m = this.metrics;
+        if (m == null) return path(src, dest, strategy);
+        long nanos = System.nanoTime(), bytes = WGraph_Metrics.allocatedBytes();
+        clearCounters(strategy);
+        List<node_info> path = path(src, dest, strategy);
+        record(m, WGraph_Metrics.Operation.SHORTEST_PATH, strategy, nanos, bytes);
+        return path;
+    }
 
-        //Contain all nodes of the path
-        List<node_info> path = new ArrayList<>();
+    private List<node_info> path(int src, int dest, Strategy strategy) {
+        if (separated(src, dest)) return null;
+        TreeCache cache = this.treeCache;
+        if (cache != null) {
+            ShortestPathTree tree = tree(cache, src);
+            return tree == null ? null : toPath(tree.pathKeys(dest));
+        }
+        switch (strategy) {
+            case ALT:
+                return altIndex().shortestPath(src, dest);
+            case CH:
+                return chIndex().shortestPath(src, dest);
+            case DELTA_STEPPING: {
+                WGraph_DeltaStepping.Result result = deltaStepping().run(src);
+                return result == null ? null : result.path(dest);
+            }
+            case BIDIRECTIONAL: {
+                BidirectionalDijkstraEngine engine = BIDIRECTIONAL_WORKSPACE.get();
+                engine.run(this.g, src, dest);
+                return toPath(engine.pathKeys());
+            }
+            case FULL_SCAN: {
+                DijkstraEngine engine = engine();
+                if (this.g.getNode(dest) == null || !engine.runAll(this.g, src)) return null;
+                return toPath(engine.pathKeys(dest));
+            }
+            default: {
+                DijkstraEngine engine = engine();
+                if (!engine.run(this.g, src, dest)) return null;
+                return toPath(engine.pathKeys(dest));
+            }
+        }
+    }
 
-        if (src == dest) path.add(g.getNode(dest));
-        else {
-            path.add(g.getNode(dest));
-            node_info d = this.g.getNode(dest);
-            //*In the attribute of the node - "Info", save the key of the parent node in the shortest path
-            node_info parent = this.g.getNode(Integer.parseInt(d.getInfo()));
+    /**
+     * returns the table of the lengths of the shortest paths between every source and every target,
+     * one Dijkstra scan per source (which stops when all the targets are settled), the sources are
+     * scanned in parallel on the common ForkJoinPool.
+     * @param sources - start nodes
+     * @param targets - end (target) nodes
+     * @return double[sources.length][targets.length], -1 for no such path
+     */
+    @Override
+    public double[][] distanceMatrix(int[] sources, int[] targets) {
+        return distanceMatrix(sources, targets, ForkJoinPool.commonPool());
+    }
 
-            //Loop from dest to src
-            while (parent.getInfo() != null) {
-                path.add(0, parent);
-                parent = this.g.getNode(Integer.parseInt(parent.getInfo()));
+    /**
+     * returns the table of the lengths of the shortest paths between every source and every target,
+     * the sources are scanned in parallel on the given pool (every worker thread reuses its own workspace).
+     * @param sources - start nodes
+     * @param targets - end (target) nodes
+     * @param pool - the pool of the scans
+     * @return double[sources.length][targets.length], -1 for no such path
+     */
+    public double[][] distanceMatrix(int[] sources, int[] targets, ForkJoinPool pool) {
+        double[][] table = new double[sources.length][];
+        IntIntMap targetSet = new IntIntMap(targets.length, -1);
+        for (int j = 0; j < targets.length; j++) {
+            //Missing targets are never settled, they would only prevent the early stop
+            if (this.g.getNode(targets[j]) != null) targetSet.put(targets[j], j);
+        }
+        pool.invoke(new MatrixTask(this.g, sources, targets, targetSet, table, 0, sources.length));
+        return table;
+    }
+
+    /**
+     * Fork/join task of the rows [from, to) of distanceMatrix.
+     */
+    private static final class MatrixTask extends RecursiveAction {
+        private static final int ROWS_PER_TASK = 4;
+        private final weighted_graph g;
+        private final int[] sources, targets;
+        private final IntIntMap targetSet;
+        private final double[][] table;
+        private final int from, to;
+
+        MatrixTask(weighted_graph g, int[] sources, int[] targets, IntIntMap targetSet, double[][] table, int from, int to) {
+            this.g = g;
+            this.sources = sources;
+            this.targets = targets;
+            this.targetSet = targetSet;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > ROWS_PER_TASK) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new MatrixTask(this.g, this.sources, this.targets, this.targetSet, this.table, this.from, mid),
+                        new MatrixTask(this.g, this.sources, this.targets, this.targetSet, this.table, mid, this.to));
+                return;
+            }
+            DijkstraEngine engine = engine();
+            for (int i = this.from; i < this.to; i++) {
+                double[] row = new double[this.targets.length];
+                if (engine.run(this.g, this.sources[i], this.targetSet)) {
+                    for (int j = 0; j < row.length; j++) row[j] = engine.dist(this.targets[j]);
+                } else {
+                    Arrays.fill(row, -1);
+                }
+                this.table[i] = row;
+            }
+        }
+    }
+
+    /**
+     * Enable the cache of shortest path trees: the queries of a source compute (once) the distances of all
+     * the vertices from it, and the next queries of the same source are answered from the tree, as long as
+     * the graph did not change (getMC). While the cache is enabled it replaces the strategy of the queries.
+     * @param capacity maximal number of trees in the cache (least recently used are evicted)
+     */
+    public void enableTreeCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.treeCache = new TreeCache(capacity);
+    }
+
+    /**
+     * Disable (and drop) the cache of shortest path trees.
+     */
+    public void disableTreeCache() {
+        this.treeCache = null;
+    }
+
+    /**
+     * @return number of queries answered from a cached tree.
+     */
+    public long getTreeCacheHits() {
+        TreeCache cache = this.treeCache;
+        if (cache == null) return 0;
+        synchronized (cache) {
+            return cache.hits;
+        }
+    }
+
+    /**
+     * @return number of queries which had to compute a tree (none cached, or the graph was changed).
+     */
+    public long getTreeCacheMisses() {
+        TreeCache cache = this.treeCache;
+        if (cache == null) return 0;
+        synchronized (cache) {
+            return cache.misses;
+        }
+    }
+
+    /**
+     * @return number of trees evicted to keep the cache within its capacity.
+     */
+    public long getTreeCacheEvictions() {
+        TreeCache cache = this.treeCache;
+        if (cache == null) return 0;
+        synchronized (cache) {
+            return cache.evictions;
+        }
+    }
+
+    /**
+     * The shortest path tree of src from the cache, computed and cached on a miss.
+     * @return the tree, null if there is no such node.
+     */
+    private ShortestPathTree tree(TreeCache cache, int src) {
+        int mc = this.g.getMC();
+        ShortestPathTree tree = cache.get(src, mc);
+        if (tree != null) return tree;
+        DijkstraEngine engine = engine();
+        if (!engine.runAll(this.g, src)) return null;
+        tree = engine.exportTree(src, mc);
+        cache.put(tree);
+        return tree;
+    }
+
+    /**
+     * The ALT index of the current graph, created on the first use.
+     */
+    private WGraph_ALT altIndex() {
+        WGraph_ALT index = this.alt;
+        if (index == null || index.getGraph() != this.g) {
+            synchronized (this) {
+                index = this.alt;
+                if (index == null || index.getGraph() != this.g) {
+                    index = new WGraph_ALT(this.g, ALT_LANDMARKS);
+                    this.alt = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The Contraction Hierarchies index of the current graph, created on the first use.
+     */
+    private WGraph_CH chIndex() {
+        WGraph_CH index = this.ch;
+        if (index == null || index.getGraph() != this.g) {
+            synchronized (this) {
+                index = this.ch;
+                if (index == null || index.getGraph() != this.g) {
+                    index = new WGraph_CH(this.g);
+                    this.ch = index;
+                }
             }
-            path.add(0, g.getNode(src));
+        }
+        return index;
+    }
+
+    /**
+     * The Delta-stepping engine of the current graph, created on the first use.
+     */
+    private WGraph_DeltaStepping deltaStepping() {
+        WGraph_DeltaStepping engine = this.deltaStepping;
+        if (engine == null || engine.getGraph() != this.g) {
+            synchronized (this) {
+                engine = this.deltaStepping;
+                if (engine == null || engine.getGraph() != this.g) {
+                    engine = new WGraph_DeltaStepping(this.g);
+                    this.deltaStepping = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Nodes of the graph by the keys of a path, null for a null path.
+     */
+    private List<node_info> toPath(int[] keys) {
+        if (keys == null) return null;
+        List<node_info> path = new ArrayList<>(keys.length);
+        for (int k : keys) {
+            path.add(this.g.getNode(k));
         }
         return path;
     }
 
     /**
      * Saves this weighted (undirected) graph to the given
-     * file name
+     * file name (and the Contraction Hierarchies index, if it was built, to file + ".ch")
      * @param file - the file name (may include a relative path).
      * @return true - iff the file was successfully saved
      */
     @Override
     public boolean save(String file) {
         boolean ans = false;
-        ObjectOutputStream oos;
         try {
-            FileOutputStream fileOut = new FileOutputStream(file, true);
-            oos = new ObjectOutputStream(fileOut);
-            oos.writeObject(this.g);
-            fileOut.close();
-            oos.close();
+            //Compact binary format (see WGraph_IO), the file is replaced
+            WGraph_IO.writeBinary(this.g, file);
             ans = true;
+            //A valid Contraction Hierarchies index is saved next to the graph, an older index is deleted
+            WGraph_CH index = this.ch;
+            boolean saved = index != null && index.getGraph() == this.g && index.isValid() && index.save(file + CH_SUFFIX);
+            if (!saved) new File(file + CH_SUFFIX).delete();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -174,18 +689,31 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
      * if the file was successfully loaded - the underlying graph
      * of this class will be changed (to the loaded one), in case the
      * graph was not loaded the original graph should remain "as is".
+     * Both the binary format of save and files of serialized graph objects are read - a serialized
+     * graph is read only if it was written by the current version of its class (the classes declare no
+     * serialVersionUID and their fields changed, so files of the baseline version can't be read).
      * @param file - file name
      * @return true - iff the graph was successfully loaded.
      */
     @Override
     public boolean load(String file) {
         try {
-            FileInputStream streamIn = new FileInputStream(file);
-            ObjectInputStream objectinputstream = new ObjectInputStream(streamIn);
-            weighted_graph readCase = (weighted_graph) objectinputstream.readObject();
+            weighted_graph readCase;
+            if (WGraph_IO.isBinary(file)) {
+                readCase = WGraph_IO.readBinary(file);
+            } else {
+                FileInputStream streamIn = new FileInputStream(file);
+                ObjectInputStream objectinputstream = new ObjectInputStream(streamIn);
+                readCase = (weighted_graph) objectinputstream.readObject();
+                streamIn.close();
+                objectinputstream.close();
+            }
+            //Contraction Hierarchies index saved next to the graph, if it matches the loaded graph
+            WGraph_CH index = new File(file + CH_SUFFIX).isFile() ? WGraph_CH.load(file + CH_SUFFIX, readCase) : null;
             this.g = readCase;
-            streamIn.close();
-            objectinputstream.close();
+            TreeCache cache = this.treeCache;
+            if (cache != null) cache.clear();
+            this.ch = index;
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -194,46 +722,114 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
     }
 
     /**
-     * Dijkstra algorithms - Given a graph and a source vertex in the graph,
-     * find the shortest paths from source to all vertices in the given graph by weight of each side.
-     * This algorithm uses Priority Queue to check if there is a edge
-     * with a lower weight than the top of the Queue to get to the shortest path
-     * And uses HashMap for checking for each vertex whether we scanned all of its neighbors
-     * by a Boolean variable "visited".
-     * @param g graph on which the scan is performed
-     * @param src Source vertex from which to start the scan
+     * Saves this graph to the given file as a text edge list (see WGraph_IO.writeEdgeList).
+     * @param file - the file name (may include a relative path).
+     * @return true - iff the file was successfully saved
      */
-    private static void Dijkstra(weighted_graph g, node_info src) {
-        HashMap<Integer, Boolean> visited = new HashMap<>();
+    public boolean saveEdgeList(String file) {
+        try {
+            WGraph_IO.writeEdgeList(this.g, file);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
-        Comparator<node_info> nameSorter = Comparator.comparing(node_info::getTag);
-        PriorityQueue<node_info> pQueue = new PriorityQueue<>(nameSorter);
-        for (node_info x : g.getV()) {
-            if (x != src) {
-                x.setTag(Double.MAX_VALUE);
-            } else {
-                x.setTag(0);
-            }
-            x.setInfo(null);
-            pQueue.add(x);
-            visited.put(x.getKey(), false);
+    /**
+     * Load a graph from a text edge list (see WGraph_IO.readEdgeList), parsed in parallel.
+     * In case the graph was not loaded the original graph remains "as is".
+     * @param file - file name
+     * @return true - iff the graph was successfully loaded.
+     */
+    public boolean loadEdgeList(String file) {
+        try {
+            init(WGraph_IO.readEdgeList(file));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        return false;
+    }
 
-        while (!pQueue.isEmpty()) {
-            node_info curr = pQueue.remove();
+    /**
+     * Enable the metrics of the runs of shortestPathDist, shortestPath, isConnected and copy (see WGraph_Metrics),
+     * the same metrics may be shared by many instances.
+     * @param metrics the metrics to report to, null to disable
+     */
+    public void setMetrics(WGraph_Metrics metrics) {
+        this.metrics = metrics;
+    }
 
-            for (node_info v : g.getV(curr.getKey())) {
-                if (!visited.get(curr.getKey())) {
-                    double t = curr.getTag() + g.getEdge(curr.getKey(), v.getKey());
-                    if (v.getTag() > t) {
-                        v.setTag(t);
-                        v.setInfo("" + curr.getKey());
-                        pQueue.add(v);
-                    }
-                }
+    /**
+     * Return the metrics of the runs, null while they are disabled.
+     * @return WGraph_Metrics
+     */
+    public WGraph_Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Clear the counters of the engines of the current thread which the strategy may run, before a measured run
+     * (the Dijkstra engine also serves the tree cache).
+     */
+    private void clearCounters(Strategy strategy) {
+        engine().clearCounters();
+        if (strategy == Strategy.BIDIRECTIONAL) BIDIRECTIONAL_WORKSPACE.get().clearCounters();
+        SearchCounters c = counters(strategy);
+        if (c != null) c.clear();
+    }
+
+    /**
+     * Report a measured run with the counters of the engines of the current thread which the strategy may run.
+     */
+    private void record(WGraph_Metrics m, WGraph_Metrics.Operation operation, Strategy strategy, long nanos, long bytes) {
+        DijkstraEngine e = engine();
+        long settled = e.settled, relaxed = e.relaxed, pushes = e.pushes, pops = e.pops;
+        if (strategy == Strategy.BIDIRECTIONAL) {
+            BidirectionalDijkstraEngine b = BIDIRECTIONAL_WORKSPACE.get();
+            settled += b.settled;
+            relaxed += b.relaxed;
+            pushes += b.pushes;
+            pops += b.pops;
+        }
+        SearchCounters c = counters(strategy);
+        if (c != null) {
+            settled += c.settled;
+            relaxed += c.relaxed;
+            pushes += c.pushes;
+            pops += c.pops;
+        }
+        m.record(operation, settled, relaxed, pushes, pops, nanos, bytes);
+    }
+
+    /**
+     * Counters of the current thread of the preprocessed strategy, null for the Dijkstra strategies or if its
+     * engine was not created yet (a new engine starts with clear counters).
+     */
+    private SearchCounters counters(Strategy strategy) {
+        switch (strategy) {
+            case ALT: {
+                WGraph_ALT index = this.alt;
+                return index == null ? null : index.counters();
+            }
+            case CH: {
+                WGraph_CH index = this.ch;
+                return index == null ? null : index.counters();
+            }
+            case DELTA_STEPPING: {
+                WGraph_DeltaStepping engine = this.deltaStepping;
+                return engine == null ? null : engine.counters();
             }
-            visited.put(curr.getKey(), true);
+            default:
+                return null;
         }
+    }
 
+    /**
+     * The workspace of the current thread.
+     */
+    private static DijkstraEngine engine() {
+        return WORKSPACE.get();
     }
 }
@@ -0,0 +1,736 @@
+package ex1.src;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The WGraph_CH class is a Contraction Hierarchies index of a weighted undirected graph:
+ * - Preprocessing contracts the vertices one by one, in the order of their priority (2 * edge difference
+ *   + number of contracted neighbors + level in the hierarchy, updated lazily). When a vertex v is contracted,
+ *   a shortcut u-w is added for every pair of its neighbors unless a local witness search finds a path
+ *   u..w, avoiding v, which is not longer than u-v-w. Every shortcut remembers the two edges it replaces.
+ * - A query is a bidirectional Dijkstra which only relaxes "upward" edges (to vertices of higher rank),
+ *   it settles a tiny part of the graph. The shortcuts of the path are unpacked recursively, so
+ *   shortestPath returns the real nodes of the graph.
+ * - The index keeps the getMC() of the graph it was built from (rebuilt on the next query once the graph
+ *   was changed), and can be saved next to the graph and loaded again (see save / load), the file keeps a
+ *   checksum of the keys, edges and weights of the graph, so it is not loaded for another graph, and a CRC32
+ *   of its own content, so a damaged index is not loaded either.
+ *
+ * Queries may run concurrently from many threads, every thread has its own workspace.
+ *
+ * @see weighted_graph
+ */
+
+public class WGraph_CH {
+
+    private static final int ARITY = 4;
+    /**
+     * Maximal number of vertices a witness search may settle - when only estimating the priority of a vertex,
+     * and when contracting it (a search which stops early only adds a shortcut which may be redundant).
+     */
+    private static final int SIMULATION_WITNESS_LIMIT = 50;
+    private static final int WITNESS_LIMIT = 500;
+    private static final int MAGIC = 0x57474348; // "WGCH"
+    private static final int VERSION = 3;
+
+    /**
+     * Immutable result of the preprocessing.
+     */
+    private static final class Index {
+        final int[] keys;
+        final IntIntMap indexOf;
+        final int[] rank;
+        //Edges (original and shortcuts), an edge between from and to, a shortcut replaces (from, mid) + (mid, to)
+        final int[] from, to, mid, child1, child2;
+        final double[] weight;
+        //Upward graph - the edges of every vertex to vertices of higher rank
+        final int[] upOffsets, upTarget, upEdge;
+        final int mc, nodeSize, edgeSize;
+
+        Index(int[] keys, int[] rank, int edges, int[] from, int[] to, double[] weight,
+              int[] mid, int[] child1, int[] child2, int mc, int nodeSize, int edgeSize) {
+            int n = keys.length;
+            this.keys = keys;
+            this.rank = rank;
+            this.from = Arrays.copyOf(from, edges);
+            this.to = Arrays.copyOf(to, edges);
+            this.weight = Arrays.copyOf(weight, edges);
+            this.mid = Arrays.copyOf(mid, edges);
+            this.child1 = Arrays.copyOf(child1, edges);
+            this.child2 = Arrays.copyOf(child2, edges);
+            this.mc = mc;
+            this.nodeSize = nodeSize;
+            this.edgeSize = edgeSize;
+
+            this.indexOf = new IntIntMap(n, -1);
+            for (int i = 0; i < n; i++) this.indexOf.put(keys[i], i);
+
+            this.upOffsets = new int[n + 1];
+            for (int e = 0; e < edges; e++) this.upOffsets[lower(e) + 1]++;
+            for (int i = 0; i < n; i++) this.upOffsets[i + 1] += this.upOffsets[i];
+            this.upTarget = new int[edges];
+            this.upEdge = new int[edges];
+            int[] fill = Arrays.copyOf(this.upOffsets, n);
+            for (int e = 0; e < edges; e++) {
+                int low = lower(e), pos = fill[low]++;
+                this.upTarget[pos] = low == this.from[e] ? this.to[e] : this.from[e];
+                this.upEdge[pos] = e;
+            }
+        }
+
+        private int lower(int e) {
+            return this.rank[this.from[e]] < this.rank[this.to[e]] ? this.from[e] : this.to[e];
+        }
+    }
+
+    /**
+     * One direction of the query, entries are valid only if their stamp is the current query.
+     */
+    private static final class Side {
+        IndexedDHeap heap = new IndexedDHeap(ARITY, 16);
+        int[] stamp = new int[0];
+        double[] dist = new double[0];
+        int[] parent = new int[0];
+        int[] parentEdge = new int[0];
+
+        void ensure(int n) {
+            if (this.stamp.length >= n) return;
+            this.stamp = new int[n];
+            this.dist = new double[n];
+            this.parent = new int[n];
+            this.parentEdge = new int[n];
+            this.heap = new IndexedDHeap(ARITY, n);
+        }
+
+        double distOf(int v, int q) {
+            return this.stamp[v] == q ? this.dist[v] : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static final class Workspace {
+        final Side forward = new Side();
+        final Side backward = new Side();
+        int query;
+        double mu;
+        int meet;
+        final SearchCounters counters = new SearchCounters();
+    }
+
+    private final weighted_graph g;
+    private volatile Index index;
+    private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Constructor - the preprocessing runs on the first query (or on rebuild()).
+     * @param g graph of the queries
+     */
+    public WGraph_CH(weighted_graph g) {
+        this.g = g;
+    }
+
+    private WGraph_CH(weighted_graph g, Index index) {
+        this.g = g;
+        this.index = index;
+    }
+
+    /**
+     * Return the graph of the queries.
+     * @return weighted_graph
+     */
+    public weighted_graph getGraph() {
+        return this.g;
+    }
+
+    /**
+     * true iff the index was built and the graph was not changed since.
+     * @return boolean
+     */
+    public boolean isValid() {
+        Index i = this.index;
+        return i != null && i.mc == this.g.getMC();
+    }
+
+    /**
+     * Number of shortcuts added by the preprocessing (builds the index if needed).
+     * @return int
+     */
+    public int shortcutCount() {
+        Index i = current();
+        int count = 0;
+        for (int c : i.child1) if (c >= 0) count++;
+        return count;
+    }
+
+    /**
+     * Build the index again from the current state of the graph.
+     */
+    public synchronized void rebuild() {
+        this.index = new Builder(new WGraph_CSR(this.g)).build();
+    }
+
+    /**
+     * Counters of the queries (both directions) of the current thread since the last clear,
+     * the contraction is not counted.
+     */
+    SearchCounters counters() {
+        return this.workspace.get().counters;
+    }
+
+    private Index current() {
+        Index i = this.index;
+        if (i != null && i.mc == this.g.getMC()) return i;
+        synchronized (this) {
+            i = this.index;
+            if (i == null || i.mc != this.g.getMC()) {
+                rebuild();
+                i = this.index;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * The contraction - node ordering, witness searches and shortcuts.
+     */
+    private static final class Builder {
+        final WGraph_CSR csr;
+        final int n;
+        int edges;
+        int[] from, to, mid, child1, child2;
+        double[] weight;
+        //Edges of every vertex (both directions), including shortcuts
+        final int[][] adj;
+        final int[] adjSize;
+        final boolean[] contracted;
+        //Number of contracted neighbors, and depth in the hierarchy of every vertex
+        final int[] deleted;
+        final int[] level;
+        final int[] rank;
+
+        //Neighbors of the vertex under contraction (minimal edge per neighbor)
+        int[] nb = new int[16];
+        int[] nbEdge = new int[16];
+        double[] nbWeight = new double[16];
+        final int[] nbStamp;
+        final int[] nbPos;
+        int nbStampValue;
+
+        //Witness search workspace
+        final IndexedDHeap witnessHeap;
+        final int[] wStamp;
+        final int[] wTarget;
+        final double[] wDist;
+        int wQuery;
+
+        Builder(WGraph_CSR csr) {
+            this.csr = csr;
+            this.n = csr.nodeSize();
+            int m = Math.max(csr.edgeSize(), 16);
+            this.from = new int[m];
+            this.to = new int[m];
+            this.mid = new int[m];
+            this.child1 = new int[m];
+            this.child2 = new int[m];
+            this.weight = new double[m];
+            this.adj = new int[this.n][];
+            this.adjSize = new int[this.n];
+            for (int u = 0; u < this.n; u++) {
+                this.adj[u] = new int[Math.max(csr.end(u) - csr.begin(u), 2)];
+            }
+            for (int u = 0; u < this.n; u++) {
+                for (int e = csr.begin(u), end = csr.end(u); e < end; e++) {
+                    int v = csr.target(e);
+                    if (u < v) addEdge(u, v, csr.weight(e), -1, -1, -1);
+                }
+            }
+            this.contracted = new boolean[this.n];
+            this.deleted = new int[this.n];
+            this.level = new int[this.n];
+            this.rank = new int[this.n];
+            this.nbStamp = new int[this.n];
+            this.nbPos = new int[this.n];
+            this.witnessHeap = new IndexedDHeap(ARITY, this.n);
+            this.wStamp = new int[this.n];
+            this.wTarget = new int[this.n];
+            this.wDist = new double[this.n];
+        }
+
+        void addEdge(int u, int v, double w, int m, int c1, int c2) {
+            if (this.edges == this.from.length) {
+                int capacity = this.edges * 2;
+                this.from = Arrays.copyOf(this.from, capacity);
+                this.to = Arrays.copyOf(this.to, capacity);
+                this.mid = Arrays.copyOf(this.mid, capacity);
+                this.child1 = Arrays.copyOf(this.child1, capacity);
+                this.child2 = Arrays.copyOf(this.child2, capacity);
+                this.weight = Arrays.copyOf(this.weight, capacity);
+            }
+            int e = this.edges++;
+            this.from[e] = u;
+            this.to[e] = v;
+            this.weight[e] = w;
+            this.mid[e] = m;
+            this.child1[e] = c1;
+            this.child2[e] = c2;
+            addAdj(u, e);
+            addAdj(v, e);
+        }
+
+        void addAdj(int u, int e) {
+            if (this.adjSize[u] == this.adj[u].length) {
+                this.adj[u] = Arrays.copyOf(this.adj[u], this.adj[u].length * 2);
+            }
+            this.adj[u][this.adjSize[u]++] = e;
+        }
+
+        /**
+         * Remove from the edges of u the edges to the contracted vertex v.
+         */
+        void dropEdgesTo(int u, int v) {
+            int[] list = this.adj[u];
+            int size = 0;
+            for (int i = 0; i < this.adjSize[u]; i++) {
+                int e = list[i];
+                if (this.from[e] != v && this.to[e] != v) list[size++] = e;
+            }
+            this.adjSize[u] = size;
+        }
+
+        /**
+         * Collect the uncontracted neighbors of v with the lightest edge to each of them.
+         * @return the number of neighbors
+         */
+        int neighbors(int v) {
+            int stamp = ++this.nbStampValue;
+            int count = 0;
+            for (int i = 0; i < this.adjSize[v]; i++) {
+                int e = this.adj[v][i];
+                int u = this.from[e] == v ? this.to[e] : this.from[e];
+                if (this.contracted[u]) continue;
+                if (this.nbStamp[u] == stamp) {
+                    int p = this.nbPos[u];
+                    if (this.weight[e] < this.nbWeight[p]) {
+                        this.nbWeight[p] = this.weight[e];
+                        this.nbEdge[p] = e;
+                    }
+                    continue;
+                }
+                if (count == this.nb.length) {
+                    this.nb = Arrays.copyOf(this.nb, count * 2);
+                    this.nbEdge = Arrays.copyOf(this.nbEdge, count * 2);
+                    this.nbWeight = Arrays.copyOf(this.nbWeight, count * 2);
+                }
+                this.nbStamp[u] = stamp;
+                this.nbPos[u] = count;
+                this.nb[count] = u;
+                this.nbEdge[count] = e;
+                this.nbWeight[count] = this.weight[e];
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Local Dijkstra from src which avoids the vertex skip (and the contracted vertices), until the
+         * targets nb[from..count) are settled, up to the distance limit or maxSettled settled vertices.
+         */
+        void witness(int src, int skip, double limit, int maxSettled, int[] nb, int from, int count) {
+            int q = ++this.wQuery;
+            int remaining = 0;
+            for (int j = from; j < count; j++) {
+                if (this.wTarget[nb[j]] != q) remaining++;
+                this.wTarget[nb[j]] = q;
+            }
+            IndexedDHeap heap = this.witnessHeap;
+            heap.clear();
+            this.wStamp[src] = q;
+            this.wDist[src] = 0;
+            heap.push(src, 0, src);
+            int settled = 0;
+            while (!heap.isEmpty() && settled++ < maxSettled) {
+                if (heap.peekPriority() > limit) break;
+                int u = heap.pop();
+                if (this.wTarget[u] == q && --remaining == 0) break;
+                double du = this.wDist[u];
+                for (int i = 0; i < this.adjSize[u]; i++) {
+                    int e = this.adj[u][i];
+                    int v = this.from[e] == u ? this.to[e] : this.from[e];
+                    if (v == skip || this.contracted[v]) continue;
+                    double t = du + this.weight[e];
+                    if (this.wStamp[v] != q) {
+                        this.wStamp[v] = q;
+                        this.wDist[v] = Double.POSITIVE_INFINITY;
+                    }
+                    if (t < this.wDist[v]) {
+                        this.wDist[v] = t;
+                        heap.pushOrDecrease(v, t, v);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Contract v (or only count the shortcuts if simulate).
+         * @return number of shortcuts
+         */
+        int contract(int v, boolean simulate) {
+            int count = neighbors(v);
+            int[] nb = Arrays.copyOf(this.nb, count);
+            int[] nbEdge = Arrays.copyOf(this.nbEdge, count);
+            double[] nbWeight = Arrays.copyOf(this.nbWeight, count);
+            //maxAfter[i] - the heaviest edge of the neighbors after i
+            double[] maxAfter = new double[count];
+            for (int i = count - 2; i >= 0; i--) maxAfter[i] = Math.max(maxAfter[i + 1], nbWeight[i + 1]);
+
+            int shortcuts = 0;
+            for (int i = 0; i + 1 < count; i++) {
+                witness(nb[i], v, nbWeight[i] + maxAfter[i], simulate ? SIMULATION_WITNESS_LIMIT : WITNESS_LIMIT,
+                        nb, i + 1, count);
+                int q = this.wQuery;
+                for (int j = i + 1; j < count; j++) {
+                    double through = nbWeight[i] + nbWeight[j];
+                    double other = this.wStamp[nb[j]] == q ? this.wDist[nb[j]] : Double.POSITIVE_INFINITY;
+                    if (other <= through) continue;
+                    shortcuts++;
+                    if (!simulate) {
+                        //(nb[i], v) + (v, nb[j])
+                        addEdge(nb[i], nb[j], through, v, nbEdge[i], nbEdge[j]);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        double priority(int v) {
+            int degree = neighbors(v);
+            return 2 * (contract(v, true) - degree) + this.deleted[v] + this.level[v];
+        }
+
+        Index build() {
+            IndexedDHeap queue = new IndexedDHeap(ARITY, this.n);
+            for (int v = 0; v < this.n; v++) {
+                queue.push(v, priority(v), v);
+            }
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.pop();
+                //Lazy update - contract v only if it is still the minimum
+                double p = priority(v);
+                if (!queue.isEmpty() && p > queue.peekPriority()) {
+                    queue.push(v, p, v);
+                    continue;
+                }
+                contract(v, false);
+                this.contracted[v] = true;
+                this.rank[v] = order++;
+
+                int count = neighbors(v);
+                int[] nb = Arrays.copyOf(this.nb, count);
+                for (int u : nb) {
+                    dropEdgesTo(u, v);
+                }
+                for (int u : nb) {
+                    this.deleted[u]++;
+                    this.level[u] = Math.max(this.level[u], this.level[v] + 1);
+                    queue.update(u, priority(u));
+                }
+                this.adj[v] = null;
+                this.adjSize[v] = 0;
+            }
+            int[] keys = new int[this.n];
+            for (int i = 0; i < this.n; i++) keys[i] = this.csr.keyAt(i);
+            return new Index(keys, this.rank, this.edges, this.from, this.to, this.weight,
+                    this.mid, this.child1, this.child2, this.csr.getMC(), this.csr.nodeSize(), this.csr.edgeSize());
+        }
+    }
+
+    /**
+     * Bidirectional upward search between the vertices of dense index s and t.
+     * @return the workspace with the result (mu = infinity if there is no path)
+     */
+    private Workspace search(Index index, int s, int t) {
+        Workspace w = this.workspace.get();
+        int n = index.keys.length;
+        w.forward.ensure(n);
+        w.backward.ensure(n);
+        if (++w.query == 0) {
+            Arrays.fill(w.forward.stamp, 0);
+            Arrays.fill(w.backward.stamp, 0);
+            w.query = 1;
+        }
+        int q = w.query;
+        w.mu = Double.POSITIVE_INFINITY;
+        w.meet = -1;
+        start(w.forward, s, q);
+        start(w.backward, t, q);
+        w.counters.pushes += 2;
+
+        while (true) {
+            boolean f = !w.forward.heap.isEmpty() && w.forward.heap.peekPriority() < w.mu;
+            boolean b = !w.backward.heap.isEmpty() && w.backward.heap.peekPriority() < w.mu;
+            if (!f && !b) break;
+            if (f && (!b || w.forward.heap.peekPriority() <= w.backward.heap.peekPriority())) {
+                step(index, w, w.forward, w.backward, q);
+            } else {
+                step(index, w, w.backward, w.forward, q);
+            }
+        }
+        return w;
+    }
+
+    private static void start(Side side, int v, int q) {
+        side.heap.clear();
+        side.stamp[v] = q;
+        side.dist[v] = 0;
+        side.parent[v] = -1;
+        side.parentEdge[v] = -1;
+        side.heap.push(v, 0, v);
+    }
+
+    private static void step(Index index, Workspace w, Side side, Side other, int q) {
+        int u = side.heap.pop();
+        SearchCounters c = w.counters;
+        c.pops++;
+        c.settled++;
+        double du = side.dist[u];
+        double through = du + other.distOf(u, q);
+        if (through < w.mu) {
+            w.mu = through;
+            w.meet = u;
+        }
+        for (int i = index.upOffsets[u], end = index.upOffsets[u + 1]; i < end; i++) {
+            int v = index.upTarget[i];
+            int e = index.upEdge[i];
+            double t = du + index.weight[e];
+            c.relaxed++;
+            if (side.stamp[v] != q) {
+                side.stamp[v] = q;
+                side.dist[v] = Double.POSITIVE_INFINITY;
+            }
+            if (t < side.dist[v]) {
+                if (side.dist[v] == Double.POSITIVE_INFINITY) c.pushes++;
+                side.dist[v] = t;
+                side.parent[v] = u;
+                side.parentEdge[v] = e;
+                side.heap.pushOrDecrease(v, t, v);
+            }
+        }
+    }
+
+    /**
+     * Append to out the vertices of the edge e after the vertex a (a is one of its ends), unpacking shortcuts.
+     */
+    private static void unpack(Index index, int e, int a, List<Integer> out) {
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{e, a});
+        while (!stack.isEmpty()) {
+            int[] top = stack.pop();
+            int edge = top[0], start = top[1];
+            if (index.child1[edge] < 0) {
+                out.add(index.from[edge] == start ? index.to[edge] : index.from[edge]);
+                continue;
+            }
+            int m = index.mid[edge];
+            //child1 is (from, mid), child2 is (mid, to)
+            if (index.from[edge] == start) {
+                stack.push(new int[]{index.child2[edge], m});
+                stack.push(new int[]{index.child1[edge], start});
+            } else {
+                stack.push(new int[]{index.child1[edge], m});
+                stack.push(new int[]{index.child2[edge], start});
+            }
+        }
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return Sum of all weights between vertices, -1 if there is no such path.
+     */
+    public double shortestPathDist(int src, int dest) {
+        Index index = current();
+        int s = index.indexOf.get(src), t = index.indexOf.get(dest);
+        if (s < 0 || t < 0) return -1;
+        Workspace w = search(index, s, t);
+        return w.mu == Double.POSITIVE_INFINITY ? -1 : w.mu;
+    }
+
+    /**
+     * returns the the shortest path between src to dest - as an ordered List of nodes of the graph.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return List of vertices, null if there is no such path.
+     */
+    public List<node_info> shortestPath(int src, int dest) {
+        Index index = current();
+        int s = index.indexOf.get(src), t = index.indexOf.get(dest);
+        if (s < 0 || t < 0) return null;
+        Workspace w = search(index, s, t);
+        if (w.mu == Double.POSITIVE_INFINITY) return null;
+
+        //Upward edges s -> meet, in order
+        List<Integer> up = new ArrayList<>();
+        for (int v = w.meet; w.forward.parent[v] >= 0; v = w.forward.parent[v]) up.add(v);
+        Collections.reverse(up);
+
+        List<Integer> dense = new ArrayList<>();
+        dense.add(s);
+        int prev = s;
+        for (int v : up) {
+            unpack(index, w.forward.parentEdge[v], prev, dense);
+            prev = v;
+        }
+        //Downward edges meet -> t
+        for (int v = w.meet; w.backward.parent[v] >= 0; v = w.backward.parent[v]) {
+            unpack(index, w.backward.parentEdge[v], v, dense);
+        }
+
+        List<node_info> path = new ArrayList<>(dense.size());
+        for (int v : dense) {
+            path.add(this.g.getNode(index.keys[v]));
+        }
+        return path;
+    }
+
+    /**
+     * Saves the index to the given file (builds it if needed).
+     * @param file - the file name (may include a relative path).
+     * @return true - iff the file was successfully saved
+     */
+    public boolean save(String file) {
+        Index i = current();
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(i.mc);
+            out.writeInt(i.nodeSize);
+            out.writeInt(i.edgeSize);
+            out.writeLong(checksum(this.g));
+            out.writeInt(i.keys.length);
+            for (int v = 0; v < i.keys.length; v++) {
+                out.writeInt(i.keys[v]);
+                out.writeInt(i.rank[v]);
+            }
+            out.writeInt(i.from.length);
+            for (int e = 0; e < i.from.length; e++) {
+                out.writeInt(i.from[e]);
+                out.writeInt(i.to[e]);
+                out.writeDouble(i.weight[e]);
+                out.writeInt(i.mid[e]);
+                out.writeInt(i.child1[e]);
+                out.writeInt(i.child2[e]);
+            }
+            //CRC32 of everything before it
+            out.writeLong(crc.getValue());
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Load an index saved by save(file) for the given graph.
+     * @param file - file name
+     * @param g - the graph the index was built from
+     * @return the index, null if the file could not be read (or is corrupt) or was built from another graph.
+     */
+    public static WGraph_CH load(String file, weighted_graph g) {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            int mc = in.readInt(), nodeSize = in.readInt(), edgeSize = in.readInt();
+            if (mc != g.getMC() || nodeSize != g.nodeSize() || edgeSize != g.edgeSize()) return null;
+            if (in.readLong() != checksum(g)) return null;
+            int n = in.readInt();
+            if (n != nodeSize) return null;
+            int[] keys = new int[n];
+            int[] rank = new int[n];
+            //The keys are the nodes of the graph, and the ranks are a permutation of 0..n-1
+            IntIntMap seen = new IntIntMap(n, -1);
+            boolean[] ranked = new boolean[n];
+            for (int v = 0; v < n; v++) {
+                keys[v] = in.readInt();
+                rank[v] = in.readInt();
+                if (g.getNode(keys[v]) == null || seen.containsKey(keys[v])) return null;
+                seen.put(keys[v], v);
+                if (rank[v] < 0 || rank[v] >= n || ranked[rank[v]]) return null;
+                ranked[rank[v]] = true;
+            }
+            int m = in.readInt();
+            //Every edge takes 28 bytes of the file
+            if (m < 0 || 28L * m > new File(file).length()) return null;
+            int[] from = new int[m], to = new int[m], mid = new int[m], child1 = new int[m], child2 = new int[m];
+            double[] weight = new double[m];
+            for (int e = 0; e < m; e++) {
+                from[e] = in.readInt();
+                to[e] = in.readInt();
+                weight[e] = in.readDouble();
+                mid[e] = in.readInt();
+                child1[e] = in.readInt();
+                child2[e] = in.readInt();
+                if (!validEdge(e, n, from, to, weight, mid, child1, child2)) return null;
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected || in.read() != -1) return null;
+            return new WGraph_CH(g, new Index(keys, rank, m, from, to, weight, mid, child1, child2, mc, nodeSize, edgeSize));
+        } catch (IOException | RuntimeException e) {
+            //A corrupt file (ranks or edges out of range)
+            return null;
+        }
+    }
+
+    /**
+     * true iff the ends of the edge e are vertices, its weight is finite and not negative, and it is either an
+     * edge of the graph (no mid and children) or a shortcut of two earlier edges through mid, of the sum of their
+     * weights - so the queries and the unpacking of the shortcuts stay in range and terminate.
+     */
+    private static boolean validEdge(int e, int n, int[] from, int[] to, double[] weight,
+                                     int[] mid, int[] child1, int[] child2) {
+        if (from[e] < 0 || from[e] >= n || to[e] < 0 || to[e] >= n || from[e] == to[e]) return false;
+        if (!(weight[e] >= 0) || weight[e] == Double.POSITIVE_INFINITY) return false;
+        if (child1[e] < 0 || child2[e] < 0) return mid[e] == -1 && child1[e] == -1 && child2[e] == -1;
+        int m = mid[e], c1 = child1[e], c2 = child2[e];
+        if (m < 0 || m >= n || c1 >= e || c2 >= e) return false;
+        //child1 is (from, mid), child2 is (mid, to)
+        if (!joins(c1, from[e], m, from, to) || !joins(c2, m, to[e], from, to)) return false;
+        return weight[e] == weight[c1] + weight[c2];
+    }
+
+    private static boolean joins(int e, int a, int b, int[] from, int[] to) {
+        return (from[e] == a && to[e] == b) || (from[e] == b && to[e] == a);
+    }
+
+    /**
+     * Checksum of the keys, edges and weights of the graph, independent of the order of the iteration.
+     */
+    static long checksum(weighted_graph g) {
+        long[] sum = {0};
+        for (node_info n : g.getV()) {
+            int key = n.getKey();
+            sum[0] += mix(key);
+            g.forEachNeighbor(key, (nei, w) -> {
+                //Every edge once
+                if (key < nei) sum[0] += mix(mix(((long) key << 32) ^ (nei & 0xffffffffL)) ^ Double.doubleToLongBits(w));
+            });
+        }
+        return sum[0];
+    }
+
+    /**
+     * 64 bit finalizer of SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,294 @@
+package ex1.src;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The WGraph_CSR class is an immutable snapshot of a weighted undirected graph stored
+ * in compressed-sparse-row form, the class contains:
+ * - Dense array of the node keys (sorted), and a primitive map from key to dense index.
+ * - offsets array - the neighbors of the node at index i are at [offsets[i], offsets[i+1]).
+ * - targets array - dense index of each neighbor, sorted inside every row.
+ * - weights array - weight of each edge, parallel to targets.
+ * Every undirected edge is stored once in each direction.
+ *
+ * The structure of the snapshot is read-only (addNode, connect, removeNode and removeEdge
+ * throw UnsupportedOperationException), the tag and info of the nodes may still be changed
+ * so the algorithms of WGraph_Algo can run on it unchanged.
+ *
+ * @see weighted_graph
+ * @see WGraph_DS#freeze()
+ */
+
+public class WGraph_CSR implements weighted_graph, Serializable {
+
+    private final int[] keys;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    /**
+     * Key of node to its dense index.
+     */
+    private final IntIntMap index;
+    private final node_info[] nodes;
+    private final Collection<node_info> nodeView;
+
+    private final int edgeSize;
+    private final int countMC;
+
+    /**
+     * Build a snapshot of the given graph.
+     * @param g graph to freeze
+     */
+    public WGraph_CSR(weighted_graph g) {
+        int n = g.nodeSize();
+        this.keys = new int[n];
+        int i = 0;
+        for (node_info x : g.getV()) {
+            this.keys[i++] = x.getKey();
+        }
+        Arrays.sort(this.keys);
+
+        this.index = new IntIntMap(n, -1);
+        this.nodes = new node_info[n];
+        this.offsets = new int[n + 1];
+        for (i = 0; i < n; i++) {
+            this.index.put(this.keys[i], i);
+            node_info src = g.getNode(this.keys[i]);
+            WGraph_DS.NodeInfo copy = new WGraph_DS.NodeInfo(this.keys[i]);
+            copy.setTag(src.getTag());
+            copy.setInfo(src.getInfo());
+            this.nodes[i] = copy;
+        }
+        //Degrees, then the rows - through forEachNeighbor, so no list is allocated per vertex
+        int[] e = new int[1];
+        neighbor_consumer count = (v, w) -> e[0]++;
+        for (i = 0; i < n; i++) {
+            e[0] = 0;
+            g.forEachNeighbor(this.keys[i], count);
+            this.offsets[i + 1] = this.offsets[i] + e[0];
+        }
+
+        this.targets = new int[this.offsets[n]];
+        this.weights = new double[this.offsets[n]];
+        neighbor_consumer fill = (v, w) -> {
+            this.targets[e[0]] = this.index.get(v);
+            this.weights[e[0]++] = w;
+        };
+        for (i = 0; i < n; i++) {
+            e[0] = this.offsets[i];
+            g.forEachNeighbor(this.keys[i], fill);
+            sortRow(this.offsets[i], this.offsets[i + 1]);
+        }
+
+        this.edgeSize = g.edgeSize();
+        this.countMC = g.getMC();
+        this.nodeView = Collections.unmodifiableList(Arrays.asList(this.nodes));
+    }
+
+    /**
+     * Sort the edges [from, to) by target index, moving the weights along.
+     */
+    private void sortRow(int from, int to) {
+        int len = to - from;
+        if (len < 2) return;
+        if (len <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int t = this.targets[i];
+                double w = this.weights[i];
+                int j = i - 1;
+                while (j >= from && this.targets[j] > t) {
+                    this.targets[j + 1] = this.targets[j];
+                    this.weights[j + 1] = this.weights[j];
+                    j--;
+                }
+                this.targets[j + 1] = t;
+                this.weights[j + 1] = w;
+            }
+            return;
+        }
+        //Pack (target, position) so a single primitive sort orders the row
+        long[] packed = new long[len];
+        double[] w = Arrays.copyOfRange(this.weights, from, to);
+        for (int i = 0; i < len; i++) {
+            packed[i] = ((long) this.targets[from + i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < len; i++) {
+            this.targets[from + i] = (int) (packed[i] >>> 32);
+            this.weights[from + i] = w[(int) packed[i]];
+        }
+    }
+
+    /**
+     * Position of the edge (i, j) in the targets array, -1 if none.
+     */
+    private int edgeAt(int i, int j) {
+        int lo = this.offsets[i], hi = this.offsets[i + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int t = this.targets[mid];
+            if (t < j) lo = mid + 1;
+            else if (t > j) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Dense access for the algorithms of this package
+
+    /**
+     * @return dense index of the key, -1 if there is no such node.
+     */
+    int indexOf(int key) {
+        return this.index.get(key);
+    }
+
+    int keyAt(int i) {
+        return this.keys[i];
+    }
+
+    node_info nodeAt(int i) {
+        return this.nodes[i];
+    }
+
+    int begin(int i) {
+        return this.offsets[i];
+    }
+
+    int end(int i) {
+        return this.offsets[i + 1];
+    }
+
+    int target(int e) {
+        return this.targets[e];
+    }
+
+    double weight(int e) {
+        return this.weights[e];
+    }
+
+    /**
+     * return the node_data by the node_id,
+     * @param key - the node_id
+     * @return the node_data by the node_id, null if none.
+     */
+    @Override
+    public node_info getNode(int key) {
+        int i = this.index.get(key);
+        return i < 0 ? null : this.nodes[i];
+    }
+
+    /**
+     * return true if (if and only if) there is an edge between node1 and node2.
+     * Note: this method run in O(log k) time, k - being the degree of node1.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @return true - There is a edge between 2 vertices.
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        int i = this.index.get(node1), j = this.index.get(node2);
+        return i >= 0 && j >= 0 && edgeAt(i, j) >= 0;
+    }
+
+    /**
+     * return the weight if the edge (node1, node1).
+     * Note: this method run in O(log k) time, k - being the degree of node1.
+     * @param node1 key of node1
+     * @param node2 key of node2
+     * @return If there is a edge = returns the weight of the edge, If no edge exists = returns -1.
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        int i = this.index.get(node1), j = this.index.get(node2);
+        if (i < 0 || j < 0) return -1;
+        int e = edgeAt(i, j);
+        return e < 0 ? -1 : this.weights[e];
+    }
+
+    @Override
+    public void addNode(int key) {
+        throw new UnsupportedOperationException("WGraph_CSR is read-only");
+    }
+
+    @Override
+    public void connect(int node1, int node2, double w) {
+        throw new UnsupportedOperationException("WGraph_CSR is read-only");
+    }
+
+    /**
+     * Unmodifiable view of all the nodes in the graph, ordered by key.
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        return this.nodeView;
+    }
+
+    /**
+     * Unmodifiable view of the neighbors of node_id (no copy of the row is made).
+     * @return Collection<node_info>, empty if there is no such node.
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        int i = this.index.get(node_id);
+        if (i < 0) return Collections.emptyList();
+        final int from = this.offsets[i], size = this.offsets[i + 1] - from;
+        return new AbstractList<node_info>() {
+            @Override
+            public node_info get(int k) {
+                if (k < 0 || k >= size) throw new IndexOutOfBoundsException("Index: " + k);
+                return nodes[targets[from + k]];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Visit all the neighbors of node_id straight from its row, ordered by key.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    @Override
+    public void forEachNeighbor(int node_id, neighbor_consumer action) {
+        int i = this.index.get(node_id);
+        if (i < 0) return;
+        for (int e = this.offsets[i], end = this.offsets[i + 1]; e < end; e++) {
+            action.accept(this.keys[this.targets[e]], this.weights[e]);
+        }
+    }
+
+    @Override
+    public node_info removeNode(int key) {
+        throw new UnsupportedOperationException("WGraph_CSR is read-only");
+    }
+
+    @Override
+    public void removeEdge(int node1, int node2) {
+        throw new UnsupportedOperationException("WGraph_CSR is read-only");
+    }
+
+    @Override
+    public int nodeSize() {
+        return this.keys.length;
+    }
+
+    @Override
+    public int edgeSize() {
+        return this.edgeSize;
+    }
+
+    /**
+     * return the Mode Count of the source graph at the moment it was frozen.
+     * @return int variable
+     */
+    @Override
+    public int getMC() {
+        return this.countMC;
+    }
+}
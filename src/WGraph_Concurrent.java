@@ -0,0 +1,408 @@
+package ex1.src;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The WGraph_Concurrent class is a thread-safe weighted undirected graph, for graphs which are changed
+ * by some threads while other threads query them. The class contains:
+ * - ConcurrentHashMap from the key of every vertex to the vertex.
+ * - The neighbors of every vertex as an immutable adjacency (sorted keys array and weights array) in a volatile
+ *   field - a change of the edges of a vertex publishes a new adjacency (copy-on-write of the row).
+ * - Striped locks of the vertices: a change locks the stripes of the vertices it changes (in the order of the
+ *   stripes, so there are no deadlocks), changes of unrelated vertices run in parallel.
+ * - Atomic counters of the nodes, the edges and the Mode Count.
+ *
+ * Reads (getNode, hasEdge, getEdge, getV) take no lock - they see the last published adjacency of a vertex,
+ * getEdge and hasEdge run in O(log k) (binary search), k - the degree of the vertex.
+ * The Mode Count follows the rules of WGraph_DS, so equal sequences of changes give equal graphs.
+ *
+ * @see weighted_graph
+ * @see WGraph_DS
+ */
+
+public class WGraph_Concurrent implements weighted_graph, Serializable {
+
+    /**
+     * Immutable neighbors of a vertex, sorted by key.
+     */
+    private static final class Adjacency implements Serializable {
+        static final Adjacency EMPTY = new Adjacency(new int[0], new double[0]);
+
+        final int[] keys;
+        final double[] weights;
+
+        Adjacency(int[] keys, double[] weights) {
+            this.keys = keys;
+            this.weights = weights;
+        }
+
+        /**
+         * Position of the key, or (-(insertion point) - 1) if it is not a neighbor.
+         */
+        int indexOf(int key) {
+            return Arrays.binarySearch(this.keys, key);
+        }
+
+        /**
+         * A copy with the edge to key set to w (added or changed).
+         */
+        Adjacency with(int key, double w) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                double[] weights = this.weights.clone();
+                weights[i] = w;
+                return new Adjacency(this.keys, weights);
+            }
+            i = -i - 1;
+            int n = this.keys.length;
+            int[] keys = new int[n + 1];
+            double[] weights = new double[n + 1];
+            System.arraycopy(this.keys, 0, keys, 0, i);
+            System.arraycopy(this.weights, 0, weights, 0, i);
+            keys[i] = key;
+            weights[i] = w;
+            System.arraycopy(this.keys, i, keys, i + 1, n - i);
+            System.arraycopy(this.weights, i, weights, i + 1, n - i);
+            return new Adjacency(keys, weights);
+        }
+
+        /**
+         * A copy without the edge at position i.
+         */
+        Adjacency without(int i) {
+            int n = this.keys.length;
+            if (n == 1) return EMPTY;
+            int[] keys = new int[n - 1];
+            double[] weights = new double[n - 1];
+            System.arraycopy(this.keys, 0, keys, 0, i);
+            System.arraycopy(this.weights, 0, weights, 0, i);
+            System.arraycopy(this.keys, i + 1, keys, i, n - i - 1);
+            System.arraycopy(this.weights, i + 1, weights, i, n - i - 1);
+            return new Adjacency(keys, weights);
+        }
+    }
+
+    /**
+     * A vertex - the node and its published adjacency.
+     */
+    private static final class Vertex implements Serializable {
+        final WGraph_DS.NodeInfo node;
+        volatile Adjacency adj = Adjacency.EMPTY;
+        /**
+         * Set (under the lock of the vertex) when the vertex is removed, a change which found the
+         * vertex before it was removed must not touch it.
+         */
+        volatile boolean removed;
+
+        Vertex(int key) {
+            this.node = new WGraph_DS.NodeInfo(key);
+        }
+    }
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentHashMap<Integer, Vertex> vertices;
+    private final ReentrantLock[] stripes;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicInteger edgeCount = new AtomicInteger();
+    private final AtomicInteger countMC = new AtomicInteger();
+    private transient Collection<node_info> nodeView;
+
+    public WGraph_Concurrent() {
+        this(16, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor with a pre-sized map and a given number of lock stripes.
+     * @param expectedNodes number of vertices the graph is expected to hold
+     * @param stripes number of locks (rounded up to a power of 2)
+     */
+    public WGraph_Concurrent(int expectedNodes, int stripes) {
+        if (stripes < 1) throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        this.vertices = new ConcurrentHashMap<>(Math.max(expectedNodes, 16));
+        int n = Integer.highestOneBit(stripes);
+        if (n < stripes) n <<= 1;
+        this.stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) this.stripes[i] = new ReentrantLock();
+    }
+
+    private int stripeOf(int key) {
+        return IntIntMap.slotOf(key, this.stripes.length - 1);
+    }
+
+    /**
+     * Lock the stripes of two keys, in the order of the stripes.
+     */
+    private void lock(int key1, int key2) {
+        int a = stripeOf(key1), b = stripeOf(key2);
+        this.stripes[Math.min(a, b)].lock();
+        if (a != b) this.stripes[Math.max(a, b)].lock();
+    }
+
+    private void unlock(int key1, int key2) {
+        int a = stripeOf(key1), b = stripeOf(key2);
+        if (a != b) this.stripes[Math.max(a, b)].unlock();
+        this.stripes[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * The vertex of the key, null if there is none (or it is being removed).
+     */
+    private Vertex vertex(int key) {
+        Vertex v = this.vertices.get(key);
+        return v == null || v.removed ? null : v;
+    }
+
+    /**
+     * return the node_data by the node_id,
+     * @param key - the node_id
+     * @return the node_data by the node_id, null if none.
+     */
+    @Override
+    public node_info getNode(int key) {
+        Vertex v = vertex(key);
+        return v == null ? null : v.node;
+    }
+
+    /**
+     * return true if (if and only if) there is an edge between node1 and node2.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @return true - There is a edge between 2 vertices.
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        Vertex v = vertex(node1);
+        return v != null && v.adj.indexOf(node2) >= 0;
+    }
+
+    /**
+     * return the weight if the edge (node1, node1).
+     * @param node1 key of node1
+     * @param node2 key of node2
+     * @return If there is a edge = returns the weight of the edge, If no edge exists = returns -1.
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        Vertex v = vertex(node1);
+        if (v == null) return -1;
+        Adjacency adj = v.adj;
+        int i = adj.indexOf(node2);
+        return i < 0 ? -1 : adj.weights[i];
+    }
+
+    /**
+     * add a new node to the graph with the given key.
+     * @param key - new node
+     */
+    @Override
+    public void addNode(int key) {
+        ReentrantLock lock = this.stripes[stripeOf(key)];
+        lock.lock();
+        try {
+            if (this.vertices.containsKey(key)) return;
+            this.vertices.put(key, new Vertex(key));
+            this.nodeCount.incrementAndGet();
+            this.countMC.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Connect an edge between node1 and node2 (or change the weight of the edge).
+     * @param node1 - node_id1
+     * @param node2 - node_id2
+     * @param w - weight between 2 vertices
+     */
+    @Override
+    public void connect(int node1, int node2, double w) {
+        if (w < 0 || node1 == node2) return;
+        lock(node1, node2);
+        try {
+            Vertex one = vertex(node1), two = vertex(node2);
+            //Not exists
+            if (one == null || two == null) return;
+            Adjacency adj = one.adj;
+            int i = adj.indexOf(node2);
+            //Edge exists with same weight.
+            if (i >= 0 && adj.weights[i] == w) return;
+            one.adj = adj.with(node2, w);
+            two.adj = two.adj.with(node1, w);
+            if (i < 0) this.edgeCount.incrementAndGet();
+            this.countMC.incrementAndGet();
+        } finally {
+            unlock(node1, node2);
+        }
+    }
+
+    /**
+     * This method return a pointer (shallow copy) for the
+     * collection representing all the nodes in the graph (weakly consistent while the graph is changed).
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        if (this.nodeView == null) {
+            this.nodeView = new AbstractCollection<node_info>() {
+                @Override
+                public Iterator<node_info> iterator() {
+                    Iterator<Vertex> it = WGraph_Concurrent.this.vertices.values().iterator();
+                    return new Iterator<node_info>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public node_info next() {
+                            return it.next().node;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return WGraph_Concurrent.this.nodeCount.get();
+                }
+            };
+        }
+        return this.nodeView;
+    }
+
+    /**
+     * This method returns a Collection containing all the nodes connected to node_id,
+     * from the last published neighbors of the node.
+     * @return Collection<node_data>, empty if there is no such node.
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        Vertex v = vertex(node_id);
+        if (v == null) return new ArrayList<>();
+        Adjacency adj = v.adj;
+        Collection<node_info> getNei = new ArrayList<>(adj.keys.length);
+        for (int key : adj.keys) {
+            Vertex u = this.vertices.get(key);
+            if (u != null) getNei.add(u.node);
+        }
+        return getNei;
+    }
+
+    /**
+     * Visit all the neighbors of node_id from the last published neighbors of the node, ordered by key.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    @Override
+    public void forEachNeighbor(int node_id, neighbor_consumer action) {
+        Vertex v = vertex(node_id);
+        if (v == null) return;
+        Adjacency adj = v.adj;
+        for (int i = 0; i < adj.keys.length; i++) {
+            action.accept(adj.keys[i], adj.weights[i]);
+        }
+    }
+
+    /**
+     * Delete the node (with the given ID) from the graph -
+     * and removes all edges which starts or ends at this node.
+     * The stripes of the node and of all its neighbors are locked together.
+     * @return the data of the removed node (null if none).
+     * @param key
+     */
+    @Override
+    public node_info removeNode(int key) {
+        while (true) {
+            Vertex v = vertex(key);
+            if (v == null) return null;
+            //Stripes of the node and of its neighbors, in order
+            Adjacency seen = v.adj;
+            boolean[] held = new boolean[this.stripes.length];
+            held[stripeOf(key)] = true;
+            for (int k : seen.keys) held[stripeOf(k)] = true;
+            for (int s = 0; s < held.length; s++) {
+                if (held[s]) this.stripes[s].lock();
+            }
+            try {
+                if (v.removed || this.vertices.get(key) != v) continue;
+                //While the stripe of the node is held no edge can be added to it, but one may have been added
+                //before - then the stripe of the new neighbor may be missing, and the locking is repeated
+                Adjacency adj = v.adj;
+                boolean covered = true;
+                for (int k : adj.keys) covered &= held[stripeOf(k)];
+                if (!covered) continue;
+
+                v.removed = true;
+                for (int k : adj.keys) {
+                    Vertex u = this.vertices.get(k);
+                    u.adj = u.adj.without(u.adj.indexOf(key));
+                    this.edgeCount.decrementAndGet();
+                    this.countMC.incrementAndGet();
+                }
+                v.adj = Adjacency.EMPTY;
+                this.vertices.remove(key);
+                this.nodeCount.decrementAndGet();
+                this.countMC.incrementAndGet();
+                return v.node;
+            } finally {
+                for (int s = held.length - 1; s >= 0; s--) {
+                    if (held[s]) this.stripes[s].unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the edge from the graph,
+     * Removing node2 from node1's neighbors and deleting node1 from node2's neighbors.
+     * @param node1 key of node1
+     * @param node2 key of node2
+     */
+    @Override
+    public void removeEdge(int node1, int node2) {
+        if (node1 == node2) return;
+        lock(node1, node2);
+        try {
+            Vertex one = vertex(node1), two = vertex(node2);
+            if (one == null || two == null) return;
+            int i = one.adj.indexOf(node2);
+            if (i < 0) return;
+            one.adj = one.adj.without(i);
+            two.adj = two.adj.without(two.adj.indexOf(node1));
+            this.edgeCount.decrementAndGet();
+            this.countMC.incrementAndGet();
+        } finally {
+            unlock(node1, node2);
+        }
+    }
+
+    /** return the number of vertices (nodes) in the graph.
+     * @return int variable
+     */
+    @Override
+    public int nodeSize() {
+        return this.nodeCount.get();
+    }
+
+    /**
+     * return the number of edges (unidirectional graph).
+     * @return int variable
+     */
+    @Override
+    public int edgeSize() {
+        return this.edgeCount.get();
+    }
+
+    /**
+     * return the Mode Count - for testing changes in the graph.
+     * @return int variable
+     */
+    @Override
+    public int getMC() {
+        return this.countMC.get();
+    }
+}
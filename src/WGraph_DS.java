@@ -2,16 +2,24 @@ package ex1.src;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * The WGraph_DS class is used to create a weighted unintentional graph and operations on the graph,
  * the class contains:
  * - An internal class of nodeInfo which represents a vertex in the graph.
- * - Collection of all vertices (nodeInfo) using HashMap data structure.
- * - Collection of all vertex neighbors, using a HashMap data structure within HashMap,
- *   by key of nodeInfo has access to its list of neighbors (the internal Hashmap).
+ * - Collection of all vertices (nodeInfo) stored in slots, with a primitive open-addressing
+ *   map (IntIntMap) from the key of the vertex to its slot.
+ * - Collection of all vertex neighbors, a primitive open-addressing map (IntDoubleMap) per slot
+ *   from the key of the neighbor to the weight of the edge - no boxing and no entry objects.
  * - Counts the number of actions within the graph.
  * - Number of sides in the graph.
+ * - Optional dynamic connectivity index (see enableConnectivityIndex).
+ * - Copy-on-write snapshots (see snapshot), the changes of the graph are synchronized.
+ * - Bulk copies of the structures (see copy), and lazy copies which share the neighbors until they change
+ *   (see lazyCopy).
+ * - Builder of a whole graph from batches of nodes and edges (see Builder).
+ * - Listeners of the changes (see addListener).
  *
  * @author Lior Atiya
  * @see weighted_graph
@@ -21,8 +29,9 @@ public class WGraph_DS implements weighted_graph, Serializable {
 
     /**
      * Internal class for creating a vertex in a graph
+     * (package-private so other graph representations of this package can share it).
      */
-    private static class NodeInfo implements node_info, Serializable {
+    static class NodeInfo implements node_info, Serializable {
 
         /**
          * ID of node
@@ -72,13 +81,26 @@ public class WGraph_DS implements weighted_graph, Serializable {
     }
 
     /**
-     * Collection of all vertices (node_info).
+     * Key of each vertex to its slot in the arrays below (-1 if none).
      */
-    private final HashMap<Integer, node_info> nodes;
+    private IntIntMap slots;
     /**
-     * Collection of neighbors of each vertex and and weight of edges.
+     * Vertex (node_info) of each slot, null for a free slot.
      */
-    private final HashMap<Integer, HashMap<Integer,Double>> neighbors;
+    private NodeInfo[] nodes;
+    /**
+     * Neighbors of each vertex and weight of edges (neighbor key -> weight), by slot.
+     */
+    private IntDoubleMap[] neighbors;
+    /**
+     * Slots released by removeNode, reused by addNode.
+     */
+    private int[] freeSlots;
+    private int freeCount;
+    /**
+     * Number of slots ever used (all the slots from this index on are free).
+     */
+    private int slotLimit;
 
     /**
      * Counts to the number of actions in the graph and the number of edges.
@@ -86,27 +108,437 @@ public class WGraph_DS implements weighted_graph, Serializable {
     private int countMC;
     private int edgeSize;
 
+    private transient Collection<node_info> nodeView;
+    /**
+     * Optional dynamic connectivity index, null while it is disabled.
+     */
+    private volatile ConnectivityIndex connectivity;
+    /**
+     * Versions shared with open snapshots, null while there is no open snapshot (then all the changes
+     * are done in place).
+     */
+    private transient Versions versions;
+    /**
+     * Slots whose neighbors map is shared with another graph (see lazyCopy), copied on their first change,
+     * null if there is none.
+     */
+    private transient boolean[] borrowed;
+    /**
+     * Listeners of the changes (see addListener), null if there is none.
+     */
+    private transient graph_listener[] listeners;
+
+    /**
+     * Number of slots from which copy() clones the neighbors maps in parallel.
+     */
+    private static final int PARALLEL_COPY = 1 << 15;
+
+    /**
+     * Copy-on-write state of the snapshots (see snapshot()). The structures of the graph are stamped with the
+     * epoch in which they were created, a structure is shared with the open snapshots iff its epoch is not
+     * later than the latest open snapshot - and then it is copied before its first change:
+     * - The top level (key -> slot map, nodes / neighbors / free slots arrays) - copied once after a snapshot,
+     *   O(V) charged to the first change.
+     * - The neighbors map of every slot - copied on the first change of the edges of the vertex.
+     */
+    private static final class Versions {
+        /**
+         * Epoch of the current state, the version of the next snapshot.
+         */
+        int epoch;
+        int topEpoch;
+        int[] mapEpoch = new int[0];
+        /**
+         * Open snapshots by version (count), and the latest of them.
+         */
+        final TreeMap<Integer, Integer> open = new TreeMap<>();
+        int latestOpen = -1;
+
+        /**
+         * Epoch of the neighbors map of the slot - slots above the array were created after the last snapshot.
+         */
+        int mapEpoch(int slot) {
+            return slot < this.mapEpoch.length ? this.mapEpoch[slot] : this.epoch;
+        }
+
+        void created(int slot) {
+            if (slot < this.mapEpoch.length) this.mapEpoch[slot] = this.epoch;
+        }
+    }
 
     public WGraph_DS() {
-        this.nodes = new HashMap<>();
-        this.neighbors = new HashMap<>();
+        this(16);
+    }
+
+    /**
+     * Constructor with pre-sized tables.
+     * @param expectedNodes number of vertices the graph is expected to hold
+     */
+    public WGraph_DS(int expectedNodes) {
+        int capacity = Math.max(expectedNodes, 1);
+        this.slots = new IntIntMap(capacity, -1);
+        this.nodes = new NodeInfo[capacity];
+        this.neighbors = new IntDoubleMap[capacity];
+        this.freeSlots = new int[0];
+        this.freeCount = 0;
+        this.slotLimit = 0;
         this.countMC = 0;
         this.edgeSize = 0;
     }
 
+    /**
+     * Bulk constructor of the loaders (package-private): the vertex i has the key keys[i], and its neighbors are
+     * keys[targets[e]] with the weights weights[e] for e in [offsets[i], offsets[i+1]) - every edge is in both rows.
+     * The arrays are trusted (distinct keys, symmetric rows), the Mode Count is restored to mc.
+     */
+    WGraph_DS(int[] keys, int[] offsets, int[] targets, double[] weights, int mc) {
+        this(keys.length);
+        //The vertex i gets the slot i
+        for (int i = 0; i < keys.length; i++) {
+            this.nodes[i] = new NodeInfo(keys[i]);
+            this.slots.put(keys[i], i);
+        }
+        this.slotLimit = keys.length;
+        //The neighbors maps are filled in parallel (partitioned by vertex) for large graphs
+        IntStream range = IntStream.range(0, keys.length);
+        if (keys.length >= PARALLEL_COPY) range = range.parallel();
+        range.forEach(i -> {
+            IntDoubleMap nei = new IntDoubleMap(offsets[i + 1] - offsets[i], -1);
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                nei.put(keys[targets[e]], weights[e]);
+            }
+            this.neighbors[i] = nei;
+        });
+        //A repeated edge is counted once (the last weight is kept)
+        long halfEdges = 0;
+        for (int i = 0; i < keys.length; i++) {
+            halfEdges += this.neighbors[i].size();
+        }
+        this.edgeSize = (int) (halfEdges / 2);
+        this.countMC = mc;
+    }
+
+    /**
+     * Builder of a whole graph in one pass, instead of addNode / connect per node and edge:
+     * the nodes and the edges are collected into primitive arrays (pre-sized from the expected counts),
+     * the half edges are grouped by vertex with a counting sort, and the neighbors maps are created at their
+     * final size and filled in parallel (partitioned by vertex) for large graphs.
+     * The graph is the same as adding the nodes and then connecting the edges in order: an edge to a node
+     * which was not added, an edge of a node to itself and an edge with negative weight are ignored,
+     * and the last weight of a repeated edge is kept. The Mode Count of the graph is nodes + edges.
+     * The builder is not thread safe, and it may build several graphs (every graph has its own copy).
+     */
+    public static class Builder {
+
+        private int[] keys;
+        private int nodeCount;
+        private int[] from;
+        private int[] to;
+        private double[] weights;
+        private int edgeCount;
+
+        public Builder() {
+            this(16, 16);
+        }
+
+        /**
+         * @param expectedNodes number of nodes the graph is expected to hold
+         * @param expectedEdges number of edges the graph is expected to hold
+         */
+        public Builder(int expectedNodes, int expectedEdges) {
+            this.keys = new int[Math.max(expectedNodes, 1)];
+            this.from = new int[Math.max(expectedEdges, 1)];
+            this.to = new int[this.from.length];
+            this.weights = new double[this.from.length];
+        }
+
+        /**
+         * Add a node with the given key (nothing if it was already added).
+         * @return this builder
+         */
+        public Builder addNode(int key) {
+            if (this.nodeCount == this.keys.length) this.keys = Arrays.copyOf(this.keys, this.nodeCount * 2);
+            this.keys[this.nodeCount++] = key;
+            return this;
+        }
+
+        /**
+         * Add a batch of nodes.
+         * @return this builder
+         */
+        public Builder addNodes(int[] keys) {
+            if (this.nodeCount + keys.length > this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, Math.max(this.nodeCount + keys.length, this.keys.length * 2));
+            }
+            System.arraycopy(keys, 0, this.keys, this.nodeCount, keys.length);
+            this.nodeCount += keys.length;
+            return this;
+        }
+
+        /**
+         * Add an edge between node1 and node2 (as connect).
+         * @return this builder
+         */
+        public Builder connect(int node1, int node2, double w) {
+            if (this.edgeCount == this.from.length) grow(this.edgeCount * 2);
+            this.from[this.edgeCount] = node1;
+            this.to[this.edgeCount] = node2;
+            this.weights[this.edgeCount++] = w;
+            return this;
+        }
+
+        /**
+         * Add a batch of edges - the edge i is between node1[i] and node2[i] with the weight w[i].
+         * @return this builder
+         */
+        public Builder connect(int[] node1, int[] node2, double[] w) {
+            if (node1.length != node2.length || node1.length != w.length) {
+                throw new IllegalArgumentException("the edge arrays must have the same length");
+            }
+            if (this.edgeCount + node1.length > this.from.length) {
+                grow(Math.max(this.edgeCount + node1.length, this.from.length * 2));
+            }
+            System.arraycopy(node1, 0, this.from, this.edgeCount, node1.length);
+            System.arraycopy(node2, 0, this.to, this.edgeCount, node1.length);
+            System.arraycopy(w, 0, this.weights, this.edgeCount, node1.length);
+            this.edgeCount += node1.length;
+            return this;
+        }
+
+        private void grow(int capacity) {
+            this.from = Arrays.copyOf(this.from, capacity);
+            this.to = Arrays.copyOf(this.to, capacity);
+            this.weights = Arrays.copyOf(this.weights, capacity);
+        }
+
+        /**
+         * Build the graph of the nodes and the edges added so far.
+         * @return the graph
+         */
+        public WGraph_DS build() {
+            //Distinct keys, in the order they were added
+            IntIntMap index = new IntIntMap(this.nodeCount, -1);
+            int[] keys = new int[this.nodeCount];
+            int n = 0;
+            for (int i = 0; i < this.nodeCount; i++) {
+                if (index.get(this.keys[i]) < 0) {
+                    index.put(this.keys[i], n);
+                    keys[n++] = this.keys[i];
+                }
+            }
+            keys = Arrays.copyOf(keys, n);
+
+            //Dense ends of the valid edges, and the degree (half edges) of every vertex
+            int m = this.edgeCount;
+            int[] a = new int[m], b = new int[m];
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                int i = index.get(this.from[e]), j = index.get(this.to[e]);
+                if (i < 0 || j < 0 || i == j || !(this.weights[e] >= 0)) {
+                    a[e] = -1;
+                    continue;
+                }
+                a[e] = i;
+                b[e] = j;
+                offsets[i + 1]++;
+                offsets[j + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            //Counting sort of the half edges by vertex (stable - a repeated edge keeps its last weight)
+            int[] targets = new int[offsets[n]];
+            double[] weights = new double[offsets[n]];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int e = 0; e < m; e++) {
+                int i = a[e];
+                if (i < 0) continue;
+                int j = b[e];
+                targets[next[i]] = j;
+                weights[next[i]++] = this.weights[e];
+                targets[next[j]] = i;
+                weights[next[j]++] = this.weights[e];
+            }
+
+            WGraph_DS g = new WGraph_DS(keys, offsets, targets, weights, 0);
+            g.countMC = n + g.edgeSize;
+            return g;
+        }
+    }
+
+    /**
+     * Copy constructor of copy() and lazyCopy(): same slots, new vertices (with the tag and info of the
+     * other vertices), and the neighbors maps cloned - or shared if lazy.
+     */
+    private WGraph_DS(WGraph_DS other, boolean lazy) {
+        this.slots = new IntIntMap(other.slots);
+        this.nodes = new NodeInfo[other.nodes.length];
+        this.neighbors = lazy ? other.neighbors.clone() : new IntDoubleMap[other.neighbors.length];
+        this.freeSlots = other.freeSlots.clone();
+        this.freeCount = other.freeCount;
+        this.slotLimit = other.slotLimit;
+        this.countMC = other.countMC;
+        this.edgeSize = other.edgeSize;
+
+        IntStream range = IntStream.range(0, this.slotLimit);
+        if (this.slotLimit >= PARALLEL_COPY) range = range.parallel();
+        range.forEach(slot -> {
+            NodeInfo x = other.nodes[slot];
+            if (x == null) return;
+            NodeInfo copy = new NodeInfo(x.key);
+            copy.tag = x.tag;
+            copy.info = x.info;
+            this.nodes[slot] = copy;
+            if (!lazy) this.neighbors[slot] = new IntDoubleMap(other.neighbors[slot]);
+        });
+        if (lazy) {
+            this.borrowed = new boolean[this.slotLimit];
+            Arrays.fill(this.borrowed, true);
+            //The maps are shared both ways
+            if (other.borrowed == null || other.borrowed.length < this.slotLimit) {
+                other.borrowed = new boolean[this.slotLimit];
+            }
+            Arrays.fill(other.borrowed, 0, this.slotLimit, true);
+        }
+    }
+
+    /**
+     * Deep copy of the graph by cloning its structures in bulk: the tables of every vertex are copied with
+     * single array copies (in parallel for large graphs) instead of inserting the edges one by one.
+     * The copy has the same nodes (tag and info), edges and Mode Count, without the connectivity index.
+     * @return the copy
+     */
+    public synchronized WGraph_DS copy() {
+        return new WGraph_DS(this, false);
+    }
+
+    /**
+     * Lazy deep copy of the graph: only the vertices are copied, the neighbors maps are shared by the two
+     * graphs, and each of them copies the neighbors of a vertex before the first change of its edges.
+     * Good for copies which only change a small part of the graph.
+     * The copy has the same nodes (tag and info), edges and Mode Count, without the connectivity index.
+     * @return the copy
+     */
+    public synchronized WGraph_DS lazyCopy() {
+        return new WGraph_DS(this, true);
+    }
+
+    /**
+     * Neighbors map of the given key, null if there is no such vertex
+     * (package-private for the scans of the algorithms, which must not change it).
+     */
+    IntDoubleMap neighborsOf(int key) {
+        int slot = this.slots.get(key);
+        return slot < 0 ? null : this.neighbors[slot];
+    }
+
+    /**
+     * Slot of the given key, -1 if there is no such vertex.
+     */
+    int slotOf(int key) {
+        return this.slots.get(key);
+    }
+
+    /**
+     * Number of slots ever used, the slots of the vertices are below it.
+     */
+    int slotLimit() {
+        return this.slotLimit;
+    }
+
+    /**
+     * Vertex of the given slot, null for a free slot.
+     */
+    NodeInfo nodeAt(int slot) {
+        return this.nodes[slot];
+    }
+
+    /**
+     * Neighbors map of the vertex of the given slot.
+     */
+    IntDoubleMap neighborsAt(int slot) {
+        return this.neighbors[slot];
+    }
+
+    /**
+     * Copy the top level structures if they are shared with an open snapshot - O(V), once per snapshot.
+     */
+    private void ownTop() {
+        Versions v = this.versions;
+        if (v == null || v.topEpoch > v.latestOpen) return;
+        this.slots = new IntIntMap(this.slots);
+        this.nodes = this.nodes.clone();
+        this.neighbors = this.neighbors.clone();
+        this.freeSlots = this.freeSlots.clone();
+        v.topEpoch = v.epoch;
+    }
+
+    /**
+     * Neighbors map of the given key for a change (copied first if it is shared with an open snapshot
+     * or another graph), null if there is no such vertex.
+     */
+    private IntDoubleMap writable(int key) {
+        int slot = this.slots.get(key);
+        if (slot < 0) return null;
+        boolean shared = false;
+        if (this.borrowed != null && slot < this.borrowed.length && this.borrowed[slot]) {
+            this.borrowed[slot] = false;
+            shared = true;
+        }
+        Versions v = this.versions;
+        if (v != null) {
+            ownTop();
+            if (v.mapEpoch(slot) <= v.latestOpen) shared = true;
+        }
+        if (shared) {
+            this.neighbors[slot] = new IntDoubleMap(this.neighbors[slot]);
+            if (v != null) v.created(slot);
+        }
+        return this.neighbors[slot];
+    }
+
+    /**
+     * Take a free slot for a new vertex, growing the arrays if needed.
+     */
+    private int allocateSlot() {
+        if (this.freeCount > 0) return this.freeSlots[--this.freeCount];
+        if (this.slotLimit == this.nodes.length) {
+            int capacity = this.nodes.length + (this.nodes.length >> 1) + 1;
+            this.nodes = Arrays.copyOf(this.nodes, capacity);
+            this.neighbors = Arrays.copyOf(this.neighbors, capacity);
+        }
+        return this.slotLimit++;
+    }
+
+    private void releaseSlot(int slot) {
+        if (this.borrowed != null && slot < this.borrowed.length) this.borrowed[slot] = false;
+        this.nodes[slot] = null;
+        this.neighbors[slot] = null;
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(8, this.freeCount * 2));
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
     /**
      * add a new node to the graph with the given key.
      * @param key - new node
      */
     @Override
-    public void addNode(int key) {
-        //If it already exists or n is null
-        if (this.nodes.containsKey(key)) return;
-
-        node_info n = new NodeInfo(key);
-        this.nodes.put(key, n);
-        this.neighbors.put(key, new HashMap<>());
+    public synchronized void addNode(int key) {
+        //If it already exists
+        if (this.slots.containsKey(key)) return;
+
+        ownTop();
+        int slot = allocateSlot();
+        if (this.versions != null) this.versions.created(slot);
+        this.nodes[slot] = new NodeInfo(key);
+        this.neighbors[slot] = new IntDoubleMap(-1);
+        this.slots.put(key, slot);
         this.countMC++;
+        if (this.connectivity != null) this.connectivity.nodeAdded(slot);
+        if (this.listeners != null) for (graph_listener l : this.listeners) l.nodeAdded(key);
     }
 
     /**
@@ -116,8 +548,8 @@ public class WGraph_DS implements weighted_graph, Serializable {
      */
     @Override
     public node_info getNode(int key) {
-        if (this.nodes.containsKey(key)) return this.nodes.get(key);
-        return null;
+        int slot = this.slots.get(key);
+        return slot < 0 ? null : this.nodes[slot];
     }
 
     /**
@@ -128,30 +560,31 @@ public class WGraph_DS implements weighted_graph, Serializable {
      * @param w - weight between 2 vertices
      */
     @Override
-    public void connect(int node1, int node2, double w) {
+    public synchronized void connect(int node1, int node2, double w) {
         if (w >= 0) {
             //Same node.
             if (node1 == node2) return;
 
-            node_info one = getNode(node1);
-            node_info two = getNode(node2);
+            IntDoubleMap one = neighborsOf(node1);
+            IntDoubleMap two = neighborsOf(node2);
             //Not exists
             if (one == null || two == null) return;
-            //Edge exists with same weight.
-            if (hasEdge(node1, node2)) {
-                if (getEdge(node1, node2) == w) {
-                } else { ////Edge exists with different weight.
-                    this.neighbors.get(node1).put(node2, w);
-                    this.neighbors.get(node2).put(node1, w);
-                    this.countMC++;
-                }
-                return;
+            if (this.versions != null || this.borrowed != null) {
+                one = writable(node1);
+                two = writable(node2);
             }
 
-            this.neighbors.get(node1).put(node2, w);
-            this.neighbors.get(node2).put(node1, w);
+            double prev = one.put(node2, w);
+            //Edge exists with same weight.
+            if (prev == w) return;
+            two.put(node1, w);
             this.countMC++;
-            this.edgeSize++;
+            //New edge (and not a different weight of an existing edge).
+            if (prev < 0) {
+                this.edgeSize++;
+                if (this.connectivity != null) this.connectivity.edgeAdded(this.slots.get(node1), this.slots.get(node2));
+            }
+            if (this.listeners != null) for (graph_listener l : this.listeners) l.edgeUpdated(node1, node2, prev, w);
         }
     }
 
@@ -163,8 +596,8 @@ public class WGraph_DS implements weighted_graph, Serializable {
      */
     @Override
     public boolean hasEdge(int node1, int node2) {
-        if(this.neighbors.get(node1) == null) return false;
-        return this.neighbors.get(node1).containsKey(node2);
+        IntDoubleMap nei = neighborsOf(node1);
+        return nei != null && nei.containsKey(node2);
     }
 
     /**
@@ -175,8 +608,8 @@ public class WGraph_DS implements weighted_graph, Serializable {
      */
     @Override
     public double getEdge(int node1, int node2) {
-        if(hasEdge(node1,node2)) return this.neighbors.get(node1).get(node2);
-        return -1;
+        IntDoubleMap nei = neighborsOf(node1);
+        return nei == null ? -1 : nei.get(node2);
     }
 
     /**
@@ -186,24 +619,41 @@ public class WGraph_DS implements weighted_graph, Serializable {
      */
     @Override
     public Collection<node_info> getV() {
-        return this.nodes.values();
+        if (this.nodeView == null) this.nodeView = new NodeView();
+        return this.nodeView;
     }
 
     /**
      * This method returns a Collection containing all the
      * nodes connected to node_id.
      * Note: this method run in O(k) time, k - being the degree of node_id.
-     * @return Collection<node_data>
+     * @return Collection<node_data>, empty if there is no such node.
      */
     @Override
     public Collection<node_info> getV(int node_id) {
-        Collection<node_info> getNei = new ArrayList<>();
-        for(Integer x : this.neighbors.get(node_id).keySet()) {
-            getNei.add(getNode(x));
+        IntDoubleMap nei = neighborsOf(node_id);
+        if (nei == null) return new ArrayList<>();
+        Collection<node_info> getNei = new ArrayList<>(nei.size());
+        for (int i = 0, n = nei.slots(); i < n; i++) {
+            if (nei.usedAt(i)) getNei.add(getNode(nei.keyAt(i)));
         }
         return getNei;
     }
 
+    /**
+     * Visit all the neighbors of node_id straight from its neighbors map.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    @Override
+    public void forEachNeighbor(int node_id, neighbor_consumer action) {
+        IntDoubleMap nei = neighborsOf(node_id);
+        if (nei == null) return;
+        for (int i = 0, n = nei.slots(); i < n; i++) {
+            if (nei.usedAt(i)) action.accept(nei.keyAt(i), nei.valueAt(i));
+        }
+    }
+
     /**
      * Delete the node (with the given ID) from the graph -
      * and removes all edges which starts or ends at this node.
@@ -212,18 +662,35 @@ public class WGraph_DS implements weighted_graph, Serializable {
      * @param key
      */
     @Override
-    public node_info removeNode(int key) {
-        node_info x;
+    public synchronized node_info removeNode(int key) {
+        int slot = this.slots.get(key);
         //If it does not exist
-        if (getNode(key) == null) return null;
-        else {
-            for(node_info i : getV(key)){
-                removeEdge(key, i.getKey());
+        if (slot < 0) return null;
+        ownTop();
+
+        IntDoubleMap nei = this.neighbors[slot];
+        if (this.connectivity != null || this.listeners != null) {
+            //Edge by edge, so the index and the listeners see every removal (the map is changed meanwhile - copy the keys)
+            int[] keys = new int[nei.size()];
+            int k = 0;
+            for (int i = 0, n = nei.slots(); i < n; i++) {
+                if (nei.usedAt(i)) keys[k++] = nei.keyAt(i);
+            }
+            for (int other : keys) removeEdge(key, other);
+            if (this.connectivity != null) this.connectivity.nodeRemoved(slot);
+        } else {
+            for (int i = 0, n = nei.slots(); i < n; i++) {
+                if (!nei.usedAt(i)) continue;
+                writable(nei.keyAt(i)).remove(key);
+                this.countMC++;
+                this.edgeSize--;
             }
-            this.neighbors.remove(key);
-            x = this.nodes.remove(key);
-            this.countMC++;
         }
+        node_info x = this.nodes[slot];
+        this.slots.remove(key);
+        releaseSlot(slot);
+        this.countMC++;
+        if (this.listeners != null) for (graph_listener l : this.listeners) l.nodeRemoved(key);
         return x;
     }
 
@@ -234,14 +701,17 @@ public class WGraph_DS implements weighted_graph, Serializable {
      * @param node2 key of node2
      */
     @Override
-    public void removeEdge(int node1, int node2) {
-        if (node1 == node2 || !hasEdge(node1, node2)) return;
-
-        this.neighbors.get(node1).remove(node2);
-        this.neighbors.get(node2).remove(node1);
+    public synchronized void removeEdge(int node1, int node2) {
+        if (node1 == node2) return;
+        IntDoubleMap one = neighborsOf(node1);
+        if (one == null || !one.containsKey(node2)) return;
+        double w = writable(node1).remove(node2);
+        writable(node2).remove(node1);
 
         this.countMC++;
         this.edgeSize--;
+        if (this.connectivity != null) this.connectivity.edgeRemoved(this.slots.get(node1), this.slots.get(node2));
+        if (this.listeners != null) for (graph_listener l : this.listeners) l.edgeRemoved(node1, node2, w);
     }
 
     /** return the number of vertices (nodes) in the graph.
@@ -249,7 +719,7 @@ public class WGraph_DS implements weighted_graph, Serializable {
      */
     @Override
     public int nodeSize() {
-        return this.nodes.size();
+        return this.slots.size();
     }
 
     /**
@@ -272,49 +742,233 @@ public class WGraph_DS implements weighted_graph, Serializable {
     }
 
     /**
-     * Compares the graph values (replaces the default equals function)
+     * Compares the graph values (replaces the default equals function).
+     * The comparison does not depend on the iteration order of the nodes or of the neighbors.
      * @param obj another graph
      * @return true if they equals
      */
     public boolean equals(Object obj) {
-        boolean ans = true;
-        weighted_graph other = (weighted_graph)obj;
-
         if (this == obj) return true;
-        else if (obj == null || this.edgeSize() != other.edgeSize() || this.getMC() != other.getMC()) return false;
-        else {
-            Iterator<node_info> thisGraph = getV().iterator();
-            Iterator<node_info> otherGraph = other.getV().iterator();
-
-            //Checks all nodes in the graph
-            while (thisGraph.hasNext() && otherGraph.hasNext()) {
-                node_info nodeA = thisGraph.next();
-                node_info nodeB = otherGraph.next();
-
-                if (nodeA.getKey() != nodeB.getKey() || nodeA.getInfo() != nodeB.getInfo()
-                        || nodeA.getTag() != nodeB.getTag()) {
-                    ans = false;
-                    break;
-                }
+        if (!(obj instanceof weighted_graph)) return false;
+        weighted_graph other = (weighted_graph) obj;
+        if (this.nodeSize() != other.nodeSize() || this.edgeSize() != other.edgeSize()
+                || this.getMC() != other.getMC()) return false;
+
+        //Checks all nodes in the graph
+        for (int slot = 0; slot < this.slotLimit; slot++) {
+            NodeInfo nodeA = this.nodes[slot];
+            if (nodeA == null) continue;
+            node_info nodeB = other.getNode(nodeA.getKey());
+            if (nodeB == null || !Objects.equals(nodeA.getInfo(), nodeB.getInfo())
+                    || nodeA.getTag() != nodeB.getTag()) return false;
+
+            //Checks neighbors of each node
+            IntDoubleMap nei = this.neighbors[slot];
+            for (int i = 0, n = nei.slots(); i < n; i++) {
+                if (nei.usedAt(i) && other.getEdge(nodeA.getKey(), nei.keyAt(i)) != nei.valueAt(i)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Live view of all the nodes, iterated in slot order.
+     */
+    private class NodeView extends AbstractCollection<node_info> {
+
+        @Override
+        public Iterator<node_info> iterator() {
+            return new Iterator<node_info>() {
+                private int slot = advance(0);
 
-                Iterator<node_info> thisNei = getV(nodeA.getKey()).iterator();
-                Iterator<node_info> otherNei = ((weighted_graph) obj).getV(nodeB.getKey()).iterator();
+                private int advance(int from) {
+                    while (from < slotLimit && nodes[from] == null) from++;
+                    return from;
+                }
 
-                //Checks neighbors of each node
-                while (thisNei.hasNext() && otherNei.hasNext()) {
-                    node_info nodeA1 = thisNei.next();
-                    node_info nodeB1 = otherNei.next();
+                @Override
+                public boolean hasNext() {
+                    return this.slot < slotLimit;
+                }
 
-                    if (nodeA1.getKey() != nodeB1.getKey() || nodeA1.getInfo() != nodeB1.getInfo()
-                            || nodeA1.getTag() != nodeB1.getTag()) {
-                        ans = false;
-                        break;
-                    }
+                @Override
+                public node_info next() {
+                    if (this.slot >= slotLimit) throw new NoSuchElementException();
+                    node_info x = nodes[this.slot];
+                    this.slot = advance(this.slot + 1);
+                    return x;
                 }
+            };
+        }
+
+        @Override
+        public int size() {
+            return nodeSize();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return nodeSize() == 0;
+        }
+    }
+
+    /**
+     * Take a snapshot of the current state of the graph: a read-only graph which does not change with the
+     * later changes of this graph, so long algorithms (e.g. WGraph_Algo on the snapshot) can run while other
+     * threads keep changing the graph. The structures are shared with the snapshot and copied on write.
+     * Taking the snapshot is O(1), but the cost is paid by the writers: the first change after every snapshot
+     * copies the top level (the key -> slot map and the slot arrays), which is O(V), and the first change of
+     * the edges of a vertex copies its neighbors, which is O(degree). So with frequent snapshots of a large
+     * graph which is changed between them, every snapshot costs about one O(V) copy.
+     * Close the snapshot when it is no longer needed - the old versions are
+     * reclaimed, and once no snapshot is open the changes are done in place again.
+     * The nodes (tag / info) are shared with the snapshot, only the structure is versioned.
+     * @return the snapshot
+     */
+    public synchronized WGraph_Snapshot snapshot() {
+        Versions v = this.versions;
+        if (v == null) {
+            v = new Versions();
+            this.versions = v;
+        }
+        //The maps of the slots created since the last snapshot are in the new version too
+        if (v.mapEpoch.length < this.slotLimit) {
+            int old = v.mapEpoch.length;
+            v.mapEpoch = Arrays.copyOf(v.mapEpoch, this.slotLimit);
+            Arrays.fill(v.mapEpoch, old, this.slotLimit, v.epoch);
+        }
+        int version = v.epoch;
+        v.open.merge(version, 1, Integer::sum);
+        v.latestOpen = version;
+        v.epoch++;
+        return new WGraph_Snapshot(this, version, this.slots, this.nodes, this.neighbors, this.slotLimit,
+                this.edgeSize, this.countMC);
+    }
+
+    /**
+     * Called by WGraph_Snapshot.close().
+     */
+    synchronized void release(int version) {
+        Versions v = this.versions;
+        Integer count = v.open.get(version);
+        if (count == 1) v.open.remove(version);
+        else v.open.put(version, count - 1);
+        if (v.open.isEmpty()) this.versions = null;
+        else v.latestOpen = v.open.lastKey();
+    }
+
+    /**
+     * Add a listener of the changes of the graph - it is called after every change, by the thread of the
+     * change, while the graph is locked (see graph_listener).
+     * @param listener
+     */
+    public synchronized void addListener(graph_listener listener) {
+        Objects.requireNonNull(listener);
+        graph_listener[] old = this.listeners == null ? new graph_listener[0] : this.listeners;
+        graph_listener[] added = Arrays.copyOf(old, old.length + 1);
+        added[old.length] = listener;
+        this.listeners = added;
+    }
+
+    /**
+     * Remove a listener of the changes of the graph.
+     * @param listener
+     * @return true iff it was a listener of the graph
+     */
+    public synchronized boolean removeListener(graph_listener listener) {
+        if (this.listeners == null) return false;
+        for (int i = 0; i < this.listeners.length; i++) {
+            if (this.listeners[i] == listener) {
+                graph_listener[] left = new graph_listener[this.listeners.length - 1];
+                System.arraycopy(this.listeners, 0, left, 0, i);
+                System.arraycopy(this.listeners, i + 1, left, i, left.length - i);
+                this.listeners = left.length == 0 ? null : left;
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Number of open snapshots.
+     * @return int
+     */
+    public synchronized int openSnapshots() {
+        Versions v = this.versions;
+        int count = 0;
+        if (v != null) for (int c : v.open.values()) count += c;
+        return count;
+    }
+
+    /**
+     * Enable the dynamic connectivity index: it is built once (O(V+E)) and then updated by every
+     * addNode / connect / removeEdge / removeNode, so isConnected() and sameComponent() do not scan the graph.
+     * Removing an edge of the spanning forest of the index costs a scan of the smaller side of the cut.
+     * The index is built under the lock of the graph, so no change runs while it is built.
+     */
+    public synchronized void enableConnectivityIndex() {
+        if (this.connectivity == null) this.connectivity = new ConnectivityIndex(this);
+    }
+
+    /**
+     * Disable (and drop) the dynamic connectivity index.
+     */
+    public synchronized void disableConnectivityIndex() {
+        this.connectivity = null;
+    }
+
+    /**
+     * true iff the dynamic connectivity index is enabled.
+     * @return boolean
+     */
+    public boolean hasConnectivityIndex() {
+        return this.connectivity != null;
+    }
+
+    /**
+     * Number of connected components of the graph, by the connectivity index.
+     * @return int
+     * @throws IllegalStateException if the connectivity index is not enabled
+     */
+    public int componentCount() {
+        return index().count();
+    }
 
-        return ans;
+    /**
+     * true iff the graph is connected (an empty graph is connected), by the connectivity index.
+     * @return boolean
+     * @throws IllegalStateException if the connectivity index is not enabled
+     */
+    public boolean isConnected() {
+        return index().count() <= 1;
+    }
+
+    /**
+     * true iff there is a path between the two nodes, by the connectivity index.
+     * @param node1 key of node1
+     * @param node2 key of node2
+     * @return false if one of the nodes does not exist
+     * @throws IllegalStateException if the connectivity index is not enabled
+     */
+    public boolean sameComponent(int node1, int node2) {
+        ConnectivityIndex index = index();
+        int s1 = this.slots.get(node1), s2 = this.slots.get(node2);
+        return s1 >= 0 && s2 >= 0 && index.connected(s1, s2);
+    }
+
+    private ConnectivityIndex index() {
+        ConnectivityIndex index = this.connectivity;
+        if (index == null) throw new IllegalStateException("the connectivity index is not enabled");
+        return index;
+    }
+
+    /**
+     * Freeze the current state of the graph into an immutable compressed-sparse-row snapshot.
+     * The snapshot does not follow later changes of this graph.
+     * @return read-only WGraph_CSR copy of this graph
+     */
+    public WGraph_CSR freeze() {
+        return new WGraph_CSR(this);
     }
 
     /**
@@ -324,7 +978,9 @@ public class WGraph_DS implements weighted_graph, Serializable {
     public String toString() {
         for (node_info x : getV()) {
             System.out.print("Key: " + x.getKey() + " | Tag: " + x.getTag() + " | Info: " + x.getInfo() + " | Neighbor: ");
-            System.out.println(this.neighbors.get(x.getKey()).keySet());
+            List<Integer> nei = new ArrayList<>();
+            for (node_info v : getV(x.getKey())) nei.add(v.getKey());
+            System.out.println(nei);
         }
         return null;
     }
@@ -0,0 +1,415 @@
+package ex1.src;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The WGraph_DeltaStepping class computes single source shortest paths (the distances of all the vertices
+ * from a source) with the parallel Delta-stepping algorithm of Meyer and Sanders:
+ * - The graph is frozen into a WGraph_CSR snapshot, which is kept until the graph is changed (getMC).
+ * - The tentative distances are kept in an AtomicLongArray (bits of non negative doubles are ordered like the
+ *   doubles), a relaxation lowers a distance by compare-and-set, so the threads relax edges without locks.
+ * - The vertices wait in buckets of width delta (cyclic array of buckets). The vertices of the current bucket
+ *   relax their light edges (weight <= delta) in parallel rounds until the bucket stays empty, then all the
+ *   vertices settled by the bucket relax their heavy edges once, and the next non empty bucket is processed.
+ * - delta is given, or tuned from the weights of the edges: max weight / average degree (at least the
+ *   average weight), so a bucket holds enough vertices to keep the threads busy.
+ * The distances are equal to those of Dijkstra. The paths are rebuilt from the distances (over the edges
+ * which are tight), so no parent array is shared between the threads.
+ *
+ * @see WGraph_Algo.Strategy#DELTA_STEPPING
+ */
+
+public class WGraph_DeltaStepping {
+
+    /**
+     * Smallest frontier processed by one task of the pool, smaller frontiers are processed by the caller.
+     */
+    private static final int GRAIN = 1024;
+    /**
+     * Bound of the number of (cyclic) buckets - delta is raised if the weights need more.
+     */
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final weighted_graph g;
+    private final double fixedDelta;
+    private final ForkJoinPool pool;
+    private volatile WGraph_CSR csr;
+    private volatile double delta;
+    private final ThreadLocal<SearchCounters> counters = ThreadLocal.withInitial(SearchCounters::new);
+
+    /**
+     * Distances of all the vertices from one source, on the snapshot of the run.
+     */
+    public static final class Result {
+        private final weighted_graph g;
+        private final WGraph_CSR csr;
+        private final double[] dist;
+        private final int source;
+        private final int reached;
+
+        private Result(weighted_graph g, WGraph_CSR csr, int source, double[] dist) {
+            this.g = g;
+            this.csr = csr;
+            this.source = source;
+            this.dist = dist;
+            int count = 0;
+            for (double d : dist) if (d != Double.POSITIVE_INFINITY) count++;
+            this.reached = count;
+        }
+
+        /**
+         * Distance of the key from the source.
+         * @param key - node
+         * @return Sum of all weights between vertices, -1 if there is no such node or no path.
+         */
+        public double dist(int key) {
+            int v = this.csr.indexOf(key);
+            return v < 0 || this.dist[v] == Double.POSITIVE_INFINITY ? -1 : this.dist[v];
+        }
+
+        /**
+         * Shortest path from the source to dest, as an ordered List of nodes of the graph.
+         * The path is found backwards from dest by a breadth first scan over the tight edges
+         * (dist[u] + w(u, v) == dist[v]), which always reaches the source.
+         * @param dest - end (target) node
+         * @return List of vertices, null if there is no such path.
+         */
+        public List<node_info> path(int dest) {
+            int t = this.csr.indexOf(dest);
+            if (t < 0 || this.dist[t] == Double.POSITIVE_INFINITY) return null;
+            IntIntMap next = new IntIntMap(-1);
+            int[] queue = new int[16];
+            int head = 0, tail = 0;
+            queue[tail++] = t;
+            next.put(t, t);
+            while (head < tail && queue[head] != this.source) {
+                int v = queue[head++];
+                for (int e = this.csr.begin(v), end = this.csr.end(v); e < end; e++) {
+                    int u = this.csr.target(e);
+                    if (this.dist[u] + this.csr.weight(e) != this.dist[v] || next.containsKey(u)) continue;
+                    next.put(u, v);
+                    if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                    queue[tail++] = u;
+                }
+            }
+            if (head == tail) return null;
+            List<node_info> path = new ArrayList<>();
+            for (int v = this.source; ; v = next.get(v)) {
+                path.add(this.g.getNode(this.csr.keyAt(v)));
+                if (v == t) break;
+            }
+            return path;
+        }
+
+        /**
+         * Number of vertices reachable from the source (the source included).
+         * @return int
+         */
+        public int reachedCount() {
+            return this.reached;
+        }
+    }
+
+    /**
+     * Constructor - delta tuned from the weights, parallel on the common ForkJoinPool.
+     * @param g graph of the queries
+     */
+    public WGraph_DeltaStepping(weighted_graph g) {
+        this(g, 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     * @param g graph of the queries
+     * @param delta width of the buckets, 0 to tune it from the weights of the edges
+     * @param pool pool of the parallel relaxations
+     */
+    public WGraph_DeltaStepping(weighted_graph g, double delta, ForkJoinPool pool) {
+        if (!(delta >= 0)) throw new IllegalArgumentException("delta must not be negative: " + delta);
+        this.g = g;
+        this.fixedDelta = delta;
+        this.pool = pool;
+    }
+
+    /**
+     * Return the graph of the queries.
+     * @return weighted_graph
+     */
+    public weighted_graph getGraph() {
+        return this.g;
+    }
+
+    /**
+     * Width of the buckets of the last run (tuned or given), 0 before the first run.
+     * @return double
+     */
+    public double getDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Counters of the runs of the current thread since the last clear - settled = vertices of the frontiers,
+     * relaxed = edges relaxed (by all the threads), pushes / pops = entries added to / taken from the buckets.
+     */
+    SearchCounters counters() {
+        return this.counters.get();
+    }
+
+    /**
+     * The snapshot of the graph, taken again if the graph was changed.
+     */
+    private WGraph_CSR snapshot() {
+        WGraph_CSR s = this.csr;
+        if (s != null && s.getMC() == this.g.getMC()) return s;
+        synchronized (this) {
+            s = this.csr;
+            if (s == null || s.getMC() != this.g.getMC()) {
+                s = this.g instanceof WGraph_CSR ? (WGraph_CSR) this.g : new WGraph_CSR(this.g);
+                this.csr = s;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Compute the distances of all the vertices from src.
+     * @param src - start node
+     * @return the distances, null if there is no such node
+     */
+    public Result run(int src) {
+        WGraph_CSR s = snapshot();
+        int source = s.indexOf(src);
+        if (source < 0) return null;
+        double width = this.fixedDelta > 0 ? this.fixedDelta : tune(s);
+        double maxWeight = 0;
+        for (int e = 0, m = s.end(s.nodeSize() - 1); e < m; e++) maxWeight = Math.max(maxWeight, s.weight(e));
+        //Enough buckets for every tentative distance between the current bucket and current + max weight
+        width = Math.max(width, maxWeight / (MAX_BUCKETS - 2));
+        if (width <= 0) width = 1;
+        this.delta = width;
+        Run r = new Run(s, width, maxWeight, this.pool);
+        double[] dist = r.solve(source);
+        r.addCounters(this.counters.get());
+        return new Result(this.g, s, source, dist);
+    }
+
+    /**
+     * delta = max weight / average degree, at least the average weight.
+     */
+    private static double tune(WGraph_CSR s) {
+        int n = s.nodeSize();
+        int m = s.end(n - 1);
+        if (m == 0) return 1;
+        double max = 0, sum = 0;
+        for (int e = 0; e < m; e++) {
+            max = Math.max(max, s.weight(e));
+            sum += s.weight(e);
+        }
+        double degree = (double) m / n;
+        return Math.max(max / degree, sum / m);
+    }
+
+    /**
+     * State of one run.
+     */
+    private static final class Run {
+        private final WGraph_CSR s;
+        private final double delta;
+        private final ForkJoinPool pool;
+        private final AtomicLongArray dist;
+        /**
+         * Round in which the vertex was last output by a relaxation - a vertex is output once per round.
+         */
+        private final AtomicIntegerArray queued;
+        private int round;
+        /**
+         * Cyclic buckets, bucket i holds the vertices of distances [i * delta, (i+1) * delta) (and stale entries).
+         */
+        private final IntList[] buckets;
+        private final IntList[] outputs;
+        private final int parts;
+        /**
+         * Counters of the run, the edges relaxed are counted per part (every part by one thread).
+         */
+        private long settled, pushes, pops;
+        private final long[] relaxed;
+
+        Run(WGraph_CSR s, double delta, double maxWeight, ForkJoinPool pool) {
+            this.s = s;
+            this.delta = delta;
+            this.pool = pool;
+            int n = s.nodeSize();
+            this.dist = new AtomicLongArray(n);
+            for (int v = 0; v < n; v++) this.dist.set(v, Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+            this.queued = new AtomicIntegerArray(n);
+            int count = (int) Math.min(MAX_BUCKETS, (long) Math.floor(maxWeight / delta) + 2);
+            this.buckets = new IntList[count];
+            for (int i = 0; i < count; i++) this.buckets[i] = new IntList();
+            this.parts = Math.max(1, pool.getParallelism() * 4);
+            this.outputs = new IntList[this.parts];
+            for (int i = 0; i < this.parts; i++) this.outputs[i] = new IntList();
+            this.relaxed = new long[this.parts];
+        }
+
+        void addCounters(SearchCounters c) {
+            c.settled += this.settled;
+            c.pushes += this.pushes;
+            c.pops += this.pops;
+            for (long r : this.relaxed) c.relaxed += r;
+        }
+
+        double[] solve(int source) {
+            this.dist.set(source, Double.doubleToRawLongBits(0));
+            this.buckets[0].add(source);
+            this.pushes++;
+            long b = 0;
+            IntList frontier = new IntList();
+            IntList settled = new IntList();
+            while (true) {
+                //Next non empty bucket
+                int empty = 0;
+                while (this.buckets[(int) (b % this.buckets.length)].size == 0) {
+                    if (++empty == this.buckets.length) return distances();
+                    b++;
+                }
+                IntList bucket = this.buckets[(int) (b % this.buckets.length)];
+                settled.size = 0;
+                //Light edges, in rounds, until the bucket stays empty
+                while (bucket.size > 0) {
+                    frontier.size = 0;
+                    this.pops += bucket.size;
+                    for (int i = 0; i < bucket.size; i++) {
+                        int v = bucket.items[i];
+                        //Stale entries - the vertex moved to a lower bucket (and was settled there)
+                        if (bucketOf(v) == b) frontier.add(v);
+                    }
+                    bucket.size = 0;
+                    this.settled += frontier.size;
+                    relaxAll(frontier, true);
+                    for (int i = 0; i < frontier.size; i++) settled.add(frontier.items[i]);
+                    distribute();
+                }
+                //Heavy edges of all the vertices settled by the bucket
+                relaxAll(settled, false);
+                distribute();
+                b++;
+            }
+        }
+
+        private long bucketOf(int v) {
+            return (long) (Double.longBitsToDouble(this.dist.get(v)) / this.delta);
+        }
+
+        private double[] distances() {
+            double[] d = new double[this.dist.length()];
+            for (int v = 0; v < d.length; v++) d[v] = Double.longBitsToDouble(this.dist.get(v));
+            return d;
+        }
+
+        /**
+         * Relax the light (or heavy) edges of the vertices, in parallel for large frontiers.
+         * The improved vertices are left in the outputs.
+         */
+        private void relaxAll(IntList frontier, boolean light) {
+            this.round++;
+            for (IntList out : this.outputs) out.size = 0;
+            if (frontier.size < GRAIN || this.parts == 1) {
+                relax(frontier, 0, frontier.size, light, 0);
+            } else {
+                this.pool.invoke(new Relax(this, frontier, light, 0, this.parts));
+            }
+        }
+
+        private void relax(IntList frontier, int from, int to, boolean light, int part) {
+            int r = this.round;
+            IntList out = this.outputs[part];
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                int u = frontier.items[i];
+                double du = Double.longBitsToDouble(this.dist.get(u));
+                for (int e = this.s.begin(u), end = this.s.end(u); e < end; e++) {
+                    double w = this.s.weight(e);
+                    if ((w <= this.delta) != light) continue;
+                    int v = this.s.target(e);
+                    count++;
+                    if (lower(v, du + w) && this.queued.getAndSet(v, r) != r) out.add(v);
+                }
+            }
+            this.relaxed[part] += count;
+        }
+
+        /**
+         * Lower the distance of v to d (compare-and-set loop).
+         * @return true iff the distance was lowered
+         */
+        private boolean lower(int v, double d) {
+            long bits = Double.doubleToRawLongBits(d);
+            while (true) {
+                long current = this.dist.get(v);
+                if (bits >= current) return false;
+                if (this.dist.compareAndSet(v, current, bits)) return true;
+            }
+        }
+
+        /**
+         * Move the outputs of the last relaxations to the buckets of their distances.
+         */
+        private void distribute() {
+            for (IntList out : this.outputs) {
+                this.pushes += out.size;
+                for (int i = 0; i < out.size; i++) {
+                    int v = out.items[i];
+                    this.buckets[(int) (bucketOf(v) % this.buckets.length)].add(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork/join task of the parts [from, to) of a frontier, every part has its own output list.
+     */
+    private static final class Relax extends RecursiveAction {
+        private final Run run;
+        private final IntList frontier;
+        private final boolean light;
+        private final int from, to;
+
+        Relax(Run run, IntList frontier, boolean light, int from, int to) {
+            this.run = run;
+            this.frontier = frontier;
+            this.light = light;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Relax(this.run, this.frontier, this.light, this.from, mid),
+                        new Relax(this.run, this.frontier, this.light, mid, this.to));
+                return;
+            }
+            int size = this.frontier.size, parts = this.run.parts;
+            int begin = (int) ((long) size * this.from / parts), end = (int) ((long) size * (this.from + 1) / parts);
+            this.run.relax(this.frontier, begin, end, this.light, this.from);
+        }
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    private static final class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int v) {
+            if (this.size == this.items.length) this.items = Arrays.copyOf(this.items, this.size * 2);
+            this.items[this.size++] = v;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package ex1.src;
+
+import java.util.*;
+
+/**
+ * The WGraph_DynamicSSSP class keeps the shortest path tree of a source in a WGraph_DS up to date while the
+ * graph is changed, by repairing only the part of the tree which was affected by every change
+ * (in the style of Ramalingam and Reps), the class contains:
+ * - The distance and the parent (tree) of every vertex reached from the source, in primitive arrays indexed by
+ *   dense local ids (primitive key -> id map), the parent is a local id too (-1 for none).
+ * - An indexed 4-ary heap for the repairs, and a graph_listener registered on the graph.
+ * The repairs:
+ * - An edge was added or its weight was lowered - if one end gets closer through the edge, the distances are
+ *   lowered from there by Dijkstra, which stops where no distance is lowered.
+ * - An edge of the tree was removed or its weight was raised - the subtree below the edge is cut off, every vertex
+ *   of the subtree takes the best distance through its neighbors out of the subtree, and the subtree is settled
+ *   by Dijkstra from there. Changes of edges which are not in the tree change nothing.
+ * The distances are equal to those of Dijkstra after every change. The repairs run by the thread of the change,
+ * the queries may run on other threads. Close it to stop listening to the graph.
+ *
+ * @see WGraph_Algo#dynamicShortestPaths(int)
+ */
+
+public class WGraph_DynamicSSSP implements graph_listener, AutoCloseable {
+
+    private static final int ARITY = 4;
+    /**
+     * Parent of the source and of the vertices which are not reached.
+     */
+    private static final int NONE = -1;
+
+    private final WGraph_DS g;
+    private final int source;
+    private final IntIntMap ids = new IntIntMap(-1);
+    private final IndexedDHeap heap = new IndexedDHeap(ARITY, 16);
+    private int[] keys = new int[16];
+    private double[] dist = new double[16];
+    /**
+     * Local id of the parent of every vertex, NONE if it has none.
+     */
+    private int[] parent = new int[16];
+    /**
+     * Stamp of the vertices of the subtree being repaired.
+     */
+    private int[] mark = new int[16];
+    private int stamp;
+    private int[] subtree = new int[16];
+    private int subtreeSize;
+    private int count;
+    private int repaired;
+    private boolean closed;
+    /**
+     * Vertex being scanned and its distance, for the callbacks of the scans.
+     */
+    private int x;
+    private double dx;
+    private final neighbor_consumer relax = this::relax;
+    private final neighbor_consumer collect = this::collect;
+    private final neighbor_consumer reattach = this::reattach;
+
+    /**
+     * Compute the shortest path tree of the source, and keep it up to date with the changes of the graph.
+     * @param g graph
+     * @param source source vertex (it may be added later)
+     */
+    public WGraph_DynamicSSSP(WGraph_DS g, int source) {
+        this.g = g;
+        this.source = source;
+        synchronized (g) {
+            if (g.getNode(source) != null) {
+                int s = idOf(source);
+                this.dist[s] = 0;
+                this.heap.push(s, 0, source);
+                settle();
+            }
+            g.addListener(this);
+        }
+    }
+
+    public WGraph_DS getGraph() {
+        return this.g;
+    }
+
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * Stop listening to the graph (the distances are no longer updated), calling it again does nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (this.g) {
+            synchronized (this) {
+                if (this.closed) return;
+                this.closed = true;
+            }
+            this.g.removeListener(this);
+        }
+    }
+
+    /**
+     * Distance of the key from the source.
+     * @param key - node
+     * @return Sum of all weights between vertices, -1 if there is no such node or no path.
+     */
+    public synchronized double dist(int key) {
+        int v = this.ids.get(key);
+        return v < 0 || this.dist[v] == Double.POSITIVE_INFINITY ? -1 : this.dist[v];
+    }
+
+    /**
+     * Shortest path from the source to dest, following the tree back from dest.
+     * @param dest - end (target) node
+     * @return List of vertices, null if there is no such path.
+     */
+    public synchronized List<node_info> path(int dest) {
+        int v = this.ids.get(dest);
+        if (v < 0 || this.dist[v] == Double.POSITIVE_INFINITY) return null;
+        LinkedList<node_info> path = new LinkedList<>();
+        for (; v != NONE; v = this.parent[v]) {
+            path.addFirst(this.g.getNode(this.keys[v]));
+        }
+        return path;
+    }
+
+    /**
+     * Number of vertices visited by the repair of the last change.
+     * @return int
+     */
+    public synchronized int lastRepaired() {
+        return this.repaired;
+    }
+
+    //graph_listener
+
+    @Override
+    public synchronized void nodeAdded(int key) {
+        this.repaired = 0;
+        if (key != this.source) return;
+        int s = idOf(key);
+        this.dist[s] = 0;
+        this.parent[s] = NONE;
+        this.repaired = 1;
+    }
+
+    @Override
+    public synchronized void nodeRemoved(int key) {
+        //Its edges were removed (and repaired) before
+        int v = this.ids.get(key);
+        this.repaired = 0;
+        if (v < 0) return;
+        this.dist[v] = Double.POSITIVE_INFINITY;
+        this.parent[v] = NONE;
+    }
+
+    @Override
+    public synchronized void edgeUpdated(int node1, int node2, double previous, double w) {
+        this.repaired = 0;
+        if (previous >= 0 && w > previous) raised(node1, node2);
+        else lowered(node1, node2, w);
+    }
+
+    @Override
+    public synchronized void edgeRemoved(int node1, int node2, double w) {
+        this.repaired = 0;
+        raised(node1, node2);
+    }
+
+    //Repairs
+
+    /**
+     * The edge was added or got lighter: lower the distances through it.
+     */
+    private void lowered(int node1, int node2, double w) {
+        int a = idOf(node1), b = idOf(node2);
+        if (this.dist[a] + w < this.dist[b]) lower(b, this.dist[a] + w, a);
+        else if (this.dist[b] + w < this.dist[a]) lower(a, this.dist[b] + w, b);
+        settle();
+    }
+
+    /**
+     * The edge was removed or got heavier: repair the subtree below it, if it is an edge of the tree.
+     */
+    private void raised(int node1, int node2) {
+        int a = this.ids.get(node1), b = this.ids.get(node2);
+        if (a < 0 || b < 0) return;
+        int child;
+        if (this.parent[b] == a) child = b;
+        else if (this.parent[a] == b) child = a;
+        else return;
+
+        //The subtree of the child - the vertices whose parent is in the subtree
+        this.stamp++;
+        this.subtreeSize = 0;
+        this.subtree[this.subtreeSize++] = child;
+        this.mark[child] = this.stamp;
+        for (int i = 0; i < this.subtreeSize; i++) {
+            this.x = this.subtree[i];
+            this.g.forEachNeighbor(this.keys[this.x], this.collect);
+        }
+        int size = this.subtreeSize;
+        for (int i = 0; i < size; i++) {
+            this.dist[this.subtree[i]] = Double.POSITIVE_INFINITY;
+            this.parent[this.subtree[i]] = NONE;
+        }
+        //Best distance of every vertex of the subtree through the neighbors out of it
+        for (int i = 0; i < size; i++) {
+            int u = this.subtree[i];
+            this.x = u;
+            this.g.forEachNeighbor(this.keys[u], this.reattach);
+            if (this.dist[u] != Double.POSITIVE_INFINITY) this.heap.pushOrDecrease(u, this.dist[u], this.keys[u]);
+        }
+        this.repaired += size;
+        settle();
+    }
+
+    /**
+     * Add the neighbor to the subtree if it is a child of the vertex x.
+     */
+    private void collect(int vKey, double w) {
+        int v = this.ids.get(vKey);
+        if (v < 0 || this.parent[v] != this.x || this.mark[v] == this.stamp) return;
+        this.mark[v] = this.stamp;
+        if (this.subtreeSize == this.subtree.length) this.subtree = Arrays.copyOf(this.subtree, this.subtreeSize * 2);
+        this.subtree[this.subtreeSize++] = v;
+    }
+
+    /**
+     * Attach the vertex x (of the subtree) to the neighbor if it is out of the subtree and closer.
+     */
+    private void reattach(int vKey, double w) {
+        int v = this.ids.get(vKey);
+        if (v < 0 || this.mark[v] == this.stamp) return;
+        double t = this.dist[v] + w;
+        if (t < this.dist[this.x]) {
+            this.dist[this.x] = t;
+            this.parent[this.x] = v;
+        }
+    }
+
+    private void lower(int v, double d, int parent) {
+        this.dist[v] = d;
+        this.parent[v] = parent;
+        this.heap.pushOrDecrease(v, d, this.keys[v]);
+    }
+
+    /**
+     * Dijkstra from the vertices in the heap, until no distance is lowered.
+     */
+    private void settle() {
+        while (!this.heap.isEmpty()) {
+            int u = this.heap.pop();
+            this.repaired++;
+            this.x = u;
+            this.dx = this.dist[u];
+            this.g.forEachNeighbor(this.keys[u], this.relax);
+        }
+    }
+
+    private void relax(int vKey, double w) {
+        int v = idOf(vKey);
+        double t = this.dx + w;
+        if (t < this.dist[v]) lower(v, t, this.x);
+    }
+
+    /**
+     * Local id of the key, a new id (at infinite distance) is given to unseen keys.
+     */
+    private int idOf(int key) {
+        int id = this.ids.get(key);
+        if (id >= 0) return id;
+        id = this.count++;
+        if (id == this.keys.length) {
+            int capacity = id * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.dist = Arrays.copyOf(this.dist, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            this.mark = Arrays.copyOf(this.mark, capacity);
+        }
+        this.ids.put(key, id);
+        this.keys[id] = key;
+        this.dist[id] = Double.POSITIVE_INFINITY;
+        this.parent[id] = NONE;
+        return id;
+    }
+}
@@ -0,0 +1,625 @@
+package ex1.src;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * The WGraph_IO class reads and writes graphs in a compact binary file format (used by WGraph_Algo.save / load):
+ * - Header - magic number, version, number of nodes (n), number of adjacency entries (m = 2 * edges),
+ *   Mode Count of the graph and flags (reserved, 0).
+ * - int[n] keys of the nodes, int[n+1] CSR offsets, int[m] targets (index of the neighbor in keys),
+ *   double[m] weights - the neighbors of the node i are at [offsets[i], offsets[i+1]).
+ * - double[n] tags, and the info of every node - length in bytes (-1 for null) and UTF-8 bytes.
+ * All the numbers are big-endian. The file is written through a FileChannel (straight from the adjacency of
+ * the graph, in fixed size chunks) and the arrays are read back through MappedByteBuffers in bulk, without
+ * object deserialization.
+ *
+ *
+ * The class also reads and writes text edge lists - a line "u v w" for every edge ("u v" - weight 1), a line "u" for a node
+ * without edges, lines starting with '#' or '%' are comments (a self loop, or a weight which is negative, NaN or
+ * infinite is a malformed line). The reader parses chunks of the file in parallel (byte-level, every chunk split
+ * at line ends between the threads) and inserts the edges of every
+ * chunk in the order of the file, so the memory beyond the graph itself is bounded by the size of a chunk.
+ * The writer streams straight from the adjacency of the graph.
+ *
+ * @see WGraph_Algo#save(String)
+ * @see WGraph_Algo#load(String)
+ */
+
+public final class WGraph_IO {
+
+    private static final int MAGIC = 0x57474246;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    /**
+     * Size of the write buffers, and the largest region mapped at once by the reader.
+     */
+    private static final int CHUNK = 1 << 20;
+    private static final long MAP_CHUNK = 1L << 30;
+    /**
+     * Size of the chunks of text parsed at once by the edge list reader.
+     */
+    private static final int TEXT_CHUNK = 8 << 20;
+
+    private WGraph_IO() {
+    }
+
+    /**
+     * true iff the file starts with the magic number of the binary format.
+     * @param file - file name
+     * @return boolean
+     */
+    public static boolean isBinary(String file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the graph to the file in the binary format (the file is replaced).
+     * @param g - graph
+     * @param file - file name
+     * @throws IOException if the file could not be written
+     */
+    public static void writeBinary(weighted_graph g, String file) throws IOException {
+        int n = g.nodeSize();
+        int[] keys = new int[n];
+        int[] offsets = new int[n + 1];
+        IntIntMap index = new IntIntMap(n, -1);
+        int i = 0;
+        for (node_info node : g.getV()) {
+            keys[i] = node.getKey();
+            index.put(keys[i], i);
+            offsets[i + 1] = offsets[i] + degree(g, keys[i]);
+            i++;
+        }
+        int m = offsets[n];
+
+        Path path = Paths.get(file);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long targetsAt = HEADER_BYTES + 4L * n + 4L * (n + 1);
+            long weightsAt = targetsAt + 4L * m;
+            long tagsAt = weightsAt + 8L * m;
+
+            ChunkWriter head = new ChunkWriter(channel, 0);
+            head.putInt(MAGIC);
+            head.putInt(VERSION);
+            head.putInt(n);
+            head.putInt(m);
+            head.putInt(g.getMC());
+            head.putInt(0);
+            for (int key : keys) head.putInt(key);
+            for (int offset : offsets) head.putInt(offset);
+            head.flush();
+
+            //Targets and weights are written side by side, each into its own section of the file
+            ChunkWriter targets = new ChunkWriter(channel, targetsAt);
+            ChunkWriter weights = new ChunkWriter(channel, weightsAt);
+            neighbor_consumer write = (u, w) -> {
+                try {
+                    targets.putInt(index.get(u));
+                    weights.putDouble(w);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            try {
+                for (int v = 0; v < n; v++) {
+                    g.forEachNeighbor(keys[v], write);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            targets.flush();
+            weights.flush();
+
+            ChunkWriter tail = new ChunkWriter(channel, tagsAt);
+            for (int key : keys) tail.putDouble(g.getNode(key).getTag());
+            for (int key : keys) {
+                String info = g.getNode(key).getInfo();
+                if (info == null) {
+                    tail.putInt(-1);
+                } else {
+                    byte[] bytes = info.getBytes(StandardCharsets.UTF_8);
+                    tail.putInt(bytes.length);
+                    tail.put(bytes);
+                }
+            }
+            tail.flush();
+        }
+    }
+
+    private static int degree(weighted_graph g, int key) {
+        if (g instanceof WGraph_DS) return ((WGraph_DS) g).neighborsOf(key).size();
+        int[] degree = {0};
+        g.forEachNeighbor(key, (u, w) -> degree[0]++);
+        return degree[0];
+    }
+
+    /**
+     * Read a graph written by writeBinary.
+     * @param file - file name
+     * @return the graph (with the Mode Count it was saved with)
+     * @throws IOException if the file could not be read or is not a graph file of this version
+     */
+    public static WGraph_DS readBinary(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException("not a graph file: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("unsupported graph file version " + version + ": " + file);
+            int n = header.getInt(), m = header.getInt(), mc = header.getInt();
+            header.getInt();
+
+            long at = HEADER_BYTES;
+            int[] keys = new int[n];
+            at = readInts(channel, at, keys);
+            int[] offsets = new int[n + 1];
+            at = readInts(channel, at, offsets);
+            int[] targets = new int[m];
+            at = readInts(channel, at, targets);
+            double[] weights = new double[m];
+            at = readDoubles(channel, at, weights);
+            double[] tags = new double[n];
+            at = readDoubles(channel, at, tags);
+            if (offsets[n] != m) throw new IOException("corrupted graph file: " + file);
+
+            WGraph_DS g = new WGraph_DS(keys, offsets, targets, weights, mc);
+            channel.position(at);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            for (int i = 0; i < n; i++) {
+                WGraph_DS.NodeInfo node = (WGraph_DS.NodeInfo) g.getNode(keys[i]);
+                node.setTag(tags[i]);
+                int len = in.readInt();
+                if (len >= 0) {
+                    byte[] bytes = new byte[len];
+                    in.readFully(bytes);
+                    node.setInfo(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+            return g;
+        }
+    }
+
+    /**
+     * Fill the array from the file at the given position, mapping at most MAP_CHUNK bytes at a time.
+     * @return the position after the array
+     */
+    private static long readInts(FileChannel channel, long at, int[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int count = (int) Math.min(dst.length - done, MAP_CHUNK / Integer.BYTES);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, at, (long) count * Integer.BYTES);
+            map.asIntBuffer().get(dst, done, count);
+            done += count;
+            at += (long) count * Integer.BYTES;
+        }
+        return at;
+    }
+
+    private static long readDoubles(FileChannel channel, long at, double[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int count = (int) Math.min(dst.length - done, MAP_CHUNK / Double.BYTES);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, at, (long) count * Double.BYTES);
+            map.asDoubleBuffer().get(dst, done, count);
+            done += count;
+            at += (long) count * Double.BYTES;
+        }
+        return at;
+    }
+
+    /**
+     * Read a text edge list into a new graph.
+     * @param file - file name
+     * @return the graph
+     * @throws IOException if the file could not be read or has a malformed line
+     */
+    public static WGraph_DS readEdgeList(String file) throws IOException {
+        WGraph_DS g = new WGraph_DS();
+        readEdgeList(file, g);
+        return g;
+    }
+
+    /**
+     * Read a text edge list into the given graph - missing nodes are added, and the edges are connected
+     * in the order of the file (so the last weight of a repeated edge is kept).
+     * @param file - file name
+     * @param g - graph of the edges
+     * @throws IOException if the file could not be read or has a malformed line
+     */
+    public static void readEdgeList(String file, WGraph_DS g) throws IOException {
+        int slices = Math.max(1, java.util.concurrent.ForkJoinPool.getCommonPoolParallelism());
+        EdgeSlice[] parsed = new EdgeSlice[slices];
+        for (int i = 0; i < slices; i++) parsed[i] = new EdgeSlice();
+        int[] bounds = new int[slices + 1];
+
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            byte[] text = new byte[TEXT_CHUNK];
+            int len = 0;
+            boolean eof = false;
+            while (!eof || len > 0) {
+                if (!eof) {
+                    int read = channel.read(ByteBuffer.wrap(text, len, text.length - len));
+                    if (read < 0) eof = true;
+                    else len += read;
+                }
+                //Parse whole lines only, the rest of the chunk moves to the start of the next one
+                int end = eof ? len : lastLineEnd(text, len);
+                if (end == 0 && !eof) {
+                    if (len == text.length) text = java.util.Arrays.copyOf(text, text.length * 2);
+                    continue;
+                }
+
+                bounds[0] = 0;
+                for (int i = 1; i < slices; i++) {
+                    bounds[i] = Math.max(bounds[i - 1], nextLineStart(text, (int) ((long) end * i / slices), end));
+                }
+                bounds[slices] = end;
+                final byte[] chunk = text;
+                try {
+                    IntStream.range(0, slices).parallel().forEach(i -> parsed[i].parse(chunk, bounds[i], bounds[i + 1]));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (EdgeSlice slice : parsed) slice.insert(g);
+
+                System.arraycopy(text, end, text, 0, len - end);
+                len -= end;
+            }
+        }
+    }
+
+    private static int lastLineEnd(byte[] text, int len) {
+        for (int i = len - 1; i >= 0; i--) {
+            if (text[i] == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    private static int nextLineStart(byte[] text, int from, int end) {
+        if (from == 0) return 0;
+        while (from < end && text[from - 1] != '\n') from++;
+        return from;
+    }
+
+    /**
+     * Edges parsed from one slice of a chunk of text, in primitive arrays reused between the chunks.
+     * A node without edges is kept as an edge from the node to itself, flagged as node only.
+     */
+    private static final class EdgeSlice {
+        int[] u = new int[1024];
+        int[] v = new int[1024];
+        double[] w = new double[1024];
+        boolean[] nodeOnly = new boolean[1024];
+        int size;
+        /**
+         * Parse position, and the start of the current line for the error messages.
+         */
+        private byte[] text;
+        private int pos, end, lineStart;
+
+        void parse(byte[] text, int from, int to) {
+            this.text = text;
+            this.pos = from;
+            this.end = to;
+            this.size = 0;
+            try {
+                while (this.pos < this.end) {
+                    this.lineStart = this.pos;
+                    skipBlanks();
+                    if (atLineEnd()) {
+                        nextLine();
+                        continue;
+                    }
+                    byte c = text[this.pos];
+                    if (c == '#' || c == '%') {
+                        skipLine();
+                        continue;
+                    }
+                    int a = parseInt();
+                    skipBlanks();
+                    if (atLineEnd()) {
+                        add(a, a, 0, true);
+                    } else {
+                        int b = parseInt();
+                        skipBlanks();
+                        double weight = atLineEnd() ? 1 : parseDouble();
+                        skipBlanks();
+                        if (!atLineEnd()) throw malformed();
+                        //The graph has no self loops and no negative (or NaN / infinite) weights
+                        if (a == b || !(weight >= 0) || weight == Double.POSITIVE_INFINITY) throw malformed();
+                        add(a, b, weight, false);
+                    }
+                    nextLine();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void insert(WGraph_DS g) {
+            for (int i = 0; i < this.size; i++) {
+                g.addNode(this.u[i]);
+                if (this.nodeOnly[i]) continue;
+                g.addNode(this.v[i]);
+                g.connect(this.u[i], this.v[i], this.w[i]);
+            }
+        }
+
+        private void add(int a, int b, double weight, boolean node) {
+            if (this.size == this.u.length) {
+                int capacity = this.size * 2;
+                this.u = java.util.Arrays.copyOf(this.u, capacity);
+                this.v = java.util.Arrays.copyOf(this.v, capacity);
+                this.w = java.util.Arrays.copyOf(this.w, capacity);
+                this.nodeOnly = java.util.Arrays.copyOf(this.nodeOnly, capacity);
+            }
+            this.u[this.size] = a;
+            this.v[this.size] = b;
+            this.w[this.size] = weight;
+            this.nodeOnly[this.size] = node;
+            this.size++;
+        }
+
+        private void skipBlanks() {
+            while (this.pos < this.end && (this.text[this.pos] == ' ' || this.text[this.pos] == '\t' || this.text[this.pos] == '\r')) {
+                this.pos++;
+            }
+        }
+
+        private boolean atLineEnd() {
+            return this.pos == this.end || this.text[this.pos] == '\n';
+        }
+
+        private void nextLine() {
+            if (this.pos < this.end) this.pos++;
+        }
+
+        private void skipLine() {
+            while (!atLineEnd()) this.pos++;
+            nextLine();
+        }
+
+        private int parseInt() throws IOException {
+            boolean negative = false;
+            if (this.text[this.pos] == '-' || this.text[this.pos] == '+') negative = this.text[this.pos++] == '-';
+            int start = this.pos;
+            long value = 0;
+            while (this.pos < this.end && isDigit(this.text[this.pos])) {
+                value = value * 10 + (this.text[this.pos++] - '0');
+                if (value > 1L + Integer.MAX_VALUE) throw malformed();
+            }
+            if (this.pos == start) throw malformed();
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw malformed();
+            return (int) value;
+        }
+
+        /**
+         * Decimal number - exact when the digits fit in a long and the scale is small,
+         * otherwise by Double.parseDouble of the token.
+         */
+        private double parseDouble() throws IOException {
+            int start = this.pos;
+            boolean negative = false;
+            if (this.text[this.pos] == '-' || this.text[this.pos] == '+') negative = this.text[this.pos++] == '-';
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            boolean any = false;
+            while (this.pos < this.end && isDigit(this.text[this.pos])) {
+                mantissa = mantissa * 10 + (this.text[this.pos++] - '0');
+                digits += mantissa == 0 ? 0 : 1;
+                any = true;
+            }
+            if (this.pos < this.end && this.text[this.pos] == '.') {
+                this.pos++;
+                while (this.pos < this.end && isDigit(this.text[this.pos])) {
+                    mantissa = mantissa * 10 + (this.text[this.pos++] - '0');
+                    digits += mantissa == 0 ? 0 : 1;
+                    scale++;
+                    any = true;
+                }
+            }
+            boolean exponent = this.pos < this.end && (this.text[this.pos] == 'e' || this.text[this.pos] == 'E');
+            if (!any && !exponent) {
+                //Infinity, NaN and such
+                while (this.pos < this.end && !isBlank(this.text[this.pos])) this.pos++;
+                return slowDouble(start);
+            }
+            if (exponent || digits > 15 || scale > 22) {
+                while (this.pos < this.end && !isBlank(this.text[this.pos])) this.pos++;
+                return slowDouble(start);
+            }
+            if (this.pos < this.end && !isBlank(this.text[this.pos])) throw malformed();
+            double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private double slowDouble(int start) throws IOException {
+            try {
+                return Double.parseDouble(new String(this.text, start, this.pos - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw malformed();
+            }
+        }
+
+        private static boolean isDigit(byte c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isBlank(byte c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        private IOException malformed() {
+            int to = this.lineStart;
+            while (to < this.end && this.text[to] != '\n' && to - this.lineStart < 100) to++;
+            return new IOException("malformed edge list line: " + new String(this.text, this.lineStart, to - this.lineStart, StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    /**
+     * Exact powers of ten of doubles (10^0 .. 10^22).
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    /**
+     * Write the graph to the file as a text edge list - every edge once ("u v w", u before v in the order of
+     * the nodes) and a line "u" for every node without edges. The file is replaced.
+     * @param g - graph
+     * @param file - file name
+     * @throws IOException if the file could not be written
+     */
+    public static void writeEdgeList(weighted_graph g, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChunkWriter out = new ChunkWriter(channel, 0);
+            EdgeWriter edges = new EdgeWriter(out, g.nodeSize());
+            try {
+                for (node_info node : g.getV()) {
+                    int key = node.getKey();
+                    edges.start(key);
+                    g.forEachNeighbor(key, edges);
+                    if (!edges.any) {
+                        out.putNumber(key);
+                        out.putByte((byte) '\n');
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the edges of one node at a time, every edge once (from the first of its nodes to be written).
+     */
+    private static final class EdgeWriter implements neighbor_consumer {
+        private final ChunkWriter out;
+        /**
+         * Keys of the nodes already written - their edges were written with them.
+         */
+        private final IntIntMap done;
+        private int key;
+        boolean any;
+
+        EdgeWriter(ChunkWriter out, int nodes) {
+            this.out = out;
+            this.done = new IntIntMap(nodes, -1);
+        }
+
+        void start(int key) {
+            this.key = key;
+            this.any = false;
+            this.done.put(key, 0);
+        }
+
+        @Override
+        public void accept(int v, double w) {
+            this.any = true;
+            if (this.done.containsKey(v)) return;
+            try {
+                writeEdge(this.out, this.key, v, w);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void writeEdge(ChunkWriter out, int u, int v, double w) throws IOException {
+        out.putNumber(u);
+        out.putByte((byte) ' ');
+        out.putNumber(v);
+        out.putByte((byte) ' ');
+        if (w == (long) w && Math.abs(w) < 1e15) out.putNumber((long) w);
+        else out.put(Double.toString(w).getBytes(StandardCharsets.US_ASCII));
+        out.putByte((byte) '\n');
+    }
+
+    /**
+     * Sequential writer of one section of the file, through a fixed size buffer.
+     */
+    private static final class ChunkWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK);
+        private long position;
+
+        ChunkWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int v) throws IOException {
+            if (this.buffer.remaining() < Integer.BYTES) flush();
+            this.buffer.putInt(v);
+        }
+
+        void putDouble(double v) throws IOException {
+            if (this.buffer.remaining() < Double.BYTES) flush();
+            this.buffer.putDouble(v);
+        }
+
+        void putByte(byte b) throws IOException {
+            if (!this.buffer.hasRemaining()) flush();
+            this.buffer.put(b);
+        }
+
+        /**
+         * Decimal digits of the number (text).
+         */
+        void putNumber(long v) throws IOException {
+            if (this.buffer.remaining() < 20) flush();
+            if (v < 0) {
+                this.buffer.put((byte) '-');
+                v = -v;
+            }
+            int start = this.buffer.position();
+            do {
+                this.buffer.put((byte) ('0' + v % 10));
+                v /= 10;
+            } while (v > 0);
+            //The digits were written from the last one - reverse them in place
+            for (int i = start, j = this.buffer.position() - 1; i < j; i++, j--) {
+                byte t = this.buffer.get(i);
+                this.buffer.put(i, this.buffer.get(j));
+                this.buffer.put(j, t);
+            }
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int done = 0;
+            while (done < bytes.length) {
+                if (!this.buffer.hasRemaining()) flush();
+                int count = Math.min(bytes.length - done, this.buffer.remaining());
+                this.buffer.put(bytes, done, count);
+                done += count;
+            }
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.position += this.channel.write(this.buffer, this.position);
+            }
+            this.buffer.clear();
+        }
+    }
+}
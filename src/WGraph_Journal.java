@@ -0,0 +1,317 @@
+package ex1.src;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WGraph_Journal class records the changes of a WGraph_DS, so structures derived from the graph (caches,
+ * indexes, copies) can follow it by its changes instead of polling getMC() and scanning the graph again,
+ * the class contains:
+ * - A bounded ring buffer of typed records (add node, remove node, connect, remove edge) in primitive arrays,
+ *   every record with the Mode Count of the graph after the change as its sequence number.
+ *   When the buffer is full the oldest record is overwritten.
+ * - Subscriptions - every subscriber reads the records in batches from its own position, and counts the records
+ *   which were overwritten before it read them (then it should rebuild from the graph).
+ * The journal is a graph_listener registered on the graph, the records are added by the thread of the change,
+ * the subscribers may read them on other threads. Close it to stop recording.
+ *
+ * @see graph_listener
+ */
+
+public class WGraph_Journal implements graph_listener, AutoCloseable {
+
+    /**
+     * Type of a change.
+     */
+    public enum Type {
+        ADD_NODE, REMOVE_NODE, CONNECT, REMOVE_EDGE
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    /**
+     * A change of the graph.
+     */
+    public static final class Record {
+        private final Type type;
+        private final int mc;
+        private final int node1;
+        private final int node2;
+        private final double weight;
+        private final double previous;
+
+        private Record(Type type, int mc, int node1, int node2, double weight, double previous) {
+            this.type = type;
+            this.mc = mc;
+            this.node1 = node1;
+            this.node2 = node2;
+            this.weight = weight;
+            this.previous = previous;
+        }
+
+        public Type getType() {
+            return this.type;
+        }
+
+        /**
+         * Mode Count of the graph after the change - the sequence number of the record.
+         * @return int
+         */
+        public int getMC() {
+            return this.mc;
+        }
+
+        /**
+         * The node (ADD_NODE / REMOVE_NODE), or the first end of the edge.
+         * @return int
+         */
+        public int getNode1() {
+            return this.node1;
+        }
+
+        /**
+         * The second end of the edge (the node for ADD_NODE / REMOVE_NODE).
+         * @return int
+         */
+        public int getNode2() {
+            return this.node2;
+        }
+
+        /**
+         * The new weight of the edge (CONNECT), or the weight of the removed edge (REMOVE_EDGE), -1 for a node.
+         * @return double
+         */
+        public double getWeight() {
+            return this.weight;
+        }
+
+        /**
+         * The previous weight of the edge (CONNECT), -1 for a new edge or a record of another type.
+         * @return double
+         */
+        public double getPrevious() {
+            return this.previous;
+        }
+
+        @Override
+        public String toString() {
+            switch (this.type) {
+                case ADD_NODE:
+                case REMOVE_NODE:
+                    return this.mc + " " + this.type + " " + this.node1;
+                case CONNECT:
+                    return this.mc + " " + this.type + " " + this.node1 + " " + this.node2 + " " + this.previous + " -> " + this.weight;
+                default:
+                    return this.mc + " " + this.type + " " + this.node1 + " " + this.node2 + " " + this.weight;
+            }
+        }
+    }
+
+    /**
+     * Reader of the journal from its own position, not thread safe (one per consumer).
+     */
+    public final class Subscription {
+        private long next;
+        private long missed;
+
+        private Subscription(long next, long missed) {
+            this.next = next;
+            this.missed = missed;
+        }
+
+        /**
+         * Read the next records (at most max) - an empty batch if there are no new records.
+         * @param max - the largest batch
+         * @return List of records, in the order of the changes
+         */
+        public List<Record> poll(int max) {
+            synchronized (WGraph_Journal.this) {
+                return read(max);
+            }
+        }
+
+        /**
+         * Read the next records (at most max), waiting up to the timeout for a new record if there is none.
+         * @param max - the largest batch
+         * @return List of records, empty if there was no new record within the timeout
+         * @throws InterruptedException if the thread was interrupted while waiting
+         */
+        public List<Record> poll(int max, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (WGraph_Journal.this) {
+                while (this.next >= written && !closed) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    TimeUnit.NANOSECONDS.timedWait(WGraph_Journal.this, left);
+                }
+                return read(max);
+            }
+        }
+
+        private List<Record> read(int max) {
+            //Records which were overwritten before they were read
+            long oldest = written - capacity();
+            if (this.next < oldest) {
+                this.missed += oldest - this.next;
+                this.next = oldest;
+            }
+            int n = (int) Math.min(max, written - this.next);
+            List<Record> batch = new ArrayList<>(Math.max(n, 0));
+            for (int i = 0; i < n; i++) {
+                batch.add(record(this.next++));
+            }
+            return batch;
+        }
+
+        /**
+         * Number of records which were overwritten before this subscriber read them - if it is not 0 the
+         * subscriber did not see all the changes.
+         * @return long
+         */
+        public long missed() {
+            synchronized (WGraph_Journal.this) {
+                long oldest = written - capacity();
+                return this.missed + Math.max(0, oldest - this.next);
+            }
+        }
+
+        /**
+         * Number of records waiting to be read.
+         * @return long
+         */
+        public long pending() {
+            synchronized (WGraph_Journal.this) {
+                return written - Math.max(this.next, written - capacity());
+            }
+        }
+    }
+
+    private final WGraph_DS g;
+    private final byte[] types;
+    private final int[] mcs;
+    private final int[] node1s;
+    private final int[] node2s;
+    private final double[] weights;
+    private final double[] previous;
+    /**
+     * Number of records ever added (the position of the next record).
+     */
+    private long written;
+    private boolean closed;
+
+    /**
+     * Start recording the changes of the graph.
+     * @param g graph
+     * @param capacity number of records kept
+     */
+    public WGraph_Journal(WGraph_DS g, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity = " + capacity);
+        this.g = g;
+        this.types = new byte[capacity];
+        this.mcs = new int[capacity];
+        this.node1s = new int[capacity];
+        this.node2s = new int[capacity];
+        this.weights = new double[capacity];
+        this.previous = new double[capacity];
+        g.addListener(this);
+    }
+
+    public WGraph_DS getGraph() {
+        return this.g;
+    }
+
+    public int capacity() {
+        return this.types.length;
+    }
+
+    /**
+     * Number of records ever added.
+     * @return long
+     */
+    public synchronized long written() {
+        return this.written;
+    }
+
+    /**
+     * Subscribe from the next change.
+     * @return Subscription
+     */
+    public synchronized Subscription subscribe() {
+        return new Subscription(this.written, 0);
+    }
+
+    /**
+     * Subscribe from the first change after the given Mode Count (e.g. the Mode Count of a saved copy),
+     * the changes which are no longer kept are counted as missed.
+     * @param mc - Mode Count of the graph the subscriber already has
+     * @return Subscription
+     */
+    public synchronized Subscription subscribe(int mc) {
+        long oldest = Math.max(0, this.written - capacity());
+        long next = this.written;
+        //The Mode Counts of the records are increasing
+        while (next > oldest && this.mcs[index(next - 1)] > mc) next--;
+        //The changes between mc and the first record kept
+        int first = next < this.written ? this.mcs[index(next)] : this.g.getMC() + 1;
+        long missed = next == oldest ? Math.max(0, first - mc - 1) : 0;
+        return new Subscription(next, missed);
+    }
+
+    /**
+     * Stop recording, calling it again does nothing (the records which were added can still be read).
+     */
+    @Override
+    public void close() {
+        synchronized (this.g) {
+            synchronized (this) {
+                if (this.closed) return;
+                this.closed = true;
+                notifyAll();
+            }
+            this.g.removeListener(this);
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity());
+    }
+
+    private Record record(long position) {
+        int i = index(position);
+        return new Record(TYPES[this.types[i]], this.mcs[i], this.node1s[i], this.node2s[i], this.weights[i], this.previous[i]);
+    }
+
+    private synchronized void add(Type type, int node1, int node2, double weight, double previous) {
+        int i = index(this.written);
+        this.types[i] = (byte) type.ordinal();
+        this.mcs[i] = this.g.getMC();
+        this.node1s[i] = node1;
+        this.node2s[i] = node2;
+        this.weights[i] = weight;
+        this.previous[i] = previous;
+        this.written++;
+        notifyAll();
+    }
+
+    //graph_listener
+
+    @Override
+    public void nodeAdded(int key) {
+        add(Type.ADD_NODE, key, key, -1, -1);
+    }
+
+    @Override
+    public void nodeRemoved(int key) {
+        add(Type.REMOVE_NODE, key, key, -1, -1);
+    }
+
+    @Override
+    public void edgeUpdated(int node1, int node2, double previous, double w) {
+        add(Type.CONNECT, node1, node2, w, previous);
+    }
+
+    @Override
+    public void edgeRemoved(int node1, int node2, double w) {
+        add(Type.REMOVE_EDGE, node1, node2, w, -1);
+    }
+}
@@ -0,0 +1,230 @@
+package ex1.src;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The WGraph_Metrics class collects the counters of the runs of the algorithms of WGraph_Algo
+ * (see WGraph_Algo#setMetrics), the metrics are opt-in and cost nothing while they are not set:
+ * - Every run (shortestPathDist, shortestPath, isConnected, copy) is reported to the listeners as a Run -
+ *   nodes settled, edges relaxed, heap pushes / pops, wall time and bytes allocated.
+ * - Cumulative counters of all the runs, readable here or through JMX (see register).
+ *
+ * The search counters are those of the Dijkstra engines (DIJKSTRA, FULL_SCAN, BIDIRECTIONAL and the tree cache)
+ * and of the queries of the preprocessed strategies (the A* of ALT, the upward searches of CH, the buckets of
+ * DELTA_STEPPING), the preprocessing itself is not counted.
+ * isConnected reports the nodes labeled and the neighbors scanned, copy the nodes and the edges copied.
+ * The heaps of the engines decrease keys in place, so they never hold stale entries (there is no such counter).
+ * The allocations of the threads are measured by the JVM only from the first measured run on.
+ *
+ * @see metrics_listener
+ */
+
+public class WGraph_Metrics implements WGraph_MetricsMBean {
+
+    /**
+     * The algorithm of a run.
+     */
+    public enum Operation {
+        SHORTEST_PATH_DIST, SHORTEST_PATH, IS_CONNECTED, COPY
+    }
+
+    /**
+     * Counters of one run.
+     */
+    public static final class Run {
+        private final Operation operation;
+        private final long settled, relaxed, pushes, pops, nanos, allocatedBytes;
+
+        Run(Operation operation, long settled, long relaxed, long pushes, long pops, long nanos, long allocatedBytes) {
+            this.operation = operation;
+            this.settled = settled;
+            this.relaxed = relaxed;
+            this.pushes = pushes;
+            this.pops = pops;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public Operation getOperation() {
+            return this.operation;
+        }
+
+        public long getSettledNodes() {
+            return this.settled;
+        }
+
+        public long getRelaxedEdges() {
+            return this.relaxed;
+        }
+
+        public long getHeapPushes() {
+            return this.pushes;
+        }
+
+        public long getHeapPops() {
+            return this.pops;
+        }
+
+        public long getTimeNanos() {
+            return this.nanos;
+        }
+
+        /**
+         * Bytes allocated by the thread of the run, -1 if the JVM does not measure them.
+         */
+        public long getAllocatedBytes() {
+            return this.allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return this.operation + " settled=" + this.settled + " relaxed=" + this.relaxed + " pushes=" + this.pushes
+                    + " pops=" + this.pops + " nanos=" + this.nanos + " allocated=" + this.allocatedBytes;
+        }
+    }
+
+    private final List<metrics_listener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder relaxed = new LongAdder();
+    private final LongAdder pushes = new LongAdder();
+    private final LongAdder pops = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder allocated = new LongAdder();
+    private ObjectName registered;
+
+    /**
+     * The bean of the allocations of the threads, initialized (and the measuring enabled) on the first measured run.
+     */
+    private static final class Allocations {
+        static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        if (!threads.isThreadAllocatedMemoryEnabled()) threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, -1 if they are not measured.
+     */
+    static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = Allocations.THREADS;
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void addListener(metrics_listener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(metrics_listener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Add a finished run to the counters and report it to the listeners.
+     * @param startNanos System.nanoTime() at the start of the run
+     * @param startAllocated allocatedBytes() at the start of the run
+     */
+    void record(Operation operation, long settled, long relaxed, long pushes, long pops,
+                long startNanos, long startAllocated) {
+        long time = System.nanoTime() - startNanos;
+        long bytes = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+        this.runs.increment();
+        this.settled.add(settled);
+        this.relaxed.add(relaxed);
+        this.pushes.add(pushes);
+        this.pops.add(pops);
+        this.nanos.add(time);
+        this.maxNanos.accumulate(time);
+        if (bytes > 0) this.allocated.add(bytes);
+        if (this.listeners.isEmpty()) return;
+        Run run = new Run(operation, settled, relaxed, pushes, pops, time, bytes);
+        for (metrics_listener listener : this.listeners) {
+            listener.runFinished(run);
+        }
+    }
+
+    /**
+     * Register the counters as an MBean of the platform MBean server, as "ex1.src:type=WGraph_Metrics,name=" + name.
+     * @param name - name of this instance (unique among the registered ones)
+     * @throws JMException if the name is taken or invalid
+     */
+    public synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("ex1.src:type=WGraph_Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.registered = objectName;
+    }
+
+    /**
+     * Unregister the MBean registered by register, if any.
+     */
+    public synchronized void unregister() throws JMException {
+        if (this.registered == null) return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.registered);
+        this.registered = null;
+    }
+
+    @Override
+    public long getRuns() {
+        return this.runs.sum();
+    }
+
+    @Override
+    public long getSettledNodes() {
+        return this.settled.sum();
+    }
+
+    @Override
+    public long getRelaxedEdges() {
+        return this.relaxed.sum();
+    }
+
+    @Override
+    public long getHeapPushes() {
+        return this.pushes.sum();
+    }
+
+    @Override
+    public long getHeapPops() {
+        return this.pops.sum();
+    }
+
+    @Override
+    public long getTotalTimeNanos() {
+        return this.nanos.sum();
+    }
+
+    @Override
+    public long getMaxTimeNanos() {
+        return this.maxNanos.get();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return this.allocated.sum();
+    }
+
+    @Override
+    public void reset() {
+        this.runs.reset();
+        this.settled.reset();
+        this.relaxed.reset();
+        this.pushes.reset();
+        this.pops.reset();
+        this.nanos.reset();
+        this.maxNanos.reset();
+        this.allocated.reset();
+    }
+}
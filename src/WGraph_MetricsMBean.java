@@ -0,0 +1,33 @@
+package ex1.src;
+
+/**
+ * Management interface of WGraph_Metrics - the cumulative counters of the runs, as JMX attributes.
+ *
+ * @see WGraph_Metrics#register(String)
+ */
+public interface WGraph_MetricsMBean {
+
+    long getRuns();
+
+    long getSettledNodes();
+
+    long getRelaxedEdges();
+
+    long getHeapPushes();
+
+    long getHeapPops();
+
+    long getTotalTimeNanos();
+
+    long getMaxTimeNanos();
+
+    /**
+     * Bytes allocated by the runs, 0 if the JVM does not measure the allocations of threads.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Set all the counters to 0.
+     */
+    void reset();
+}
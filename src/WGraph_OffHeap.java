@@ -0,0 +1,641 @@
+package ex1.src;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * The WGraph_OffHeap class is a weighted undirected graph which keeps its nodes and edges outside of the
+ * Java heap (direct ByteBuffers), so very large graphs do not load the garbage collector, the class contains:
+ * - Node records (key, tag, degree, address and capacity of the neighbors block) in node segments.
+ * - Neighbors blocks of (neighbor key, weight) entries in edge segments - a block of a vertex has a power of two
+ *   capacity, it is moved to a block twice as large when it is full, and the free blocks are reused.
+ * - Primitive map (IntIntMap) from the key of a node to its record, and the info strings (only the nodes
+ *   which have one) on the heap.
+ * The storage grows by appending new segments (of segmentBytes each, a block larger than a segment gets a
+ * segment of its own), nothing is ever moved between segments.
+ *
+ * The node_info objects (getNode, getV) are views of the records, valid while the node is in the graph.
+ * hasEdge / getEdge / connect / removeEdge scan the neighbors block - O(k), k being the degree of the node.
+ * Close the graph when it is no longer needed to release the memory of the segments (a closed graph throws
+ * IllegalStateException). The graph is not thread safe.
+ *
+ * @see weighted_graph
+ */
+
+public class WGraph_OffHeap implements weighted_graph, AutoCloseable {
+
+    /**
+     * Default size of a segment - 64MB.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 26;
+
+    /**
+     * Layout of a node record.
+     */
+    private static final int NODE_BYTES = 32;
+    private static final int KEY = 0, SIZE = 4, TAG = 8, BLOCK = 16, CLASS = 24;
+    /**
+     * Size of a record of a removed node.
+     */
+    private static final int FREE = -1;
+    /**
+     * Layout of a neighbors entry.
+     */
+    private static final int EDGE_BYTES = 12;
+    private static final int WEIGHT = 4;
+    /**
+     * Size class (log2 of the capacity) of the first block of a node, and of the largest block.
+     */
+    private static final int MIN_CLASS = 2;
+    private static final int MAX_CLASS = 27;
+
+    private final int segmentBytes;
+    private final int nodesPerSegment;
+
+    private ByteBuffer[] nodeSegments = new ByteBuffer[4];
+    private int nodeSegmentCount;
+    private ByteBuffer[] edgeSegments = new ByteBuffer[4];
+    private int edgeSegmentCount;
+    /**
+     * Edge segment which the small blocks are appended to, and its used bytes.
+     */
+    private int edgeCurrent = -1;
+    private int edgeTail;
+    /**
+     * Free neighbors blocks (addresses) by size class.
+     */
+    private final long[][] freeBlocks = new long[MAX_CLASS + 1][];
+    private final int[] freeBlockCount = new int[MAX_CLASS + 1];
+    private long offHeapBytes;
+
+    /**
+     * Key of each node to its record (-1 if none).
+     */
+    private final IntIntMap records;
+    private int[] freeRecords = new int[0];
+    private int freeRecordCount;
+    private int recordLimit;
+    private final Map<Integer, String> infos = new HashMap<>();
+
+    private int nodeSize;
+    private int edgeSize;
+    private int countMC;
+    private boolean closed;
+    private Collection<node_info> nodeView;
+
+    public WGraph_OffHeap() {
+        this(16, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param expectedNodes number of nodes the graph is expected to hold
+     * @param segmentBytes size of a segment (the unit the storage grows by)
+     */
+    public WGraph_OffHeap(int expectedNodes, int segmentBytes) {
+        if (segmentBytes < NODE_BYTES * 4) throw new IllegalArgumentException("segment of " + segmentBytes + " bytes");
+        this.segmentBytes = segmentBytes;
+        this.nodesPerSegment = segmentBytes / NODE_BYTES;
+        this.records = new IntIntMap(Math.max(expectedNodes, 1), -1);
+    }
+
+    private void ensureOpen() {
+        if (this.closed) throw new IllegalStateException("graph is closed");
+    }
+
+    /**
+     * Number of bytes of all the segments (outside of the heap).
+     * @return long
+     */
+    public long offHeapBytes() {
+        return this.offHeapBytes;
+    }
+
+    /**
+     * return true if the graph was closed.
+     * @return boolean
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Release the memory of all the segments, calling it again does nothing.
+     */
+    @Override
+    public void close() {
+        if (this.closed) return;
+        this.closed = true;
+        for (int i = 0; i < this.nodeSegmentCount; i++) free(this.nodeSegments[i]);
+        for (int i = 0; i < this.edgeSegmentCount; i++) free(this.edgeSegments[i]);
+        this.nodeSegments = null;
+        this.edgeSegments = null;
+        this.infos.clear();
+        this.offHeapBytes = 0;
+    }
+
+    //Node records
+
+    private ByteBuffer nodeSegment(int record) {
+        return this.nodeSegments[record / this.nodesPerSegment];
+    }
+
+    private int nodeOffset(int record) {
+        return (record % this.nodesPerSegment) * NODE_BYTES;
+    }
+
+    private int keyOf(int record) {
+        return nodeSegment(record).getInt(nodeOffset(record) + KEY);
+    }
+
+    private int sizeOf(int record) {
+        return nodeSegment(record).getInt(nodeOffset(record) + SIZE);
+    }
+
+    private void setSize(int record, int size) {
+        nodeSegment(record).putInt(nodeOffset(record) + SIZE, size);
+    }
+
+    private long blockOf(int record) {
+        return nodeSegment(record).getLong(nodeOffset(record) + BLOCK);
+    }
+
+    private int classOf(int record) {
+        return nodeSegment(record).getInt(nodeOffset(record) + CLASS);
+    }
+
+    private void setBlock(int record, long block, int sizeClass) {
+        ByteBuffer b = nodeSegment(record);
+        int off = nodeOffset(record);
+        b.putLong(off + BLOCK, block);
+        b.putInt(off + CLASS, sizeClass);
+    }
+
+    private int allocateRecord() {
+        if (this.freeRecordCount > 0) return this.freeRecords[--this.freeRecordCount];
+        if (this.recordLimit == this.nodeSegmentCount * this.nodesPerSegment) {
+            if (this.nodeSegmentCount == this.nodeSegments.length) {
+                this.nodeSegments = Arrays.copyOf(this.nodeSegments, this.nodeSegmentCount * 2);
+            }
+            this.nodeSegments[this.nodeSegmentCount++] = allocate(this.nodesPerSegment * NODE_BYTES);
+        }
+        return this.recordLimit++;
+    }
+
+    private void releaseRecord(int record) {
+        setSize(record, FREE);
+        if (this.freeRecordCount == this.freeRecords.length) {
+            this.freeRecords = Arrays.copyOf(this.freeRecords, Math.max(8, this.freeRecordCount * 2));
+        }
+        this.freeRecords[this.freeRecordCount++] = record;
+    }
+
+    //Neighbors blocks, the address of a block is (segment << 32 | offset)
+
+    private long allocateBlock(int sizeClass) {
+        if (this.freeBlockCount[sizeClass] > 0) return this.freeBlocks[sizeClass][--this.freeBlockCount[sizeClass]];
+        int bytes = (1 << sizeClass) * EDGE_BYTES;
+        if (bytes > this.segmentBytes) {
+            //A segment of its own
+            return (long) addEdgeSegment(bytes) << 32;
+        }
+        if (this.edgeCurrent < 0 || this.edgeTail + bytes > this.segmentBytes) {
+            this.edgeCurrent = addEdgeSegment(this.segmentBytes);
+            this.edgeTail = 0;
+        }
+        long block = (long) this.edgeCurrent << 32 | this.edgeTail;
+        this.edgeTail += bytes;
+        return block;
+    }
+
+    private int addEdgeSegment(int bytes) {
+        if (this.edgeSegmentCount == this.edgeSegments.length) {
+            this.edgeSegments = Arrays.copyOf(this.edgeSegments, this.edgeSegmentCount * 2);
+        }
+        this.edgeSegments[this.edgeSegmentCount] = allocate(bytes);
+        return this.edgeSegmentCount++;
+    }
+
+    private void releaseBlock(long block, int sizeClass) {
+        long[] free = this.freeBlocks[sizeClass];
+        if (free == null) free = this.freeBlocks[sizeClass] = new long[8];
+        else if (this.freeBlockCount[sizeClass] == free.length) {
+            free = this.freeBlocks[sizeClass] = Arrays.copyOf(free, free.length * 2);
+        }
+        free[this.freeBlockCount[sizeClass]++] = block;
+    }
+
+    private ByteBuffer edgeSegment(long block) {
+        return this.edgeSegments[(int) (block >>> 32)];
+    }
+
+    private static int edgeOffset(long block, int j) {
+        return (int) block + j * EDGE_BYTES;
+    }
+
+    /**
+     * Position of the neighbor in the block of the record, -1 if it is not a neighbor.
+     */
+    private int find(int record, int neighbor) {
+        int size = sizeOf(record);
+        if (size == 0) return -1;
+        long block = blockOf(record);
+        ByteBuffer b = edgeSegment(block);
+        for (int j = 0, off = (int) block; j < size; j++, off += EDGE_BYTES) {
+            if (b.getInt(off) == neighbor) return j;
+        }
+        return -1;
+    }
+
+    private void append(int record, int neighbor, double w) {
+        int size = sizeOf(record);
+        long block = blockOf(record);
+        int sizeClass = classOf(record);
+        if (sizeClass < 0 || size == 1 << sizeClass) {
+            //Move to a block twice as large
+            int grown = sizeClass < 0 ? MIN_CLASS : sizeClass + 1;
+            if (grown > MAX_CLASS) throw new IllegalStateException("degree of node " + keyOf(record) + " is too large");
+            long moved = allocateBlock(grown);
+            if (size > 0) {
+                ByteBuffer src = edgeSegment(block).duplicate();
+                src.position((int) block).limit((int) block + size * EDGE_BYTES);
+                ByteBuffer dst = edgeSegment(moved).duplicate();
+                dst.position((int) moved);
+                dst.put(src);
+            }
+            if (sizeClass >= 0) releaseBlock(block, sizeClass);
+            block = moved;
+            setBlock(record, block, grown);
+        }
+        ByteBuffer b = edgeSegment(block);
+        int off = edgeOffset(block, size);
+        b.putInt(off, neighbor);
+        b.putDouble(off + WEIGHT, w);
+        setSize(record, size + 1);
+    }
+
+    /**
+     * Remove the entry j of the block of the record (the last entry takes its place).
+     */
+    private void removeAt(int record, int j) {
+        int last = sizeOf(record) - 1;
+        long block = blockOf(record);
+        ByteBuffer b = edgeSegment(block);
+        if (j != last) {
+            int to = edgeOffset(block, j), from = edgeOffset(block, last);
+            b.putInt(to, b.getInt(from));
+            b.putDouble(to + WEIGHT, b.getDouble(from + WEIGHT));
+        }
+        setSize(record, last);
+    }
+
+    private void setWeight(int record, int j, double w) {
+        long block = blockOf(record);
+        edgeSegment(block).putDouble(edgeOffset(block, j) + WEIGHT, w);
+    }
+
+    private double weightAt(int record, int j) {
+        long block = blockOf(record);
+        return edgeSegment(block).getDouble(edgeOffset(block, j) + WEIGHT);
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        this.offHeapBytes += bytes;
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    //weighted_graph
+
+    /**
+     * return the node_data by the node_id,
+     * @param key - the node_id
+     * @return view of the node, null if none.
+     */
+    @Override
+    public node_info getNode(int key) {
+        ensureOpen();
+        int record = this.records.get(key);
+        return record < 0 ? null : new Node(record, key);
+    }
+
+    /**
+     * return true if (if and only if) there is an edge between node1 and node2.
+     * Note: this method run in O(k) time, k - being the degree of node1.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @return true - There is a edge between 2 vertices.
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        ensureOpen();
+        int record = this.records.get(node1);
+        return record >= 0 && find(record, node2) >= 0;
+    }
+
+    /**
+     * return the weight if the edge (node1, node1).
+     * Note: this method run in O(k) time, k - being the degree of node1.
+     * @param node1 key of node1
+     * @param node2 key of node2
+     * @return If there is a edge = returns the weight of the edge, If no edge exists = returns -1.
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        ensureOpen();
+        int record = this.records.get(node1);
+        if (record < 0) return -1;
+        int j = find(record, node2);
+        return j < 0 ? -1 : weightAt(record, j);
+    }
+
+    /**
+     * add a new node to the graph with the given key.
+     * @param key - new node
+     */
+    @Override
+    public void addNode(int key) {
+        ensureOpen();
+        //If it already exists
+        if (this.records.containsKey(key)) return;
+
+        int record = allocateRecord();
+        ByteBuffer b = nodeSegment(record);
+        int off = nodeOffset(record);
+        b.putInt(off + KEY, key);
+        b.putInt(off + SIZE, 0);
+        b.putDouble(off + TAG, Double.MAX_VALUE);
+        b.putLong(off + BLOCK, -1);
+        b.putInt(off + CLASS, -1);
+        this.records.put(key, record);
+        this.nodeSize++;
+        this.countMC++;
+    }
+
+    /**
+     * Connect an edge between node1 and node2, with an edge with weight >=0,
+     * if the edge node1-node2 already exists - the method simply updates the weight of the edge.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @param w - weight of the edge
+     */
+    @Override
+    public void connect(int node1, int node2, double w) {
+        ensureOpen();
+        if (!(w >= 0) || node1 == node2) return;
+        int one = this.records.get(node1), two = this.records.get(node2);
+        //Not exists
+        if (one < 0 || two < 0) return;
+
+        int j = find(one, node2);
+        if (j >= 0) {
+            //Edge exists with same weight.
+            if (weightAt(one, j) == w) return;
+            setWeight(one, j, w);
+            setWeight(two, find(two, node1), w);
+        } else {
+            append(one, node2, w);
+            append(two, node1, w);
+            this.edgeSize++;
+        }
+        this.countMC++;
+    }
+
+    /**
+     * Live view of all the nodes in the graph.
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        ensureOpen();
+        if (this.nodeView == null) this.nodeView = new NodeView();
+        return this.nodeView;
+    }
+
+    /**
+     * This method returns a Collection containing all the
+     * nodes connected to node_id.
+     * @return Collection<node_data>, empty if there is no such node.
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        ensureOpen();
+        int record = this.records.get(node_id);
+        if (record < 0) return new ArrayList<>();
+        int size = sizeOf(record);
+        Collection<node_info> getNei = new ArrayList<>(size);
+        if (size == 0) return getNei;
+        long block = blockOf(record);
+        ByteBuffer b = edgeSegment(block);
+        for (int j = 0; j < size; j++) {
+            int key = b.getInt(edgeOffset(block, j));
+            getNei.add(new Node(this.records.get(key), key));
+        }
+        return getNei;
+    }
+
+    /**
+     * Visit all the neighbors of node_id straight from its neighbors block.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    @Override
+    public void forEachNeighbor(int node_id, neighbor_consumer action) {
+        ensureOpen();
+        int record = this.records.get(node_id);
+        if (record < 0) return;
+        int size = sizeOf(record);
+        if (size == 0) return;
+        long block = blockOf(record);
+        ByteBuffer b = edgeSegment(block);
+        for (int j = 0, off = (int) block; j < size; j++, off += EDGE_BYTES) {
+            action.accept(b.getInt(off), b.getDouble(off + WEIGHT));
+        }
+    }
+
+    /**
+     * Delete the node (with the given ID) from the graph -
+     * and removes all edges which starts or ends at this node.
+     * @return the data of the removed node (a copy, as the record is reused), null if none.
+     * @param key
+     */
+    @Override
+    public node_info removeNode(int key) {
+        ensureOpen();
+        int record = this.records.get(key);
+        //If it does not exist
+        if (record < 0) return null;
+
+        int size = sizeOf(record);
+        if (size > 0) {
+            long block = blockOf(record);
+            ByteBuffer b = edgeSegment(block);
+            for (int j = 0; j < size; j++) {
+                int other = this.records.get(b.getInt(edgeOffset(block, j)));
+                removeAt(other, find(other, key));
+                this.countMC++;
+                this.edgeSize--;
+            }
+        }
+        if (classOf(record) >= 0) releaseBlock(blockOf(record), classOf(record));
+
+        WGraph_DS.NodeInfo x = new WGraph_DS.NodeInfo(key);
+        x.setTag(nodeSegment(record).getDouble(nodeOffset(record) + TAG));
+        x.setInfo(this.infos.remove(key));
+        this.records.remove(key);
+        releaseRecord(record);
+        this.nodeSize--;
+        this.countMC++;
+        return x;
+    }
+
+    /**
+     * Delete the edge from the graph,
+     * Removing node2 from node1's neighbors and deleting node1 from node2's neighbors.
+     * @param node1 key of node1
+     * @param node2 key of node2
+     */
+    @Override
+    public void removeEdge(int node1, int node2) {
+        ensureOpen();
+        if (node1 == node2) return;
+        int one = this.records.get(node1), two = this.records.get(node2);
+        if (one < 0 || two < 0) return;
+        int j = find(one, node2);
+        if (j < 0) return;
+        removeAt(one, j);
+        removeAt(two, find(two, node1));
+        this.edgeSize--;
+        this.countMC++;
+    }
+
+    @Override
+    public int nodeSize() {
+        ensureOpen();
+        return this.nodeSize;
+    }
+
+    @Override
+    public int edgeSize() {
+        ensureOpen();
+        return this.edgeSize;
+    }
+
+    @Override
+    public int getMC() {
+        ensureOpen();
+        return this.countMC;
+    }
+
+    /**
+     * View of a node record.
+     */
+    private class Node implements node_info {
+        private final int record;
+        private final int key;
+
+        Node(int record, int key) {
+            this.record = record;
+            this.key = key;
+        }
+
+        @Override
+        public int getKey() {
+            return this.key;
+        }
+
+        @Override
+        public String getInfo() {
+            ensureOpen();
+            return infos.get(this.key);
+        }
+
+        @Override
+        public void setInfo(String s) {
+            ensureOpen();
+            if (s == null) infos.remove(this.key);
+            else infos.put(this.key, s);
+        }
+
+        @Override
+        public double getTag() {
+            ensureOpen();
+            return nodeSegment(this.record).getDouble(nodeOffset(this.record) + TAG);
+        }
+
+        @Override
+        public void setTag(double t) {
+            ensureOpen();
+            nodeSegment(this.record).putDouble(nodeOffset(this.record) + TAG, t);
+        }
+    }
+
+    /**
+     * Live view of all the nodes, iterated in record order.
+     */
+    private class NodeView extends AbstractCollection<node_info> {
+
+        @Override
+        public Iterator<node_info> iterator() {
+            ensureOpen();
+            return new Iterator<node_info>() {
+                private int record = advance(0);
+
+                private int advance(int from) {
+                    while (from < recordLimit && sizeOf(from) == FREE) from++;
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return this.record < recordLimit;
+                }
+
+                @Override
+                public node_info next() {
+                    if (this.record >= recordLimit) throw new NoSuchElementException();
+                    node_info x = new Node(this.record, keyOf(this.record));
+                    this.record = advance(this.record + 1);
+                    return x;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return nodeSize();
+        }
+    }
+
+    //Release of direct buffers (sun.misc.Unsafe.invokeCleaner, else they are left to the garbage collector)
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            invokeCleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static void free(ByteBuffer b) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, b);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //Left to the garbage collector
+        }
+    }
+}
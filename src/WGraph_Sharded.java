@@ -0,0 +1,586 @@
+package ex1.src;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * The WGraph_Sharded class runs the algorithms of weighted_graph_algorithms on a graph which is split into shards
+ * by vertex, every shard owned by a worker (a thread with an executor of its own) in the style of BSP / Pregel:
+ * - The graph is partitioned by a hash of the key of the vertex, every shard keeps the rows (neighbor keys and
+ *   weights) of its own vertices, the partition is kept until the graph is changed (getMC).
+ * - A computation runs in supersteps: in a superstep every worker reads the messages sent to its shard in the
+ *   previous superstep, computes on its own vertices, and sends messages about the boundary vertices (the
+ *   neighbors owned by other shards) to their owners. The supersteps are separated by a barrier, and the
+ *   computation ends when a superstep sends no messages.
+ * - Shortest paths: every worker runs Dijkstra on its shard from the vertices whose distance was lowered, and
+ *   sends the lowered distances of boundary vertices (with the parent) to their owners. A point to point query
+ *   stops to relax edges at the distance of dest known so far.
+ * - Connectivity: every vertex takes the smallest key it hears of (HashMin), spread inside the shard and sent
+ *   to the boundary vertices, the components are the vertices with the same label.
+ * The shards only talk through the messages, so a worker may be moved to another process - here the workers
+ * are in-process stand-ins. init, copy, save and load are those of WGraph_Algo.
+ * Close the instance to stop the workers. The computations of an instance run one at a time.
+ *
+ * @see weighted_graph_algorithms
+ */
+
+public class WGraph_Sharded implements weighted_graph_algorithms, AutoCloseable {
+
+    private static final int ARITY = 4;
+
+    private final WGraph_Algo algo = new WGraph_Algo();
+    private final int shardCount;
+    private final ExecutorService[] workers;
+    private Shard[] shards;
+    private weighted_graph partitioned;
+    private int partitionMC;
+    private int supersteps;
+    private long messages;
+    private boolean closed;
+
+    /**
+     * Batch of messages from one shard to another: (vertex key, value, parent key).
+     */
+    private static final class Messages {
+        int[] keys = new int[16];
+        double[] values = new double[16];
+        int[] parents = new int[16];
+        int size;
+
+        void add(int key, double value, int parent) {
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.values = Arrays.copyOf(this.values, capacity);
+                this.parents = Arrays.copyOf(this.parents, capacity);
+            }
+            this.keys[this.size] = key;
+            this.values[this.size] = value;
+            this.parents[this.size++] = parent;
+        }
+    }
+
+    /**
+     * The vertices of one shard and the state of the computations on them, used only by the worker of the
+     * shard (and by the coordinator between the supersteps).
+     */
+    private static final class Shard {
+        final int index;
+        final IntIntMap local = new IntIntMap(-1);
+        int[] keys = new int[16];
+        int[] offsets = {0};
+        int[] targetKeys = new int[16];
+        double[] weights = new double[16];
+        /**
+         * Owner shard of each neighbor, and its local id if it is owned by this shard (else -1).
+         */
+        int[] owners;
+        int[] targetIds;
+        int size;
+        /**
+         * Outgoing messages by parity of the superstep and destination shard.
+         */
+        final Messages[][] out;
+
+        double[] dist;
+        /**
+         * Key of the parent of every vertex (it may be owned by another shard), valid iff hasParent.
+         */
+        int[] parent;
+        boolean[] hasParent;
+        IndexedDHeap heap;
+        int[] label;
+        boolean[] queued;
+        int[] stack;
+
+        Shard(int index, int shardCount) {
+            this.index = index;
+            this.out = new Messages[2][shardCount];
+            for (int p = 0; p < 2; p++) {
+                for (int s = 0; s < shardCount; s++) this.out[p][s] = new Messages();
+            }
+        }
+
+        void addVertex(weighted_graph g, int key) {
+            if (this.size == this.keys.length) this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            if (this.size + 2 > this.offsets.length) this.offsets = Arrays.copyOf(this.offsets, this.keys.length + 1);
+            this.local.put(key, this.size);
+            this.keys[this.size] = key;
+            int[] end = {this.offsets[this.size]};
+            g.forEachNeighbor(key, (v, w) -> {
+                if (end[0] == this.targetKeys.length) {
+                    this.targetKeys = Arrays.copyOf(this.targetKeys, end[0] * 2);
+                    this.weights = Arrays.copyOf(this.weights, end[0] * 2);
+                }
+                this.targetKeys[end[0]] = v;
+                this.weights[end[0]++] = w;
+            });
+            this.offsets[++this.size] = end[0];
+        }
+
+        /**
+         * Called when all the shards have their vertices.
+         */
+        void finish(Shard[] shards) {
+            int m = this.offsets[this.size];
+            this.owners = new int[m];
+            this.targetIds = new int[m];
+            for (int e = 0; e < m; e++) {
+                int owner = owner(this.targetKeys[e], shards.length);
+                this.owners[e] = owner;
+                this.targetIds[e] = owner == this.index ? this.local.get(this.targetKeys[e]) : -1;
+            }
+            this.dist = new double[this.size];
+            this.parent = new int[this.size];
+            this.hasParent = new boolean[this.size];
+            this.heap = new IndexedDHeap(ARITY, Math.max(this.size, 1));
+            this.label = new int[this.size];
+            this.queued = new boolean[this.size];
+            this.stack = new int[this.size];
+        }
+
+        private Messages[] outbox(int step) {
+            Messages[] outbox = this.out[step & 1];
+            for (Messages m : outbox) m.size = 0;
+            return outbox;
+        }
+
+        //Shortest paths
+
+        void resetDistances() {
+            Arrays.fill(this.dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.hasParent, false);
+            this.heap.clear();
+        }
+
+        void seed(int key) {
+            int v = this.local.get(key);
+            this.dist[v] = 0;
+            this.heap.push(v, 0, key);
+        }
+
+        double distOf(int key) {
+            return this.dist[this.local.get(key)];
+        }
+
+        boolean hasParent(int key) {
+            return this.hasParent[this.local.get(key)];
+        }
+
+        int parentOf(int key) {
+            return this.parent[this.local.get(key)];
+        }
+
+        /**
+         * Superstep of the shortest paths: apply the received distances, then Dijkstra on the shard
+         * (below the bound) - sending the distances of the boundary vertices.
+         * @return number of messages sent
+         */
+        int shortestPathStep(Shard[] shards, int step, double bound) {
+            Messages[] outbox = outbox(step);
+            if (step > 0) {
+                for (Shard s : shards) {
+                    Messages in = s.out[(step - 1) & 1][this.index];
+                    for (int i = 0; i < in.size; i++) {
+                        lower(this.local.get(in.keys[i]), in.values[i], in.parents[i]);
+                    }
+                }
+            }
+            int sent = 0;
+            while (!this.heap.isEmpty()) {
+                //Nothing from here on can lead to a shorter path to dest
+                if (this.heap.peekPriority() >= bound) {
+                    this.heap.clear();
+                    break;
+                }
+                int u = this.heap.pop();
+                double du = this.dist[u];
+                int uKey = this.keys[u];
+                for (int e = this.offsets[u], end = this.offsets[u + 1]; e < end; e++) {
+                    double t = du + this.weights[e];
+                    if (t >= bound) continue;
+                    int v = this.targetIds[e];
+                    if (v >= 0) {
+                        lower(v, t, uKey);
+                    } else {
+                        outbox[this.owners[e]].add(this.targetKeys[e], t, uKey);
+                        sent++;
+                    }
+                }
+            }
+            return sent;
+        }
+
+        private void lower(int v, double d, int parentKey) {
+            if (d < this.dist[v]) {
+                this.dist[v] = d;
+                this.parent[v] = parentKey;
+                this.hasParent[v] = true;
+                this.heap.pushOrDecrease(v, d, this.keys[v]);
+            }
+        }
+
+        //Connectivity
+
+        /**
+         * Superstep of the components: apply the received labels (every vertex starts with its own key),
+         * spread the smaller labels inside the shard - sending them to the boundary vertices.
+         * @return number of messages sent
+         */
+        int componentStep(Shard[] shards, int step) {
+            Messages[] outbox = outbox(step);
+            int top = 0;
+            if (step == 0) {
+                for (int v = 0; v < this.size; v++) {
+                    this.label[v] = this.keys[v];
+                    this.queued[v] = true;
+                    this.stack[top++] = v;
+                }
+            } else {
+                for (Shard s : shards) {
+                    Messages in = s.out[(step - 1) & 1][this.index];
+                    for (int i = 0; i < in.size; i++) {
+                        int v = this.local.get(in.keys[i]);
+                        int l = (int) in.values[i];
+                        if (l < this.label[v]) {
+                            this.label[v] = l;
+                            if (!this.queued[v]) {
+                                this.queued[v] = true;
+                                this.stack[top++] = v;
+                            }
+                        }
+                    }
+                }
+            }
+            int sent = 0;
+            while (top > 0) {
+                int u = this.stack[--top];
+                this.queued[u] = false;
+                int l = this.label[u];
+                for (int e = this.offsets[u], end = this.offsets[u + 1]; e < end; e++) {
+                    int v = this.targetIds[e];
+                    if (v < 0) {
+                        //The labels have no parent
+                        outbox[this.owners[e]].add(this.targetKeys[e], l, 0);
+                        sent++;
+                    } else if (l < this.label[v]) {
+                        this.label[v] = l;
+                        if (!this.queued[v]) {
+                            this.queued[v] = true;
+                            this.stack[top++] = v;
+                        }
+                    }
+                }
+            }
+            return sent;
+        }
+
+        /**
+         * Number of vertices which are the label of their component.
+         */
+        int roots() {
+            int count = 0;
+            for (int v = 0; v < this.size; v++) {
+                if (this.label[v] == this.keys[v]) count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Default constructor - a shard per available processor.
+     */
+    public WGraph_Sharded() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param shards number of shards (and workers)
+     */
+    public WGraph_Sharded(int shards) {
+        if (shards < 1) throw new IllegalArgumentException("shards = " + shards);
+        this.shardCount = shards;
+        this.workers = new ExecutorService[shards];
+        for (int i = 0; i < shards; i++) {
+            String name = "WGraph_Sharded-worker-" + i;
+            this.workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * @param g graph
+     * @param shards number of shards (and workers)
+     */
+    public WGraph_Sharded(weighted_graph g, int shards) {
+        this(shards);
+        init(g);
+    }
+
+    /**
+     * Shard of the given key (between 0 and shards-1).
+     */
+    static int owner(int key, int shards) {
+        int h = key * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shards);
+    }
+
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    /**
+     * Number of supersteps of the last computation.
+     * @return int
+     */
+    public synchronized int lastSupersteps() {
+        return this.supersteps;
+    }
+
+    /**
+     * Number of messages sent between the shards by the last computation.
+     * @return long
+     */
+    public synchronized long lastMessages() {
+        return this.messages;
+    }
+
+    /**
+     * Stop the workers, calling it again does nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) return;
+        this.closed = true;
+        for (ExecutorService worker : this.workers) worker.shutdownNow();
+        this.shards = null;
+        this.partitioned = null;
+    }
+
+    /**
+     * Init the graph on which this set of algorithms operates on.
+     * @param g
+     */
+    @Override
+    public synchronized void init(weighted_graph g) {
+        this.algo.init(g);
+        this.shards = null;
+        this.partitioned = null;
+    }
+
+    /**
+     * Return the underlying graph of which this class works.
+     * @return
+     */
+    @Override
+    public weighted_graph getGraph() {
+        return this.algo.getGraph();
+    }
+
+    /**
+     * Compute a deep copy of this weighted graph.
+     * @return
+     */
+    @Override
+    public weighted_graph copy() {
+        return this.algo.copy();
+    }
+
+    /**
+     * Shards of the graph, partitioned again if the graph was changed.
+     */
+    private Shard[] shards() {
+        if (this.closed) throw new IllegalStateException("WGraph_Sharded is closed");
+        weighted_graph g = this.algo.getGraph();
+        if (g == null) return null;
+        if (this.shards != null && this.partitioned == g && this.partitionMC == g.getMC()) return this.shards;
+
+        Shard[] shards = new Shard[this.shardCount];
+        for (int i = 0; i < shards.length; i++) shards[i] = new Shard(i, shards.length);
+        for (node_info x : g.getV()) {
+            shards[owner(x.getKey(), shards.length)].addVertex(g, x.getKey());
+        }
+        for (Shard s : shards) s.finish(shards);
+        this.shards = shards;
+        this.partitioned = g;
+        this.partitionMC = g.getMC();
+        return shards;
+    }
+
+    /**
+     * Run the step on all the shards (every shard by its worker) and wait for all of them - the barrier.
+     * @return number of messages sent by the step
+     */
+    private long superstep(Shard[] shards, ToIntFunction<Shard> step) {
+        List<Future<Integer>> results = new ArrayList<>(shards.length);
+        for (Shard s : shards) {
+            results.add(this.workers[s.index].submit(() -> step.applyAsInt(s)));
+        }
+        long sent = 0;
+        try {
+            for (Future<Integer> f : results) sent += f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        this.supersteps++;
+        this.messages += sent;
+        return sent;
+    }
+
+    /**
+     * Shortest paths from src in supersteps, until no messages are sent (or dest is known and nothing can
+     * be shorter).
+     * @param dest end node, ignored if toDest is false
+     * @param toDest false for the distances of all the nodes
+     */
+    private void shortestPaths(Shard[] shards, int src, int dest, boolean toDest) {
+        this.supersteps = 0;
+        this.messages = 0;
+        for (Shard s : shards) s.resetDistances();
+        shards[owner(src, shards.length)].seed(src);
+        Shard destShard = toDest ? shards[owner(dest, shards.length)] : null;
+        double[] bound = {Double.POSITIVE_INFINITY};
+        int[] step = {0};
+        long sent;
+        do {
+            sent = superstep(shards, s -> s.shortestPathStep(shards, step[0], bound[0]));
+            if (destShard != null) bound[0] = Math.min(bound[0], destShard.distOf(dest));
+            step[0]++;
+        } while (sent > 0);
+    }
+
+    private double distOf(Shard[] shards, int key) {
+        double d = shards[owner(key, shards.length)].distOf(key);
+        return d == Double.POSITIVE_INFINITY ? -1 : d;
+    }
+
+    /**
+     * Returns true if and only if (iff) there is a valid path from EVERY node to each
+     * other node, by the components computed in supersteps.
+     * @return true = Is connected ,false = Is not connected
+     */
+    @Override
+    public synchronized boolean isConnected() {
+        Shard[] shards = shards();
+        return shards == null || components(shards) <= 1;
+    }
+
+    /**
+     * Returns the number of connected components of the graph (0 for the empty graph).
+     * @return int
+     */
+    public synchronized int componentCount() {
+        Shard[] shards = shards();
+        return shards == null ? 0 : components(shards);
+    }
+
+    private int components(Shard[] shards) {
+        this.supersteps = 0;
+        this.messages = 0;
+        int[] step = {0};
+        long sent;
+        do {
+            sent = superstep(shards, s -> s.componentStep(shards, step[0]));
+            step[0]++;
+        } while (sent > 0);
+        int count = 0;
+        for (Shard s : shards) count += s.roots();
+        return count;
+    }
+
+    /**
+     * returns the length of the shortest path between src to dest.
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return Sum of all weights between vertices, -1 if there is no such path.
+     */
+    @Override
+    public synchronized double shortestPathDist(int src, int dest) {
+        Shard[] shards = shards();
+        weighted_graph g = getGraph();
+        if (shards == null || g.getNode(src) == null || g.getNode(dest) == null) return -1;
+        shortestPaths(shards, src, dest, true);
+        return distOf(shards, dest);
+    }
+
+    /**
+     * returns the the shortest path between src to dest - as an ordered List of nodes,
+     * following the parents of the vertices back from dest (every parent is kept by the owner of the vertex).
+     * @param src - start node
+     * @param dest - end (target) node
+     * @return List of vertices, null if there is no such path.
+     */
+    @Override
+    public synchronized List<node_info> shortestPath(int src, int dest) {
+        Shard[] shards = shards();
+        weighted_graph g = getGraph();
+        if (shards == null || g.getNode(src) == null || g.getNode(dest) == null) return null;
+        shortestPaths(shards, src, dest, true);
+        if (distOf(shards, dest) < 0) return null;
+        LinkedList<node_info> path = new LinkedList<>();
+        int key = dest;
+        path.addFirst(g.getNode(key));
+        Shard owner = shards[owner(key, shards.length)];
+        //The source has no parent
+        while (owner.hasParent(key)) {
+            key = owner.parentOf(key);
+            path.addFirst(g.getNode(key));
+            owner = shards[owner(key, shards.length)];
+        }
+        return path;
+    }
+
+    /**
+     * returns the table of the lengths of the shortest paths between every source and every target,
+     * the distances from every source are computed in supersteps.
+     * @param sources - start nodes
+     * @param targets - end (target) nodes
+     * @return double[sources.length][targets.length], -1 if there is no such path.
+     */
+    @Override
+    public synchronized double[][] distanceMatrix(int[] sources, int[] targets) {
+        double[][] table = new double[sources.length][targets.length];
+        Shard[] shards = shards();
+        weighted_graph g = getGraph();
+        for (int i = 0; i < sources.length; i++) {
+            Arrays.fill(table[i], -1);
+            if (shards == null || g.getNode(sources[i]) == null) continue;
+            shortestPaths(shards, sources[i], 0, false);
+            for (int j = 0; j < targets.length; j++) {
+                if (g.getNode(targets[j]) != null) table[i][j] = distOf(shards, targets[j]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Saves this weighted (undirected) graph to the given file name (as WGraph_Algo).
+     * @param file - the file name (may include a relative path).
+     * @return true - iff the file was successfully saved
+     */
+    @Override
+    public boolean save(String file) {
+        return this.algo.save(file);
+    }
+
+    /**
+     * Load a graph to this graph algorithm (as WGraph_Algo).
+     * @param file - file name
+     * @return true - iff the graph was successfully loaded.
+     */
+    @Override
+    public synchronized boolean load(String file) {
+        boolean loaded = this.algo.load(file);
+        this.shards = null;
+        this.partitioned = null;
+        return loaded;
+    }
+}
@@ -0,0 +1,236 @@
+package ex1.src;
+
+import java.util.*;
+
+/**
+ * The WGraph_Snapshot class is a read-only version of a WGraph_DS at the moment it was taken
+ * (see WGraph_DS#snapshot()), the class contains:
+ * - The key -> slot map, nodes and neighbors arrays of the graph at that moment - shared with the graph,
+ *   the graph copies a structure before it changes it while the snapshot is open.
+ * - Node and edge counts and the Mode Count of the graph at that moment.
+ *
+ * The structure of the snapshot is read-only (addNode, connect, removeNode and removeEdge
+ * throw UnsupportedOperationException), the nodes are shared with the graph so the tag and info
+ * may still be changed and the algorithms of WGraph_Algo can run on it unchanged.
+ * Close the snapshot when it is no longer needed so the graph can reclaim the old version,
+ * any use of a closed snapshot throws IllegalStateException.
+ *
+ * @see weighted_graph
+ * @see WGraph_DS#snapshot()
+ */
+
+public class WGraph_Snapshot implements weighted_graph, AutoCloseable {
+
+    private final WGraph_DS graph;
+    private final int version;
+    private final IntIntMap slots;
+    private final node_info[] nodes;
+    private final IntDoubleMap[] neighbors;
+    private final int slotLimit;
+    private final int edgeSize;
+    private final int countMC;
+    private final Collection<node_info> nodeView = new NodeView();
+    private volatile boolean closed;
+
+    WGraph_Snapshot(WGraph_DS graph, int version, IntIntMap slots, node_info[] nodes, IntDoubleMap[] neighbors,
+                    int slotLimit, int edgeSize, int countMC) {
+        this.graph = graph;
+        this.version = version;
+        this.slots = slots;
+        this.nodes = nodes;
+        this.neighbors = neighbors;
+        this.slotLimit = slotLimit;
+        this.edgeSize = edgeSize;
+        this.countMC = countMC;
+    }
+
+    private void ensureOpen() {
+        if (this.closed) throw new IllegalStateException("snapshot is closed");
+    }
+
+    private IntDoubleMap neighborsOf(int key) {
+        ensureOpen();
+        int slot = this.slots.get(key);
+        return slot < 0 ? null : this.neighbors[slot];
+    }
+
+    /**
+     * The graph of the snapshot.
+     * @return WGraph_DS
+     */
+    public WGraph_DS getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * return true if the snapshot was closed.
+     * @return boolean
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Release the version of the snapshot, calling it again does nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+        }
+        this.graph.release(this.version);
+    }
+
+    /**
+     * return the node_data by the node_id,
+     * @param key - the node_id
+     * @return the node_data by the node_id, null if none.
+     */
+    @Override
+    public node_info getNode(int key) {
+        ensureOpen();
+        int slot = this.slots.get(key);
+        return slot < 0 ? null : this.nodes[slot];
+    }
+
+    /**
+     * return true if (if and only if) there is an edge between node1 and node2.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @return true - There is a edge between 2 vertices.
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        IntDoubleMap one = neighborsOf(node1);
+        return one != null && one.containsKey(node2);
+    }
+
+    /**
+     * return the weight if the edge (node1, node1).
+     * @param node1 key of node1
+     * @param node2 key of node2
+     * @return If there is a edge = returns the weight of the edge, If no edge exists = returns -1.
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        IntDoubleMap one = neighborsOf(node1);
+        return one == null ? -1 : one.get(node2);
+    }
+
+    @Override
+    public void addNode(int key) {
+        throw new UnsupportedOperationException("WGraph_Snapshot is read-only");
+    }
+
+    @Override
+    public void connect(int node1, int node2, double w) {
+        throw new UnsupportedOperationException("WGraph_Snapshot is read-only");
+    }
+
+    /**
+     * Unmodifiable view of all the nodes in the snapshot.
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        ensureOpen();
+        return this.nodeView;
+    }
+
+    /**
+     * This method returns a Collection containing all the
+     * nodes connected to node_id in the snapshot.
+     * @return Collection<node_info>, empty if there is no such node.
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        IntDoubleMap nei = neighborsOf(node_id);
+        if (nei == null) return new ArrayList<>();
+        Collection<node_info> getNei = new ArrayList<>(nei.size());
+        for (int i = 0, n = nei.slots(); i < n; i++) {
+            if (nei.usedAt(i)) getNei.add(this.nodes[this.slots.get(nei.keyAt(i))]);
+        }
+        return getNei;
+    }
+
+    /**
+     * Visit all the neighbors of node_id in the snapshot.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    @Override
+    public void forEachNeighbor(int node_id, neighbor_consumer action) {
+        IntDoubleMap nei = neighborsOf(node_id);
+        if (nei == null) return;
+        for (int i = 0, n = nei.slots(); i < n; i++) {
+            if (nei.usedAt(i)) action.accept(nei.keyAt(i), nei.valueAt(i));
+        }
+    }
+
+    @Override
+    public node_info removeNode(int key) {
+        throw new UnsupportedOperationException("WGraph_Snapshot is read-only");
+    }
+
+    @Override
+    public void removeEdge(int node1, int node2) {
+        throw new UnsupportedOperationException("WGraph_Snapshot is read-only");
+    }
+
+    @Override
+    public int nodeSize() {
+        ensureOpen();
+        return this.slots.size();
+    }
+
+    @Override
+    public int edgeSize() {
+        ensureOpen();
+        return this.edgeSize;
+    }
+
+    /**
+     * return the Mode Count of the graph at the moment the snapshot was taken.
+     * @return int variable
+     */
+    @Override
+    public int getMC() {
+        ensureOpen();
+        return this.countMC;
+    }
+
+    private class NodeView extends AbstractCollection<node_info> {
+
+        @Override
+        public Iterator<node_info> iterator() {
+            ensureOpen();
+            return new Iterator<node_info>() {
+                private int slot = advance(0);
+
+                private int advance(int from) {
+                    while (from < slotLimit && nodes[from] == null) from++;
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return this.slot < slotLimit;
+                }
+
+                @Override
+                public node_info next() {
+                    if (this.slot >= slotLimit) throw new NoSuchElementException();
+                    node_info x = nodes[this.slot];
+                    this.slot = advance(this.slot + 1);
+                    return x;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return nodeSize();
+        }
+    }
+}
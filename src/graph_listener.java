@@ -0,0 +1,43 @@
+package ex1.src;
+
+/**
+ * This interface represents a listener of the changes of a graph (see WGraph_DS#addListener),
+ * it is called by the thread of the change, after the change (while the graph is locked), so getMC()
+ * of the graph is the Mode Count of the change.
+ * The removal of a node is reported as the removal of each of its edges and then of the node.
+ *
+ */
+public interface graph_listener {
+    /**
+     * Called after a node was added.
+     * @param key - the new node
+     */
+    public default void nodeAdded(int key) {
+    }
+
+    /**
+     * Called after a node was removed (its edges were reported as removed before).
+     * @param key - the removed node
+     */
+    public default void nodeRemoved(int key) {
+    }
+
+    /**
+     * Called after an edge was added or its weight was changed.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @param previous - the previous weight of the edge, -1 for a new edge
+     * @param w - the new weight of the edge
+     */
+    public default void edgeUpdated(int node1, int node2, double previous, double w) {
+    }
+
+    /**
+     * Called after an edge was removed.
+     * @param node1 - key of node1
+     * @param node2 - key of node2
+     * @param w - the weight of the removed edge
+     */
+    public default void edgeRemoved(int node1, int node2, double w) {
+    }
+}
@@ -0,0 +1,14 @@
+package ex1.src;
+
+/**
+ * This interface represents a listener of the runs of the algorithms of WGraph_Algo
+ * (see WGraph_Metrics#addListener), it is called by the thread of the run, after the run.
+ *
+ */
+public interface metrics_listener {
+    /**
+     * Called after every run of an algorithm, while the metrics are enabled.
+     * @param run - the counters of the run
+     */
+    public void runFinished(WGraph_Metrics.Run run);
+}
@@ -0,0 +1,16 @@
+package ex1.src;
+
+/**
+ * This interface represents a visitor of the neighbors of a node (see weighted_graph#forEachNeighbor),
+ * it gets the key of the neighbor and the weight of the edge together - no node_info and no boxing.
+ *
+ */
+@FunctionalInterface
+public interface neighbor_consumer {
+    /**
+     * Called once for every neighbor of the node.
+     * @param key - key of the neighbor
+     * @param w - weight of the edge to the neighbor
+     */
+    public void accept(int key, double w);
+}
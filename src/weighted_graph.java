@@ -61,6 +61,18 @@ public interface weighted_graph {
      * @return Collection<node_data>
      */
     public Collection<node_info> getV(int node_id);
+    /**
+     * Visit all the neighbors of node_id with the weights of the edges, without allocating
+     * (the default implementation goes over getV(node_id) and getEdge).
+     * Note: this method should run in O(k) time, k - being the degree of node_id.
+     * @param node_id
+     * @param action - called with the key of every neighbor and the weight of the edge
+     */
+    public default void forEachNeighbor(int node_id, neighbor_consumer action) {
+        for (node_info n : getV(node_id)) {
+            action.accept(n.getKey(), getEdge(node_id, n.getKey()));
+        }
+    }
     /**
      * Delete the node (with the given ID) from the graph -
      * and removes all edges which starts or ends at this node.
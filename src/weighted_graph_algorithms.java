@@ -8,8 +8,9 @@ import java.util.List;
  * 2. isConnected();
  * 3. double shortestPathDist(int src, int dest);
  * 4. List<node_data> shortestPath(int src, int dest);
- * 5. Save(file);
- * 6. Load(file);
+ * 5. double[][] distanceMatrix(int[] sources, int[] targets);
+ * 6. Save(file);
+ * 7. Load(file);
  *
  * @author boaz.benmoshe
  *
@@ -56,6 +57,16 @@ public interface weighted_graph_algorithms {
      */
     public List<node_info> shortestPath(int src, int dest);
 
+    /**
+     * returns the table of the lengths of the shortest paths between every source and every target:
+     * table[i][j] is the length of the shortest path between sources[i] and targets[j].
+     * Note if no such path --> the entry is -1
+     * @param sources - start nodes
+     * @param targets - end (target) nodes
+     * @return double[sources.length][targets.length]
+     */
+    public double[][] distanceMatrix(int[] sources, int[] targets);
+
     /**
      * Saves this weighted (undirected) graph to the given
      * file name
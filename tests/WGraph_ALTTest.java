@@ -0,0 +1,62 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_ALTTest {
+
+    @Test
+    void shortestPathDistTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = WGraph_AlgoTest.random_graph(wg, 80, 130, 3);
+        WGraph_ALT alt = new WGraph_ALT(wg, 4);
+
+        for (int i = 0; i < 80; i++) {
+            for (int j = 0; j < 80; j++) {
+                double actual = alt.shortestPathDist(i, j);
+                assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], actual);
+                WGraph_AlgoTest.assertPath(wg, i, j, actual, alt.shortestPath(i, j));
+            }
+        }
+        assertEquals(4, alt.landmarks().length);
+        assertEquals(-1, alt.shortestPathDist(0, 100));
+        assertNull(alt.shortestPath(100, 0));
+    }
+
+    @Test
+    void rebuildTest() {
+        weighted_graph wg = WGraph_DSTest.graph_creator(5, 0);
+        wg.connect(0, 1, 1);
+        wg.connect(1, 2, 1);
+        wg.connect(2, 3, 1);
+        WGraph_ALT alt = new WGraph_ALT(wg, 2);
+        assertFalse(alt.isValid());
+
+        assertEquals(3, alt.shortestPathDist(0, 3));
+        assertEquals(-1, alt.shortestPathDist(0, 4));
+        assertTrue(alt.isValid());
+
+        //The graph was changed - the index is rebuilt on the next query
+        wg.connect(0, 3, 1);
+        wg.connect(3, 4, 0.5);
+        assertFalse(alt.isValid());
+        assertEquals(1, alt.shortestPathDist(0, 3));
+        assertEquals(1.5, alt.shortestPathDist(0, 4));
+        assertTrue(alt.isValid());
+    }
+
+    @Test
+    void strategyTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = WGraph_AlgoTest.random_graph(wg, 40, 60, 4);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        wga.setStrategy(WGraph_Algo.Strategy.ALT);
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], wga.shortestPathDist(i, j));
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ex1.tests;
 
 import ex1.src.WGraph_Algo;
 import ex1.src.WGraph_DS;
+import ex1.src.WGraph_Metrics;
+import ex1.src.node_info;
 import ex1.src.weighted_graph;
 import ex1.src.weighted_graph_algorithms;
 import org.junit.jupiter.api.Test;
@@ -105,6 +107,40 @@ class WGraph_AlgoTest {
 
     }
 
+    @Test
+    void componentsTest() {
+        WGraph_DS wg = new WGraph_DS();
+        double[][] expected = random_graph(wg, 60, 50, 4);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+
+        for (weighted_graph graph : new weighted_graph[]{wg, wg.freeze()}) {
+            wga.init(graph);
+            int count = 0;
+            for (int a = 0; a < 60; a++) {
+                boolean root = true;
+                for (int b = 0; b < 60; b++) {
+                    boolean connected = expected[a][b] != Double.POSITIVE_INFINITY;
+                    assertEquals(connected, wga.componentOf(a) == wga.componentOf(b));
+                    if (connected && b < a) root = false;
+                }
+                if (root) count++;
+            }
+            assertEquals(count, wga.componentCount());
+            assertEquals(count == 1, wga.isConnected());
+            assertEquals(-1, wga.componentOf(100));
+        }
+
+        //The labels follow the changes of the graph
+        wga.init(wg);
+        int before = wga.componentCount();
+        wg.addNode(100);
+        assertEquals(before + 1, wga.componentCount());
+        assertEquals(-1, wga.shortestPathDist(0, 100));
+        wg.connect(0, 100, 1);
+        assertEquals(before, wga.componentCount());
+        assertEquals(1, wga.shortestPathDist(0, 100));
+    }
+
     @Test
     void shortestPathDist() {
         weighted_graph wg = graph_creator(6, 0);
@@ -133,6 +169,279 @@ class WGraph_AlgoTest {
 
     }
 
+    /**
+     * Random graph with integer weights, and the distances of all pairs by Floyd-Warshall
+     */
+    public static double[][] random_graph(weighted_graph g, int v_size, int e_size, long seed) {
+        Random r = new Random(seed);
+        for (int i = 0; i < v_size; i++) {
+            g.addNode(i);
+        }
+        while (g.edgeSize() < e_size) {
+            g.connect(r.nextInt(v_size), r.nextInt(v_size), r.nextInt(20));
+        }
+        double[][] d = new double[v_size][v_size];
+        for (int i = 0; i < v_size; i++) {
+            for (int j = 0; j < v_size; j++) {
+                d[i][j] = i == j ? 0 : g.hasEdge(i, j) ? g.getEdge(i, j) : Double.POSITIVE_INFINITY;
+            }
+        }
+        for (int k = 0; k < v_size; k++) {
+            for (int i = 0; i < v_size; i++) {
+                for (int j = 0; j < v_size; j++) {
+                    d[i][j] = Math.min(d[i][j], d[i][k] + d[k][j]);
+                }
+            }
+        }
+        return d;
+    }
+
+    @Test
+    void shortestPathDistRandom() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = random_graph(wg, 60, 90, 1);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+
+        for (WGraph_Algo.Strategy strategy : WGraph_Algo.Strategy.values()) {
+            wga.setStrategy(strategy);
+            for (int i = 0; i < 60; i++) {
+                for (int j = 0; j < 60; j++) {
+                    double actual = wga.shortestPathDist(i, j);
+                    assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], actual);
+                    assertPath(wg, i, j, actual, wga.shortestPath(i, j));
+                }
+            }
+        }
+        assertEquals(-1, wga.shortestPathDist(0, 70, WGraph_Algo.Strategy.BIDIRECTIONAL));
+        assertNull(wga.shortestPath(70, 0, WGraph_Algo.Strategy.FULL_SCAN));
+    }
+
+    /**
+     * Checks that the path is a real path from src to dest of the given length
+     */
+    public static void assertPath(weighted_graph wg, int src, int dest, double dist, List<node_info> path) {
+        if (dist == -1) {
+            assertNull(path);
+            return;
+        }
+        double sum = 0;
+        for (int k = 1; k < path.size(); k++) {
+            assertTrue(wg.hasEdge(path.get(k - 1).getKey(), path.get(k).getKey()));
+            sum += wg.getEdge(path.get(k - 1).getKey(), path.get(k).getKey());
+        }
+        assertEquals(src, path.get(0).getKey());
+        assertEquals(dest, path.get(path.size() - 1).getKey());
+        assertEquals(dist, sum);
+    }
+
+    @Test
+    void distanceMatrixTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = random_graph(wg, 70, 120, 9);
+        weighted_graph_algorithms wga = new WGraph_Algo(wg);
+
+        int[] sources = {0, 5, 9, 33, 69, 100, 5};
+        int[] targets = {3, 0, 68, 200, 9, 12, 12, 45};
+        double[][] table = wga.distanceMatrix(sources, targets);
+        assertEquals(sources.length, table.length);
+        for (int i = 0; i < sources.length; i++) {
+            assertEquals(targets.length, table[i].length);
+            for (int j = 0; j < targets.length; j++) {
+                double d = sources[i] >= 70 || targets[j] >= 70 || expected[sources[i]][targets[j]] == Double.POSITIVE_INFINITY
+                        ? -1 : expected[sources[i]][targets[j]];
+                assertEquals(d, table[i][j]);
+            }
+        }
+        assertEquals(0, wga.distanceMatrix(new int[0], targets).length);
+    }
+
+    @Test
+    void metricsTest() throws Exception {
+        weighted_graph wg = graph_creator(5, 0);
+        wg.connect(0, 1, 1);
+        wg.connect(1, 2, 1);
+        wg.connect(2, 3, 1);
+        wg.connect(0, 3, 5);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        List<WGraph_Metrics.Run> runs = new ArrayList<>();
+        WGraph_Metrics metrics = new WGraph_Metrics();
+        metrics.addListener(runs::add);
+
+        //Disabled by default
+        wga.shortestPathDist(0, 3);
+        assertNull(wga.getMetrics());
+
+        wga.setMetrics(metrics);
+        assertEquals(3, wga.shortestPathDist(0, 3));
+        wga.shortestPath(0, 3);
+        assertFalse(wga.isConnected());
+        wga.copy();
+        assertEquals(4, runs.size());
+        assertEquals(WGraph_Metrics.Operation.SHORTEST_PATH_DIST, runs.get(0).getOperation());
+        //0, 1, 2 and 3 are settled, the edges of 0, 1 and 2 are relaxed
+        assertEquals(4, runs.get(0).getSettledNodes());
+        assertEquals(6, runs.get(0).getRelaxedEdges());
+        assertEquals(4, runs.get(0).getHeapPushes());
+        assertEquals(4, runs.get(0).getHeapPops());
+        assertTrue(runs.get(0).getTimeNanos() > 0);
+        assertEquals(WGraph_Metrics.Operation.IS_CONNECTED, runs.get(2).getOperation());
+        assertEquals(5, runs.get(2).getSettledNodes());
+        assertEquals(8, runs.get(2).getRelaxedEdges());
+        assertEquals(4, runs.get(3).getRelaxedEdges());
+
+        assertEquals(4, metrics.getRuns());
+        assertEquals(4 + 4 + 5 + 5, metrics.getSettledNodes());
+        assertTrue(metrics.getMaxTimeNanos() <= metrics.getTotalTimeNanos());
+
+        //JMX
+        metrics.register("metricsTest");
+        javax.management.ObjectName name = new javax.management.ObjectName("ex1.src:type=WGraph_Metrics,name=\"metricsTest\"");
+        assertEquals(4L, java.lang.management.ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Runs"));
+        metrics.unregister();
+        metrics.reset();
+        assertEquals(0, metrics.getRuns());
+
+        //The bidirectional search pops from both sides, the counters of the earlier runs are not reported again
+        assertEquals(3, wga.shortestPathDist(0, 3, WGraph_Algo.Strategy.BIDIRECTIONAL));
+        WGraph_Metrics.Run bidirectional = runs.get(4);
+        assertTrue(bidirectional.getHeapPops() > 0);
+        assertEquals(bidirectional.getSettledNodes(), bidirectional.getHeapPops());
+        assertTrue(bidirectional.getHeapPops() < 4 + 4);
+        runs.remove(4);
+
+        //The preprocessed strategies report the counters of their queries
+        assertEquals(3, wga.shortestPathDist(0, 3, WGraph_Algo.Strategy.ALT));
+        assertEquals(3, wga.shortestPathDist(0, 3, WGraph_Algo.Strategy.CH));
+        for (WGraph_Metrics.Run run : runs.subList(4, 6)) {
+            assertTrue(run.getHeapPops() > 0);
+            assertTrue(run.getRelaxedEdges() > 0);
+            assertEquals(run.getSettledNodes(), run.getHeapPops());
+            assertTrue(run.getHeapPushes() >= run.getHeapPops());
+        }
+        //Delta-stepping (delta = 3.125) - 0, 1, 2 and 3 pass through bucket 0, 6 light and 2 heavy edges
+        assertEquals(3, wga.shortestPathDist(0, 3, WGraph_Algo.Strategy.DELTA_STEPPING));
+        WGraph_Metrics.Run delta = runs.get(6);
+        assertEquals(4, delta.getSettledNodes());
+        assertEquals(8, delta.getRelaxedEdges());
+        assertEquals(4, delta.getHeapPushes());
+        assertEquals(4, delta.getHeapPops());
+        runs.subList(4, 7).clear();
+
+        wga.setMetrics(null);
+        wga.shortestPathDist(0, 3);
+        assertEquals(4, runs.size());
+    }
+
+    @Test
+    void minValueKeyTest() {
+        //Integer.MIN_VALUE is a key like any other - the path 0 -1- MIN_VALUE -1- 5
+        weighted_graph wg = new WGraph_DS();
+        wg.addNode(0);
+        wg.addNode(Integer.MIN_VALUE);
+        wg.addNode(5);
+        wg.connect(0, Integer.MIN_VALUE, 1);
+        wg.connect(Integer.MIN_VALUE, 5, 1);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        for (WGraph_Algo.Strategy strategy : WGraph_Algo.Strategy.values()) {
+            assertEquals(2, wga.shortestPathDist(0, 5, strategy), strategy.name());
+            assertEquals(3, wga.shortestPath(0, 5, strategy).size(), strategy.name());
+        }
+        assertArrayEquals(new double[][]{{2, 1}}, wga.distanceMatrix(new int[]{0}, new int[]{5, Integer.MIN_VALUE}));
+
+        //The tree of 0 is full, also after it was cached
+        wga.enableTreeCache(2);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(2, wga.shortestPathDist(0, 5));
+            assertEquals(1, wga.shortestPathDist(0, Integer.MIN_VALUE));
+            assertEquals(3, wga.shortestPath(0, 5).size());
+        }
+    }
+
+    @Test
+    void treeCacheTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = random_graph(wg, 40, 70, 8);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        wga.enableTreeCache(2);
+
+        for (int j = 0; j < 40; j++) {
+            double actual = wga.shortestPathDist(0, j);
+            assertEquals(expected[0][j] == Double.POSITIVE_INFINITY ? -1 : expected[0][j], actual);
+            assertPath(wg, 0, j, actual, wga.shortestPath(0, j));
+        }
+        assertEquals(1, wga.getTreeCacheMisses());
+        assertEquals(79, wga.getTreeCacheHits());
+
+        //Third source evicts the least recently used
+        wga.shortestPathDist(1, 2);
+        wga.shortestPathDist(0, 2);
+        wga.shortestPathDist(2, 0);
+        assertEquals(3, wga.getTreeCacheMisses());
+        assertEquals(1, wga.getTreeCacheEvictions());
+        wga.shortestPathDist(0, 5);
+        assertEquals(3, wga.getTreeCacheMisses());
+
+        //Any change of the graph invalidates the trees
+        wg.connect(0, 39, 0);
+        assertEquals(0, wga.shortestPathDist(0, 39));
+        assertEquals(4, wga.getTreeCacheMisses());
+        assertEquals(-1, wga.shortestPathDist(50, 0));
+        assertNull(wga.shortestPath(50, 0));
+
+        wga.disableTreeCache();
+        assertEquals(0, wga.getTreeCacheHits());
+        assertEquals(0, wga.shortestPathDist(39, 0));
+    }
+
+    @Test
+    void tagsAndInfoUnchanged() {
+        weighted_graph wg = graph_creator(10, 20);
+        wg.getNode(3).setInfo("Lior");
+        wg.getNode(3).setTag(7);
+        weighted_graph_algorithms wga = new WGraph_Algo(wg);
+
+        wga.shortestPath(0, 9);
+        wga.shortestPathDist(3, 4);
+        wga.isConnected();
+        assertEquals("Lior", wg.getNode(3).getInfo());
+        assertEquals(7, wg.getNode(3).getTag());
+        assertNull(wg.getNode(0).getInfo());
+        assertEquals(Double.MAX_VALUE, wg.getNode(9).getTag());
+    }
+
+    @Test
+    void concurrentQueries() throws Exception {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = random_graph(wg, 80, 150, 2);
+        weighted_graph_algorithms wga = new WGraph_Algo(wg);
+
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                Random r = new Random(seed);
+                try {
+                    for (int q = 0; q < 2000; q++) {
+                        int src = r.nextInt(80), dest = r.nextInt(80);
+                        double d = expected[src][dest] == Double.POSITIVE_INFINITY ? -1 : expected[src][dest];
+                        assertEquals(d, wga.shortestPathDist(src, dest));
+                        List<node_info> path = wga.shortestPath(src, dest);
+                        if (d != -1) assertEquals(dest, path.get(path.size() - 1).getKey());
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+    }
+
     @Test
     void shortestPath() {
         weighted_graph wg = graph_creator(6, 0);
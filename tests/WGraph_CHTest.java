@@ -0,0 +1,170 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_CHTest {
+
+    @Test
+    void shortestPathDistTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = WGraph_AlgoTest.random_graph(wg, 80, 140, 5);
+        WGraph_CH ch = new WGraph_CH(wg);
+
+        for (int i = 0; i < 80; i++) {
+            for (int j = 0; j < 80; j++) {
+                double actual = ch.shortestPathDist(i, j);
+                assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], actual);
+                WGraph_AlgoTest.assertPath(wg, i, j, actual, ch.shortestPath(i, j));
+            }
+        }
+        assertEquals(-1, ch.shortestPathDist(0, 100));
+        assertNull(ch.shortestPath(100, 0));
+    }
+
+    @Test
+    void gridTest() {
+        //Grid with shortcuts on many levels
+        int n = 30;
+        weighted_graph wg = new WGraph_DS();
+        for (int i = 0; i < n * n; i++) {
+            wg.addNode(i);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (j + 1 < n) wg.connect(i * n + j, i * n + j + 1, 1 + (i * 7 + j * 3) % 5);
+                if (i + 1 < n) wg.connect(i * n + j, (i + 1) * n + j, 1 + (i * 5 + j) % 4);
+            }
+        }
+        WGraph_CH ch = new WGraph_CH(wg);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        assertTrue(ch.shortcutCount() > 0);
+        for (int s = 0; s < n * n; s += 37) {
+            for (int t = 0; t < n * n; t += 41) {
+                double expected = wga.shortestPathDist(s, t);
+                assertEquals(expected, ch.shortestPathDist(s, t));
+                WGraph_AlgoTest.assertPath(wg, s, t, expected, ch.shortestPath(s, t));
+            }
+        }
+    }
+
+    @Test
+    void save_load_Test() {
+        weighted_graph wg = new WGraph_DS();
+        WGraph_AlgoTest.random_graph(wg, 50, 90, 6);
+        WGraph_CH ch = new WGraph_CH(wg);
+        assertTrue(ch.save("newGraph.ch"));
+
+        WGraph_CH loaded = WGraph_CH.load("newGraph.ch", wg);
+        assertNotNull(loaded);
+        assertTrue(loaded.isValid());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(ch.shortestPathDist(0, i), loaded.shortestPathDist(0, i));
+        }
+
+        //Built from another state of the graph
+        wg.removeEdge(0, 1);
+        wg.connect(0, 1, 100);
+        assertNull(WGraph_CH.load("newGraph.ch", wg));
+        assertNull(WGraph_CH.load("noSuchFile.ch", wg));
+        new File("newGraph.ch").delete();
+    }
+
+    @Test
+    void strategyTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = WGraph_AlgoTest.random_graph(wg, 40, 70, 7);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        wga.setStrategy(WGraph_Algo.Strategy.CH);
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], wga.shortestPathDist(i, j));
+            }
+        }
+
+        //The index is saved next to the graph
+        assertTrue(wga.save("chGraph"));
+        assertTrue(new File("chGraph.ch").isFile());
+        WGraph_Algo loaded = new WGraph_Algo();
+        assertTrue(loaded.load("chGraph"));
+        assertEquals(expected[3][17] == Double.POSITIVE_INFINITY ? -1 : expected[3][17],
+                loaded.shortestPathDist(3, 17, WGraph_Algo.Strategy.CH));
+        new File("chGraph").delete();
+        new File("chGraph.ch").delete();
+    }
+
+    @Test
+    void staleIndexTest() throws IOException {
+        //Two graphs of the same shape and Mode Count, with another weight
+        WGraph_Algo a = new WGraph_Algo(cycle(10));
+        WGraph_Algo b = new WGraph_Algo(cycle(0.5));
+        assertEquals(a.getGraph().getMC(), b.getGraph().getMC());
+        assertEquals(3, a.shortestPathDist(0, 3, WGraph_Algo.Strategy.CH));
+        assertTrue(a.save("staleGraph"));
+        assertTrue(new File("staleGraph.ch").isFile());
+
+        //The index of a is deleted when b is saved without an index
+        assertTrue(b.save("staleGraph"));
+        assertFalse(new File("staleGraph.ch").isFile());
+        WGraph_Algo loaded = new WGraph_Algo();
+        assertTrue(loaded.load("staleGraph"));
+        assertEquals(0.5, loaded.shortestPathDist(0, 3, WGraph_Algo.Strategy.CH));
+
+        //An index of another graph with the same header is not loaded
+        WGraph_CH ch = new WGraph_CH(a.getGraph());
+        assertTrue(ch.save("staleGraph.ch"));
+        assertNull(WGraph_CH.load("staleGraph.ch", b.getGraph()));
+
+        //A corrupt index (the first edge starts at a vertex out of range) - the graph is loaded without it
+        assertTrue(new WGraph_CH(b.getGraph()).save("staleGraph.ch"));
+        try (RandomAccessFile f = new RandomAccessFile("staleGraph.ch", "rw")) {
+            f.seek(5 * 4 + 8 + 4 + 4 * 8 + 4);
+            f.writeInt(1000000);
+        }
+        assertNull(WGraph_CH.load("staleGraph.ch", b.getGraph()));
+        WGraph_Algo other = new WGraph_Algo(a.getGraph());
+        assertTrue(other.load("staleGraph"));
+        assertEquals(0.5, other.shortestPathDist(0, 3));
+        new File("staleGraph").delete();
+        new File("staleGraph.ch").delete();
+    }
+
+    @Test
+    void damagedIndexTest() throws IOException {
+        weighted_graph wg = new WGraph_DS();
+        WGraph_AlgoTest.random_graph(wg, 30, 60, 9);
+        WGraph_CH ch = new WGraph_CH(wg);
+        assertTrue(ch.shortcutCount() > 0);
+        assertTrue(ch.save("damagedGraph.ch"));
+        byte[] bytes = java.nio.file.Files.readAllBytes(new File("damagedGraph.ch").toPath());
+        try {
+            //Any byte flipped (header, ranks, edges or the checksum) - the index is not loaded
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] ^= 0x10;
+                java.nio.file.Files.write(new File("damagedGraph.ch").toPath(), bytes);
+                assertNull(WGraph_CH.load("damagedGraph.ch", wg), "byte " + i);
+                bytes[i] ^= 0x10;
+            }
+            java.nio.file.Files.write(new File("damagedGraph.ch").toPath(), bytes);
+            assertNotNull(WGraph_CH.load("damagedGraph.ch", wg));
+        } finally {
+            new File("damagedGraph.ch").delete();
+        }
+    }
+
+    private static weighted_graph cycle(double w) {
+        weighted_graph wg = new WGraph_DS();
+        for (int i = 0; i < 4; i++) {
+            wg.addNode(i);
+        }
+        wg.connect(0, 1, 1);
+        wg.connect(1, 2, 1);
+        wg.connect(2, 3, 1);
+        wg.connect(0, 3, w);
+        return wg;
+    }
+}
@@ -0,0 +1,69 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_CSRTest {
+
+    @Test
+    void freezeTest() {
+        WGraph_DS wg = (WGraph_DS) WGraph_DSTest.graph_creator(10, 20);
+        wg.connect(9, 3, 2.5);
+        wg.getNode(4).setInfo("Lior");
+        weighted_graph csr = wg.freeze();
+
+        assertEquals(wg.nodeSize(), csr.nodeSize());
+        assertEquals(wg.edgeSize(), csr.edgeSize());
+        assertEquals(wg.getMC(), csr.getMC());
+        assertEquals("Lior", csr.getNode(4).getInfo());
+        assertNull(csr.getNode(20));
+
+        for (node_info x : wg.getV()) {
+            assertEquals(wg.getV(x.getKey()).size(), csr.getV(x.getKey()).size());
+            for (node_info v : wg.getV(x.getKey())) {
+                assertTrue(csr.hasEdge(x.getKey(), v.getKey()));
+                assertEquals(wg.getEdge(x.getKey(), v.getKey()), csr.getEdge(x.getKey(), v.getKey()));
+            }
+        }
+        assertFalse(csr.hasEdge(5, 6));
+        assertEquals(-1, csr.getEdge(5, 20));
+        assertEquals(0, csr.getV(20).size());
+
+        //The snapshot does not follow the source graph
+        wg.removeEdge(9, 3);
+        assertTrue(csr.hasEdge(9, 3));
+    }
+
+    @Test
+    void readOnlyTest() {
+        weighted_graph csr = ((WGraph_DS) WGraph_DSTest.graph_creator(3, 2)).freeze();
+        assertThrows(UnsupportedOperationException.class, () -> csr.addNode(5));
+        assertThrows(UnsupportedOperationException.class, () -> csr.connect(0, 2, 1));
+        assertThrows(UnsupportedOperationException.class, () -> csr.removeEdge(0, 1));
+        assertThrows(UnsupportedOperationException.class, () -> csr.removeNode(0));
+    }
+
+    @Test
+    void algorithmsTest() {
+        WGraph_DS wg = new WGraph_DS();
+        for (int i = 0; i < 6; i++) {
+            wg.addNode(i);
+        }
+        wg.connect(0, 1, 1);
+        wg.connect(1, 2, 1);
+        wg.connect(3, 2, 1);
+        wg.connect(3, 5, 1);
+        wg.connect(5, 0, 5);
+
+        weighted_graph_algorithms wga = new WGraph_Algo(wg.freeze());
+        assertEquals(4, wga.shortestPathDist(0, 5));
+        assertEquals(5, wga.shortestPath(0, 5).size());
+        assertEquals(-1, wga.shortestPathDist(0, 4));
+        assertFalse(wga.isConnected());
+        weighted_graph copy = wga.copy();
+        assertEquals(wg.nodeSize(), copy.nodeSize());
+        assertEquals(wg.edgeSize(), copy.edgeSize());
+    }
+}
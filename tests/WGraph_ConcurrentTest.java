@@ -0,0 +1,99 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_ConcurrentTest {
+
+    @Test
+    void sameAsWGraph_DSTest() {
+        WGraph_DS wg = new WGraph_DS();
+        WGraph_Concurrent cg = new WGraph_Concurrent();
+        Random r = new Random(3);
+        for (int step = 0; step < 5000; step++) {
+            int a = r.nextInt(40), b = r.nextInt(40), op = r.nextInt(10);
+            double w = r.nextInt(5);
+            for (weighted_graph g : new weighted_graph[]{wg, cg}) {
+                if (op < 5) g.connect(a, b, w);
+                else if (op < 7) g.removeEdge(a, b);
+                else if (op < 9) g.addNode(a);
+                else g.removeNode(a);
+            }
+        }
+        assertEquals(wg, cg);
+        assertEquals(wg.getMC(), cg.getMC());
+        for (node_info n : wg.getV()) {
+            assertEquals(wg.getV(n.getKey()).size(), cg.getV(n.getKey()).size());
+        }
+        assertEquals(-1, cg.getEdge(100, 1));
+        assertNull(cg.removeNode(100));
+
+        //The algorithms run on it unchanged
+        WGraph_Algo wga = new WGraph_Algo(cg);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(new WGraph_Algo(wg).shortestPathDist(0, i), wga.shortestPathDist(0, i));
+        }
+    }
+
+    @Test
+    void concurrentChangesTest() throws InterruptedException {
+        WGraph_Concurrent cg = new WGraph_Concurrent(1000, 8);
+        int n = 200;
+        for (int i = 0; i < n; i++) cg.addNode(i);
+
+        AtomicBoolean done = new AtomicBoolean();
+        Throwable[] failure = new Throwable[1];
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            long seed = t;
+            writers[t] = new Thread(() -> {
+                Random r = new Random(seed);
+                for (int step = 0; step < 20000; step++) {
+                    int a = r.nextInt(n), b = r.nextInt(n), op = r.nextInt(20);
+                    if (op < 12) cg.connect(a, b, 1 + r.nextInt(9));
+                    else if (op < 18) cg.removeEdge(a, b);
+                    else if (op < 19) cg.removeNode(a);
+                    else cg.addNode(a);
+                }
+            });
+        }
+        //Readers see an edge weight that was written, from both sides of the edge or none
+        Thread reader = new Thread(() -> {
+            Random r = new Random(99);
+            try {
+                while (!done.get()) {
+                    int a = r.nextInt(n), b = r.nextInt(n);
+                    double w = cg.getEdge(a, b);
+                    assertTrue(w == -1 || (w >= 1 && w <= 9));
+                    for (node_info v : cg.getV(a)) assertNotNull(v);
+                }
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        reader.start();
+        for (Thread w : writers) w.start();
+        for (Thread w : writers) w.join();
+        done.set(true);
+        reader.join();
+        assertNull(failure[0]);
+
+        //Symmetric edges, and counters equal to the content
+        int degrees = 0;
+        for (node_info x : cg.getV()) {
+            for (node_info v : cg.getV(x.getKey())) {
+                assertEquals(cg.getEdge(x.getKey(), v.getKey()), cg.getEdge(v.getKey(), x.getKey()));
+                degrees++;
+            }
+        }
+        assertEquals(degrees, 2 * cg.edgeSize());
+        int nodes = 0;
+        for (node_info x : cg.getV()) nodes++;
+        assertEquals(nodes, cg.nodeSize());
+    }
+}
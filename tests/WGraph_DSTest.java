@@ -1,9 +1,11 @@
 package ex1.tests;
-import ex1.src.WGraph_DS;
-import ex1.src.node_info;
-import ex1.src.weighted_graph;
+import ex1.src.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class WGraph_DSTest {
@@ -96,6 +98,213 @@ class WGraph_DSTest {
         assertEquals(1, actual);
     }
 
+    @Test
+    void edgeChurnTest() {
+        weighted_graph wg = new WGraph_DS();
+        for (int i = -50; i < 50; i++) {
+            wg.addNode(i);
+        }
+        //Connect every node to its 10 next nodes, then remove half of the edges and connect them again
+        for (int i = -50; i < 50; i++) {
+            for (int j = i + 1; j <= i + 10 && j < 50; j++) {
+                wg.connect(i, j, i + j + 100);
+            }
+        }
+        int edges = wg.edgeSize();
+        for (int i = -50; i < 50; i += 2) {
+            for (int j = i + 1; j <= i + 10 && j < 50; j++) {
+                wg.removeEdge(j, i);
+            }
+        }
+        for (int i = -50; i < 50; i += 2) {
+            assertFalse(wg.hasEdge(i, i + 1));
+            assertEquals(-1, wg.getEdge(i + 1, i));
+        }
+        for (int i = -50; i < 50; i++) {
+            for (int j = i + 1; j <= i + 10 && j < 50; j++) {
+                wg.connect(j, i, i + j + 100);
+            }
+        }
+        assertEquals(edges, wg.edgeSize());
+        for (int i = -50; i < 50; i++) {
+            for (int j = i + 1; j <= i + 10 && j < 50; j++) {
+                assertEquals(i + j + 100, wg.getEdge(i, j));
+            }
+        }
+        assertEquals(20, wg.getV(0).size());
+        assertEquals(0, wg.getV(100).size());
+    }
+
+    @Test
+    void connectivityIndexTest() {
+        WGraph_DS wg = new WGraph_DS();
+        for (int i = 0; i < 20; i++) {
+            wg.addNode(i);
+        }
+        wg.enableConnectivityIndex();
+        assertEquals(20, wg.componentCount());
+
+        //Random changes, the index is checked against a full scan after each one
+        java.util.Random r = new java.util.Random(11);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        for (int step = 0; step < 2000; step++) {
+            int a = r.nextInt(30), b = r.nextInt(30), op = r.nextInt(10);
+            if (op < 5) wg.connect(a, b, 1);
+            else if (op < 8) wg.removeEdge(a, b);
+            else if (op < 9) wg.addNode(a);
+            else wg.removeNode(a);
+
+            //componentCount of WGraph_Algo labels the components by a full scan
+            int expected = wga.componentCount();
+            assertEquals(expected, wg.componentCount());
+            assertEquals(expected <= 1, wga.isConnected());
+            assertEquals(wga.componentOf(a) >= 0 && wga.componentOf(a) == wga.componentOf(b), wg.sameComponent(a, b));
+        }
+    }
+
+    @Test
+    void connectivityIndexConcurrentTest() throws InterruptedException {
+        //The index is enabled and disabled while another thread keeps changing the graph
+        WGraph_DS wg = new WGraph_DS();
+        for (int i = 0; i < 3000; i++) {
+            wg.addNode(i);
+        }
+        Thread writer = new Thread(() -> {
+            java.util.Random r = new java.util.Random(12);
+            for (int step = 0; step < 300000; step++) {
+                //A path, so the scans of the index take long, and edges which are removed again
+                int a = r.nextInt(3000);
+                if (step % 2 == 0) wg.connect(a, (a + 1) % 3000, 1);
+                else wg.removeEdge(a, (a + 1) % 3000);
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 200 && writer.isAlive(); i++) {
+            wg.disableConnectivityIndex();
+            wg.enableConnectivityIndex();
+        }
+        writer.join();
+        assertEquals(new WGraph_Algo(wg).componentCount(), wg.componentCount());
+    }
+
+    @Test
+    void copyTest() {
+        WGraph_DS wg = (WGraph_DS) graph_creator(50, 300);
+        wg.removeNode(7);
+        wg.getNode(3).setInfo("three");
+        wg.getNode(3).setTag(3);
+
+        WGraph_DS copy = wg.copy();
+        assertEquals(wg, copy);
+        assertNotSame(wg.getNode(3), copy.getNode(3));
+        copy.removeEdge(0, 1);
+        copy.getNode(3).setTag(4);
+        copy.addNode(7);
+        assertTrue(wg.hasEdge(0, 1));
+        assertEquals(3, wg.getNode(3).getTag());
+        assertNull(wg.getNode(7));
+    }
+
+    @Test
+    void lazyCopyTest() {
+        WGraph_DS wg = (WGraph_DS) graph_creator(50, 300);
+        WGraph_DS lazy = wg.lazyCopy();
+        assertEquals(wg, lazy);
+
+        //Changes of the copy do not change the graph, and the other way around
+        lazy.removeEdge(0, 1);
+        lazy.connect(0, 2, 9);
+        lazy.removeNode(5);
+        wg.connect(1, 2, 7);
+        wg.removeEdge(0, 3);
+        assertTrue(wg.hasEdge(0, 1));
+        assertEquals(4, wg.getEdge(2, 0));
+        assertTrue(wg.hasEdge(5, 0));
+        assertFalse(lazy.hasEdge(0, 1));
+        assertEquals(9, lazy.getEdge(2, 0));
+        assertEquals(4, lazy.getEdge(1, 2));
+        assertTrue(lazy.hasEdge(0, 3));
+        assertNull(lazy.getNode(5));
+
+        //Same as a deep copy after the same changes
+        WGraph_DS deep = wg.copy();
+        WGraph_DS lazy2 = wg.lazyCopy();
+        for (int i = 0; i < 50; i++) {
+            deep.connect(i, (i * 7) % 50, i);
+            lazy2.connect(i, (i * 7) % 50, i);
+            deep.removeEdge(i, (i + 1) % 50);
+            lazy2.removeEdge(i, (i + 1) % 50);
+        }
+        assertEquals(deep, lazy2);
+        assertNotEquals(deep, wg);
+    }
+
+    @Test
+    void forEachNeighborTest() {
+        WGraph_DS wg = (WGraph_DS) graph_creator(30, 120);
+        wg.connect(3, 20, 2.5);
+        wg.removeEdge(0, 1);
+        wg.removeNode(9);
+        WGraph_Concurrent cg = new WGraph_Concurrent();
+        for (node_info n : wg.getV()) cg.addNode(n.getKey());
+        for (node_info n : wg.getV()) {
+            for (node_info v : wg.getV(n.getKey())) cg.connect(n.getKey(), v.getKey(), wg.getEdge(n.getKey(), v.getKey()));
+        }
+        try (WGraph_Snapshot s = wg.snapshot()) {
+            for (weighted_graph g : new weighted_graph[]{wg, wg.freeze(), cg, s}) {
+                for (int key = 0; key < 31; key++) {
+                    Map<Integer, Double> expected = new HashMap<>();
+                    for (node_info v : wg.getV(key)) expected.put(v.getKey(), wg.getEdge(key, v.getKey()));
+                    Map<Integer, Double> visited = new HashMap<>();
+                    g.forEachNeighbor(key, (v, w) -> assertNull(visited.put(v, w)));
+                    assertEquals(expected, visited);
+                }
+            }
+        }
+    }
+
+    @Test
+    void builderTest() {
+        Random r = new Random(4);
+        WGraph_DS expected = new WGraph_DS();
+        WGraph_DS.Builder builder = new WGraph_DS.Builder(10, 10);
+        int[] keys = new int[100];
+        for (int i = 0; i < 100; i++) {
+            keys[i] = i * 3;
+            expected.addNode(i * 3);
+        }
+        builder.addNodes(keys).addNode(0).addNode(300);
+        expected.addNode(300);
+        int[] from = new int[1000], to = new int[1000];
+        double[] w = new double[1000];
+        for (int e = 0; e < 1000; e++) {
+            //Some of the ends are not nodes, some edges are repeated, and some weights are negative
+            from[e] = r.nextInt(310);
+            to[e] = r.nextInt(310);
+            w[e] = r.nextInt(10) - 1;
+            expected.connect(from[e], to[e], w[e]);
+        }
+        builder.connect(from, to, w).connect(3, 6, 0.5);
+        expected.connect(3, 6, 0.5);
+
+        WGraph_DS wg = builder.build();
+        assertEquals(expected.nodeSize(), wg.nodeSize());
+        assertEquals(expected.edgeSize(), wg.edgeSize());
+        assertEquals(wg.nodeSize() + wg.edgeSize(), wg.getMC());
+        for (node_info n : expected.getV()) {
+            assertEquals(expected.getV(n.getKey()).size(), wg.getV(n.getKey()).size());
+            for (node_info v : expected.getV(n.getKey())) {
+                assertEquals(expected.getEdge(n.getKey(), v.getKey()), wg.getEdge(v.getKey(), n.getKey()));
+            }
+        }
+        //A built graph is a regular graph
+        wg.removeNode(3);
+        wg.connect(0, 9, 1);
+        assertEquals(1, wg.getEdge(9, 0));
+        assertEquals(expected.nodeSize(), builder.build().nodeSize());
+        assertThrows(IllegalArgumentException.class, () -> builder.connect(new int[1], new int[2], new double[1]));
+    }
+
     public static weighted_graph graph_creator(int v_size, int e_size) {
         weighted_graph g = new WGraph_DS();
         for (int i = 0; i < v_size; i++) {
@@ -0,0 +1,68 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_DeltaSteppingTest {
+
+    @Test
+    void shortestPathDistTest() {
+        weighted_graph wg = new WGraph_DS();
+        double[][] expected = WGraph_AlgoTest.random_graph(wg, 80, 130, 17);
+        WGraph_DeltaStepping ds = new WGraph_DeltaStepping(wg);
+
+        for (int i = 0; i < 80; i++) {
+            WGraph_DeltaStepping.Result result = ds.run(i);
+            int reached = 0;
+            for (int j = 0; j < 80; j++) {
+                double actual = result.dist(j);
+                assertEquals(expected[i][j] == Double.POSITIVE_INFINITY ? -1 : expected[i][j], actual);
+                WGraph_AlgoTest.assertPath(wg, i, j, actual, result.path(j));
+                if (actual >= 0) reached++;
+            }
+            assertEquals(reached, result.reachedCount());
+        }
+        assertTrue(ds.getDelta() > 0);
+        assertNull(ds.run(100));
+        assertEquals(-1, ds.run(0).dist(100));
+    }
+
+    @Test
+    void parallelTest() {
+        //Large enough for the frontiers to be split between the threads
+        WGraph_DS wg = new WGraph_DS();
+        Random r = new Random(8);
+        int n = 20000;
+        for (int i = 0; i < n; i++) wg.addNode(i);
+        for (int i = 0; i < 4 * n; i++) wg.connect(r.nextInt(n), r.nextInt(n), r.nextInt(100) / 4.0);
+        wg.connect(1, 2, 0);
+        wg.connect(2, 3, 0);
+
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (double delta : new double[]{0, 0.5, 30}) {
+                WGraph_DeltaStepping ds = new WGraph_DeltaStepping(wg, delta, pool);
+                WGraph_DeltaStepping.Result result = ds.run(1);
+                for (int j = 0; j < n; j += 97) {
+                    assertEquals(wga.shortestPathDist(1, j, WGraph_Algo.Strategy.DIJKSTRA), result.dist(j));
+                }
+                assertEquals(0, result.dist(3));
+                WGraph_AlgoTest.assertPath(wg, 1, 3, 0, result.path(3));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        //The snapshot follows the changes of the graph
+        WGraph_DeltaStepping ds = new WGraph_DeltaStepping(wg);
+        assertEquals(0, ds.run(1).dist(3));
+        wg.removeEdge(2, 3);
+        assertEquals(wga.shortestPathDist(1, 3), ds.run(1).dist(3));
+    }
+}
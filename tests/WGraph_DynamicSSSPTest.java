@@ -0,0 +1,107 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_DynamicSSSPTest {
+
+    @Test
+    void sameAsDijkstraTest() {
+        WGraph_DS g = new WGraph_DS();
+        Random r = new Random(11);
+        for (int i = 0; i < 60; i++) g.addNode(i);
+        for (int e = 0; e < 150; e++) g.connect(r.nextInt(60), r.nextInt(60), 1 + r.nextInt(10));
+
+        WGraph_Algo algo = new WGraph_Algo(g);
+        try (WGraph_DynamicSSSP sssp = algo.dynamicShortestPaths(0)) {
+            for (int step = 0; step < 1500; step++) {
+                int a = r.nextInt(60), b = r.nextInt(60), op = r.nextInt(20);
+                if (op < 10) g.connect(a, b, r.nextInt(10));
+                else if (op < 17) g.removeEdge(a, b);
+                else if (op < 19) g.addNode(a);
+                else g.removeNode(a);
+
+                for (int key = 0; key < 60; key++) {
+                    assertEquals(new WGraph_Algo(g).shortestPathDist(0, key), sssp.dist(key), 1e-9);
+                }
+                List<node_info> path = sssp.path(b);
+                if (path != null) {
+                    double length = 0;
+                    for (int i = 1; i < path.size(); i++) {
+                        length += g.getEdge(path.get(i - 1).getKey(), path.get(i).getKey());
+                    }
+                    assertEquals(sssp.dist(b), length, 1e-9);
+                    assertEquals(0, path.get(0).getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    void minValueKeyTest() {
+        //Integer.MIN_VALUE is a key like any other
+        WGraph_DS g = new WGraph_DS();
+        g.addNode(0);
+        g.addNode(1);
+        g.addNode(Integer.MIN_VALUE);
+        g.connect(0, 1, 1);
+        g.connect(0, Integer.MIN_VALUE, 1);
+        try (WGraph_DynamicSSSP sssp = new WGraph_DynamicSSSP(g, 0)) {
+            List<node_info> path = sssp.path(Integer.MIN_VALUE);
+            assertEquals(2, path.size());
+            assertEquals(0, path.get(0).getKey());
+            assertEquals(Integer.MIN_VALUE, path.get(1).getKey());
+            //Only the subtree of MIN_VALUE is cut
+            g.removeEdge(Integer.MIN_VALUE, 0);
+            assertEquals(0, sssp.dist(0));
+            assertEquals(1, sssp.dist(1));
+            assertEquals(-1, sssp.dist(Integer.MIN_VALUE));
+            g.connect(1, Integer.MIN_VALUE, 2);
+            assertEquals(3, sssp.dist(Integer.MIN_VALUE));
+            assertEquals(3, sssp.path(Integer.MIN_VALUE).size());
+        }
+    }
+
+    @Test
+    void localRepairTest() {
+        //A long path 0-1-...-999 and a branch 0-1000-1001
+        WGraph_DS g = new WGraph_DS();
+        for (int i = 0; i < 1002; i++) g.addNode(i);
+        for (int i = 1; i < 1000; i++) g.connect(i - 1, i, 1);
+        g.connect(0, 1000, 1);
+        g.connect(1000, 1001, 1);
+
+        WGraph_DynamicSSSP sssp = new WGraph_DynamicSSSP(g, 0);
+        assertEquals(999, sssp.dist(999));
+        //Only the branch is repaired
+        g.connect(1000, 1001, 5);
+        assertEquals(6, sssp.dist(1001));
+        assertTrue(sssp.lastRepaired() <= 2);
+        g.connect(0, 1001, 2);
+        assertEquals(2, sssp.dist(1001));
+        assertTrue(sssp.lastRepaired() <= 2);
+        //A change of an edge out of the tree repairs nothing
+        g.connect(1000, 1001, 9);
+        assertEquals(0, sssp.lastRepaired());
+        g.removeEdge(500, 501);
+        assertEquals(-1, sssp.dist(999));
+        assertNull(sssp.path(999));
+
+        //The source is removed and added back
+        g.removeNode(0);
+        assertEquals(-1, sssp.dist(1000));
+        g.addNode(0);
+        g.connect(0, 1, 3);
+        assertEquals(3 + 499, sssp.dist(500));
+
+        sssp.close();
+        g.connect(0, 999, 1);
+        assertEquals(-1, sssp.dist(999));
+        assertThrows(IllegalStateException.class, () -> new WGraph_Algo(g.freeze()).dynamicShortestPaths(0));
+    }
+}
@@ -0,0 +1,141 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_IOTest {
+
+    /**
+     * Directory of the files of the tests, deleted after every test.
+     */
+    @TempDir
+    Path dir;
+
+    private String file(String name) {
+        return this.dir.resolve(name).toString();
+    }
+
+    @Test
+    void binaryRoundTripTest() throws IOException {
+        WGraph_DS wg = new WGraph_DS();
+        WGraph_AlgoTest.random_graph(wg, 200, 600, 21);
+        wg.addNode(-7);
+        wg.addNode(0);
+        wg.getNode(3).setInfo("Lior");
+        wg.getNode(4).setInfo("\u05dc\u05d9\u05d0\u05d5\u05e8");
+        wg.getNode(5).setInfo("");
+        wg.getNode(6).setTag(-2.5);
+
+        WGraph_IO.writeBinary(wg, file("binaryGraph"));
+        assertTrue(WGraph_IO.isBinary(file("binaryGraph")));
+        assertEquals(wg, WGraph_IO.readBinary(file("binaryGraph")));
+
+        //A snapshot is written the same way
+        WGraph_IO.writeBinary(wg.freeze(), file("binaryGraph"));
+        assertEquals(wg, WGraph_IO.readBinary(file("binaryGraph")));
+    }
+
+    @Test
+    void saveReplacesFileTest() {
+        weighted_graph wg = WGraph_DSTest.graph_creator(50, 200);
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        assertTrue(wga.save(file("replacedGraph")));
+        long size = new File(file("replacedGraph")).length();
+        assertTrue(wga.save(file("replacedGraph")));
+        assertEquals(size, new File(file("replacedGraph")).length());
+
+        WGraph_Algo loaded = new WGraph_Algo();
+        assertTrue(loaded.load(file("replacedGraph")));
+        assertEquals(wg, loaded.getGraph());
+    }
+
+    @Test
+    void loadSerializedTest() throws IOException {
+        //A file of a serialized graph object (of the current version of the class)
+        weighted_graph wg = WGraph_DSTest.graph_creator(20, 40);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file("serializedGraph")))) {
+            oos.writeObject(wg);
+        }
+        assertFalse(WGraph_IO.isBinary(file("serializedGraph")));
+        WGraph_Algo wga = new WGraph_Algo();
+        assertTrue(wga.load(file("serializedGraph")));
+        assertEquals(wg, wga.getGraph());
+
+        assertThrows(IOException.class, () -> WGraph_IO.readBinary(file("serializedGraph")));
+        assertFalse(wga.load(file("noSuchGraph")));
+        assertEquals(wg, wga.getGraph());
+    }
+
+    @Test
+    void edgeListRoundTripTest() throws IOException {
+        WGraph_DS wg = new WGraph_DS();
+        WGraph_AlgoTest.random_graph(wg, 300, 900, 5);
+        wg.addNode(-12);
+        wg.connect(1, 2, 0.1);
+        wg.connect(2, 3, 1e-9);
+        wg.connect(3, 4, 12345678.875);
+
+        WGraph_Algo wga = new WGraph_Algo(wg);
+        assertTrue(wga.saveEdgeList(file("edgeList.txt")));
+        WGraph_DS read = WGraph_IO.readEdgeList(file("edgeList.txt"));
+        assertEquals(wg.nodeSize(), read.nodeSize());
+        assertEquals(wg.edgeSize(), read.edgeSize());
+        for (node_info x : wg.getV()) {
+            for (node_info v : wg.getV(x.getKey())) {
+                assertEquals(wg.getEdge(x.getKey(), v.getKey()), read.getEdge(x.getKey(), v.getKey()));
+            }
+        }
+        assertNotNull(read.getNode(-12));
+
+        //A snapshot is written the same way
+        WGraph_IO.writeEdgeList(wg.freeze(), file("edgeList.txt"));
+        WGraph_DS frozen = WGraph_IO.readEdgeList(file("edgeList.txt"));
+        assertEquals(read.nodeSize(), frozen.nodeSize());
+        assertEquals(read.edgeSize(), frozen.edgeSize());
+        for (node_info x : read.getV()) {
+            for (node_info v : read.getV(x.getKey())) {
+                assertEquals(read.getEdge(x.getKey(), v.getKey()), frozen.getEdge(x.getKey(), v.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void edgeListFormatTest() throws IOException {
+        try (Writer out = new FileWriter(file("edgeList.txt"))) {
+            out.write("# comment\n% comment\n\n1 2 3.5\r\n2\t3 +0.25\n  4   5\n7\n-1 1 2e1\n1 2 7\n10 11 0.30000000000000004");
+        }
+        WGraph_DS g = WGraph_IO.readEdgeList(file("edgeList.txt"));
+        assertEquals(9, g.nodeSize());
+        assertEquals(5, g.edgeSize());
+        //The last weight of a repeated edge is kept
+        assertEquals(7, g.getEdge(1, 2));
+        assertEquals(0.25, g.getEdge(3, 2));
+        assertEquals(1, g.getEdge(4, 5));
+        assertEquals(20, g.getEdge(1, -1));
+        assertEquals(0.30000000000000004, g.getEdge(10, 11));
+        assertNotNull(g.getNode(7));
+
+        try (Writer out = new FileWriter(file("edgeList.txt"))) {
+            out.write("1 2 3\n1 x 3\n");
+        }
+        IOException e = assertThrows(IOException.class, () -> WGraph_IO.readEdgeList(file("edgeList.txt")));
+        assertTrue(e.getMessage().contains("1 x 3"));
+        //Weights which are negative, NaN or infinite and self loops are malformed, not dropped
+        for (String line : new String[]{"1 2 NaN", "1 2 -1", "1 2 Infinity", "1 2 -Infinity", "3 3 1", "3 3"}) {
+            try (Writer out = new FileWriter(file("edgeList.txt"))) {
+                out.write("1 2 3\n" + line + "\n");
+            }
+            e = assertThrows(IOException.class, () -> WGraph_IO.readEdgeList(file("edgeList.txt")));
+            assertTrue(e.getMessage().contains(line));
+        }
+        WGraph_Algo wga = new WGraph_Algo(g);
+        assertFalse(wga.loadEdgeList(file("edgeList.txt")));
+        assertSame(g, wga.getGraph());
+    }
+}
@@ -0,0 +1,116 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_JournalTest {
+
+    @Test
+    void recordsTest() {
+        WGraph_DS g = new WGraph_DS();
+        try (WGraph_Journal journal = new WGraph_Journal(g, 100)) {
+            WGraph_Journal.Subscription sub = journal.subscribe();
+            g.addNode(1);
+            g.addNode(2);
+            g.addNode(3);
+            g.connect(1, 2, 4);
+            g.connect(1, 2, 5);
+            g.connect(1, 2, 5);
+            g.connect(2, 3, 1);
+            g.removeEdge(2, 1);
+            g.removeNode(3);
+
+            List<WGraph_Journal.Record> batch = sub.poll(4);
+            assertEquals(4, batch.size());
+            assertEquals(WGraph_Journal.Type.ADD_NODE, batch.get(0).getType());
+            assertEquals(1, batch.get(0).getNode1());
+            assertEquals(WGraph_Journal.Type.CONNECT, batch.get(3).getType());
+            assertEquals(-1, batch.get(3).getPrevious());
+            assertEquals(4, batch.get(3).getWeight());
+
+            batch = sub.poll(100);
+            assertEquals(5, batch.size());
+            assertEquals(4, batch.get(0).getPrevious());
+            assertEquals(5, batch.get(0).getWeight());
+            assertEquals(WGraph_Journal.Type.REMOVE_EDGE, batch.get(2).getType());
+            assertEquals(5, batch.get(2).getWeight());
+            //removeNode - its edges and then the node
+            assertEquals(WGraph_Journal.Type.REMOVE_EDGE, batch.get(3).getType());
+            assertEquals(WGraph_Journal.Type.REMOVE_NODE, batch.get(4).getType());
+            //The Mode Counts are the sequence numbers
+            assertEquals(g.getMC(), batch.get(batch.size() - 1).getMC());
+            for (int i = 1; i < batch.size(); i++) {
+                assertEquals(batch.get(i - 1).getMC() + 1, batch.get(i).getMC());
+            }
+            assertTrue(sub.poll(10).isEmpty());
+            assertEquals(0, sub.missed());
+        }
+    }
+
+    @Test
+    void replayTest() {
+        //A copy follows the graph by the records
+        WGraph_DS g = new WGraph_DS();
+        WGraph_Journal journal = new WGraph_Journal(g, 64);
+        WGraph_DS copy = g.copy();
+        WGraph_Journal.Subscription sub = journal.subscribe(copy.getMC());
+        Random r = new Random(9);
+        for (int step = 0; step < 3000; step++) {
+            int a = r.nextInt(30), b = r.nextInt(30), op = r.nextInt(10);
+            if (op < 5) g.connect(a, b, r.nextInt(9));
+            else if (op < 7) g.removeEdge(a, b);
+            else if (op < 9) g.addNode(a);
+            else g.removeNode(a);
+            if (step % 7 == 0) {
+                for (WGraph_Journal.Record rec : sub.poll(1000)) {
+                    switch (rec.getType()) {
+                        case ADD_NODE: copy.addNode(rec.getNode1()); break;
+                        case REMOVE_NODE: copy.removeNode(rec.getNode1()); break;
+                        case CONNECT: copy.connect(rec.getNode1(), rec.getNode2(), rec.getWeight()); break;
+                        default: copy.removeEdge(rec.getNode1(), rec.getNode2());
+                    }
+                    assertEquals(rec.getMC(), copy.getMC());
+                }
+            }
+        }
+        sub.poll(1000).forEach(rec -> assertTrue(rec.getMC() <= g.getMC()));
+        assertEquals(0, sub.missed());
+        journal.close();
+    }
+
+    @Test
+    void overwrittenTest() throws InterruptedException {
+        WGraph_DS g = new WGraph_DS();
+        WGraph_Journal journal = new WGraph_Journal(g, 8);
+        WGraph_Journal.Subscription sub = journal.subscribe();
+        for (int i = 0; i < 20; i++) g.addNode(i);
+        assertEquals(8, sub.pending());
+        assertEquals(12, sub.missed());
+        List<WGraph_Journal.Record> batch = sub.poll(100);
+        assertEquals(8, batch.size());
+        assertEquals(12, batch.get(0).getNode1());
+        assertEquals(12, sub.missed());
+
+        //From a Mode Count which is no longer kept
+        assertEquals(10, journal.subscribe(2).missed());
+        assertEquals(0, journal.subscribe(15).missed());
+        assertEquals(5, journal.subscribe(15).pending());
+
+        //Waiting for the next record
+        Thread writer = new Thread(() -> g.addNode(100));
+        writer.start();
+        batch = sub.poll(10, 5, TimeUnit.SECONDS);
+        writer.join();
+        assertEquals(100, batch.get(0).getNode1());
+        journal.close();
+        g.addNode(101);
+        assertTrue(sub.poll(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+        assertEquals(21, journal.written());
+    }
+}
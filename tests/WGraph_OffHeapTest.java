@@ -0,0 +1,77 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_OffHeapTest {
+
+    @Test
+    void sameAsWGraph_DSTest() {
+        WGraph_DS wg = new WGraph_DS();
+        //Small segments, so the storage grows by many segments and large blocks get segments of their own
+        try (WGraph_OffHeap og = new WGraph_OffHeap(10, 256)) {
+            Random r = new Random(7);
+            for (int step = 0; step < 20000; step++) {
+                int a = r.nextInt(80), b = r.nextInt(step < 10000 ? 80 : 8), op = r.nextInt(20);
+                double w = r.nextInt(5);
+                for (weighted_graph g : new weighted_graph[]{wg, og}) {
+                    if (op < 12) g.connect(a, b, w);
+                    else if (op < 16) g.removeEdge(a, b);
+                    else if (op < 19) g.addNode(a);
+                    else g.removeNode(a);
+                }
+            }
+            assertEquals(wg, og);
+            assertEquals(wg.getMC(), og.getMC());
+            assertTrue(og.offHeapBytes() > 256);
+            for (node_info n : wg.getV()) {
+                assertEquals(wg.getV(n.getKey()).size(), og.getV(n.getKey()).size());
+            }
+            assertEquals(-1, og.getEdge(100, 1));
+            assertNull(og.removeNode(100));
+
+            //The algorithms run on it through the interface
+            WGraph_Algo wga = new WGraph_Algo(og);
+            for (int i = 0; i < 80; i++) {
+                assertEquals(new WGraph_Algo(wg).shortestPathDist(0, i), wga.shortestPathDist(0, i));
+            }
+            assertEquals(new WGraph_Algo(wg).isConnected(), wga.isConnected());
+            weighted_graph copy = wga.copy();
+            assertEquals(wg.nodeSize(), copy.nodeSize());
+            assertEquals(wg.edgeSize(), copy.edgeSize());
+        }
+    }
+
+    @Test
+    void nodesTest() {
+        WGraph_OffHeap og = new WGraph_OffHeap();
+        og.addNode(1);
+        og.addNode(2);
+        og.connect(1, 2, 3);
+        node_info n = og.getNode(1);
+        n.setTag(5);
+        n.setInfo("one");
+        assertEquals(5, og.getNode(1).getTag());
+        assertEquals("one", og.getNode(1).getInfo());
+        assertEquals(2, og.getV().size());
+
+        node_info removed = og.removeNode(1);
+        assertEquals(1, removed.getKey());
+        assertEquals(5, removed.getTag());
+        assertEquals("one", removed.getInfo());
+        assertEquals(0, og.edgeSize());
+        og.addNode(3);
+        assertNull(og.getNode(3).getInfo());
+        assertEquals(Double.MAX_VALUE, og.getNode(3).getTag());
+
+        og.close();
+        og.close();
+        assertTrue(og.isClosed());
+        assertThrows(IllegalStateException.class, () -> og.getNode(2));
+        assertThrows(IllegalStateException.class, () -> og.connect(2, 3, 1));
+    }
+}
@@ -0,0 +1,110 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_ShardedTest {
+
+    private static WGraph_DS randomGraph(int nodes, int edges, long seed) {
+        WGraph_DS g = new WGraph_DS();
+        Random r = new Random(seed);
+        for (int i = 0; i < nodes; i++) g.addNode(i * 5 - 100);
+        for (int e = 0; e < edges; e++) {
+            g.connect(r.nextInt(nodes) * 5 - 100, r.nextInt(nodes) * 5 - 100, r.nextInt(20));
+        }
+        return g;
+    }
+
+    @Test
+    void shortestPathTest() {
+        WGraph_DS g = randomGraph(300, 700, 1);
+        WGraph_Algo expected = new WGraph_Algo(g);
+        try (WGraph_Sharded sharded = new WGraph_Sharded(g, 4)) {
+            assertEquals(4, sharded.getShardCount());
+            Random r = new Random(2);
+            for (int q = 0; q < 50; q++) {
+                int src = r.nextInt(300) * 5 - 100, dest = r.nextInt(300) * 5 - 100;
+                double d = expected.shortestPathDist(src, dest);
+                assertEquals(d, sharded.shortestPathDist(src, dest), 1e-9);
+                List<node_info> path = sharded.shortestPath(src, dest);
+                if (d < 0) {
+                    assertNull(path);
+                    continue;
+                }
+                //A real path of the same length
+                assertEquals(src, path.get(0).getKey());
+                assertEquals(dest, path.get(path.size() - 1).getKey());
+                double length = 0;
+                for (int i = 1; i < path.size(); i++) {
+                    assertTrue(g.hasEdge(path.get(i - 1).getKey(), path.get(i).getKey()));
+                    length += g.getEdge(path.get(i - 1).getKey(), path.get(i).getKey());
+                }
+                assertEquals(d, length, 1e-9);
+            }
+            assertTrue(sharded.lastSupersteps() > 0);
+            assertEquals(-1, sharded.shortestPathDist(-100, 7));
+            assertNull(sharded.shortestPath(7, -100));
+
+            int[] keys = {-100, -95, 0, 400, 7};
+            double[][] table = sharded.distanceMatrix(keys, keys);
+            assertArrayEquals(expected.distanceMatrix(keys, keys), table);
+
+            //The graph is partitioned again after a change
+            g.connect(-100, 1395, 0);
+            assertEquals(0, sharded.shortestPathDist(1395, -100));
+        }
+    }
+
+    @Test
+    void minValueKeyTest() {
+        //Integer.MIN_VALUE is a key like any other
+        WGraph_DS g = new WGraph_DS();
+        g.addNode(0);
+        g.addNode(1);
+        g.addNode(Integer.MIN_VALUE);
+        g.connect(0, 1, 1);
+        g.connect(0, Integer.MIN_VALUE, 2);
+        try (WGraph_Sharded sharded = new WGraph_Sharded(g, 2)) {
+            assertEquals(2, sharded.shortestPathDist(0, Integer.MIN_VALUE));
+            List<node_info> path = sharded.shortestPath(0, Integer.MIN_VALUE);
+            assertEquals(2, path.size());
+            assertEquals(0, path.get(0).getKey());
+            assertEquals(Integer.MIN_VALUE, path.get(1).getKey());
+            path = sharded.shortestPath(Integer.MIN_VALUE, 1);
+            assertEquals(3, path.size());
+            assertEquals(Integer.MIN_VALUE, path.get(0).getKey());
+            assertEquals(1, path.get(2).getKey());
+        }
+    }
+
+    @Test
+    void isConnectedTest() {
+        try (WGraph_Sharded sharded = new WGraph_Sharded(3)) {
+            assertTrue(sharded.isConnected());
+            WGraph_DS g = randomGraph(200, 150, 3);
+            sharded.init(g);
+            WGraph_Algo expected = new WGraph_Algo(g);
+            assertEquals(expected.componentCount(), sharded.componentCount());
+            assertFalse(sharded.isConnected());
+            for (int i = 1; i < 200; i++) g.connect((i - 1) * 5 - 100, i * 5 - 100, 1);
+            assertTrue(sharded.isConnected());
+            assertEquals(1, sharded.componentCount());
+            //A path through all the shards takes many supersteps
+            assertTrue(sharded.lastMessages() > 0);
+        }
+    }
+
+    @Test
+    void closeTest() {
+        WGraph_Sharded sharded = new WGraph_Sharded(randomGraph(10, 10, 4), 2);
+        sharded.close();
+        sharded.close();
+        assertThrows(IllegalStateException.class, () -> sharded.shortestPathDist(-100, -95));
+        assertThrows(IllegalArgumentException.class, () -> new WGraph_Sharded(0));
+    }
+}
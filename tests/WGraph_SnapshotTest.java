@@ -0,0 +1,136 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WGraph_SnapshotTest {
+
+    /**
+     * Same nodes and edges (the Mode Count of a copy is different).
+     */
+    private static void assertSameGraph(weighted_graph expected, weighted_graph actual) {
+        assertEquals(expected.nodeSize(), actual.nodeSize());
+        assertEquals(expected.edgeSize(), actual.edgeSize());
+        for (node_info n : expected.getV()) {
+            assertNotNull(actual.getNode(n.getKey()));
+            assertEquals(expected.getV(n.getKey()).size(), actual.getV(n.getKey()).size());
+            for (node_info v : expected.getV(n.getKey())) {
+                assertEquals(expected.getEdge(n.getKey(), v.getKey()), actual.getEdge(n.getKey(), v.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void snapshotTest() {
+        WGraph_DS g = new WGraph_DS();
+        for (int i = 0; i < 5; i++) g.addNode(i);
+        g.connect(0, 1, 1);
+        g.connect(1, 2, 2);
+        g.connect(2, 3, 3);
+        int mc = g.getMC();
+
+        WGraph_Snapshot s = g.snapshot();
+        assertEquals(1, g.openSnapshots());
+        g.removeEdge(1, 2);
+        g.connect(0, 3, 10);
+        g.connect(2, 3, 4);
+        g.removeNode(4);
+        g.addNode(7);
+
+        assertEquals(5, s.nodeSize());
+        assertEquals(3, s.edgeSize());
+        assertEquals(mc, s.getMC());
+        assertTrue(s.hasEdge(1, 2));
+        assertEquals(3, s.getEdge(3, 2));
+        assertFalse(s.hasEdge(0, 3));
+        assertNotNull(s.getNode(4));
+        assertNull(s.getNode(7));
+        assertEquals(6, new WGraph_Algo(s).shortestPathDist(0, 3));
+        assertEquals(10, new WGraph_Algo(g).shortestPathDist(0, 3));
+
+        assertThrows(UnsupportedOperationException.class, () -> s.connect(0, 4, 1));
+        assertThrows(UnsupportedOperationException.class, () -> s.removeNode(0));
+
+        s.close();
+        s.close();
+        assertTrue(s.isClosed());
+        assertEquals(0, g.openSnapshots());
+        assertThrows(IllegalStateException.class, () -> s.getEdge(0, 1));
+        //The changes are done in place again
+        g.connect(1, 2, 5);
+        assertEquals(5, g.getEdge(2, 1));
+    }
+
+    @Test
+    void manyVersionsTest() {
+        WGraph_DS g = new WGraph_DS();
+        Random r = new Random(5);
+        List<WGraph_Snapshot> snapshots = new ArrayList<>();
+        List<weighted_graph> copies = new ArrayList<>();
+        for (int step = 0; step < 4000; step++) {
+            int a = r.nextInt(60), b = r.nextInt(60), op = r.nextInt(10);
+            if (op < 5) g.connect(a, b, r.nextInt(9));
+            else if (op < 7) g.removeEdge(a, b);
+            else if (op < 9) g.addNode(a);
+            else g.removeNode(a);
+
+            if (step % 250 == 0) {
+                snapshots.add(g.snapshot());
+                copies.add(new WGraph_Algo(g).copy());
+            }
+            //Release some of the old versions meanwhile
+            if (step % 700 == 0 && snapshots.size() > 2) snapshots.get(snapshots.size() - 3).close();
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            if (!snapshots.get(i).isClosed()) assertSameGraph(copies.get(i), snapshots.get(i));
+        }
+        for (WGraph_Snapshot s : snapshots) s.close();
+        assertEquals(0, g.openSnapshots());
+    }
+
+    @Test
+    void readWhileWritingTest() throws InterruptedException {
+        WGraph_DS g = new WGraph_DS();
+        int n = 300;
+        for (int i = 0; i < n; i++) g.addNode(i);
+        for (int i = 1; i < n; i++) g.connect(i - 1, i, 1);
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random r = new Random(1);
+            while (!done.get()) {
+                int a = r.nextInt(n), b = r.nextInt(n);
+                if (r.nextBoolean()) g.connect(a, b, 1 + r.nextInt(5));
+                else g.removeEdge(a, b);
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                try (WGraph_Snapshot s = g.snapshot()) {
+                    int mc = s.getMC(), edges = s.edgeSize();
+                    WGraph_Algo algo = new WGraph_Algo(s);
+                    double d = algo.shortestPathDist(0, n - 1);
+                    //The same answer on the same version, whatever the writer did meanwhile
+                    assertEquals(d, algo.shortestPathDist(0, n - 1));
+                    assertEquals(mc, s.getMC());
+                    assertEquals(edges, s.edgeSize());
+                    int degrees = 0;
+                    for (node_info x : s.getV()) degrees += s.getV(x.getKey()).size();
+                    assertEquals(2 * edges, degrees);
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+        assertEquals(0, g.openSnapshots());
+    }
+}